@@ -0,0 +1,45 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.TimeOrderedTransactionIdGenerator;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.service.UuidTransactionIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 거래 아이디 생성 비용 비교. 할당량은 -prof gc 로 확인한다.
+ * ./gradlew jmh -PjmhArgs="TransactionIdBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionIdBenchmark {
+
+    @Param({"uuid", "time-ordered"})
+    private String type;
+
+    private TransactionIdGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = "uuid".equals(type)
+                ? new UuidTransactionIdGenerator()
+                : new TimeOrderedTransactionIdGenerator(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String generate() {
+        return generator.generate();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String generateContended() {
+        return generator.generate();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.account.benchmark;
+
+import com.example.account.service.TimeOrderedTransactionIdGenerator;
+import com.example.account.service.TransactionIdGenerator;
+import com.example.account.service.UuidTransactionIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * transaction_id 인덱스가 있는 거래 테이블에 아이디 종류별로 insert 하는 비용 비교.
+ * 랜덤 UUID 는 B-tree 의 여러 페이지에 흩어져 삽입되고, 시간순 아이디는 오른쪽 끝 페이지에만 삽입된다.
+ * ./gradlew jmh -PjmhArgs="TransactionInsertLocalityBenchmark"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionInsertLocalityBenchmark {
+    private static final int PRELOAD_ROWS = 200_000;
+    private static final int BATCH_ROWS = 1_000;
+
+    @Param({"uuid", "time-ordered"})
+    private String type;
+
+    private TransactionIdGenerator generator;
+    private Connection connection;
+    private PreparedStatement insert;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        generator = "uuid".equals(type)
+                ? new UuidTransactionIdGenerator()
+                : new TimeOrderedTransactionIdGenerator(1);
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:locality_" + type.replace('-', '_'), "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table transaction ("
+                    + "id bigint primary key, "
+                    + "transaction_id varchar(255), "
+                    + "amount bigint)");
+            statement.execute("create unique index ux_transaction_id on transaction (transaction_id)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement(
+                "insert into transaction (id, transaction_id, amount) values (?, ?, ?)");
+        for (int i = 0; i < PRELOAD_ROWS / BATCH_ROWS; i++) {
+            insertBatch();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * 1,000 건 batch insert + commit 한 번
+     */
+    @Benchmark
+    public int insertBatch() throws SQLException {
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            insert.setLong(1, nextId++);
+            insert.setString(2, generator.generate());
+            insert.setLong(3, 1000L);
+            insert.addBatch();
+        }
+        int rows = insert.executeBatch().length;
+        connection.commit();
+        return rows;
+    }
+}
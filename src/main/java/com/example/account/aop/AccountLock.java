@@ -3,11 +3,21 @@ package com.example.account.aop;
 
 import java.lang.annotation.*;
 
+/**
+ * 계좌번호 단위로 lock 을 잡고 메서드를 실행한다. (시간 단위 : ms)
+ * 같은 계좌를 잠그는 메서드끼리는 fair 값을 맞춰야 한다.
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 @Documented
 @Inherited
 public @interface AccountLock {
+    // lock 획득 대기 시간
     long tryLockTime() default 5000L;
 
+    // lock 보유 시간, 지나면 unlock 하지 않아도 풀린다.
+    long leaseTime() default 15000L;
+
+    // 먼저 요청한 순서대로 lock 을 얻는다.
+    boolean fair() default false;
 }
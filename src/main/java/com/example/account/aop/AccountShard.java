@@ -0,0 +1,16 @@
+package com.example.account.aop;
+
+
+import java.lang.annotation.*;
+
+/**
+ * 계좌번호가 들어 있는 파라미터로 shard 를 골라 메서드를 실행한다.
+ * 트랜잭션이 열리기 전에 shard 가 정해지도록 @Transactional 보다 바깥에서 적용된다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AccountShard {
+    // 계좌번호 파라미터 이름
+    String value() default "accountNumber";
+}
@@ -0,0 +1,183 @@
+package com.example.account.cache;
+
+import com.example.account.dto.AccountInfo;
+import com.example.account.service.ReadYourWritesTracker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 사용자별 사용 중 계좌 목록 캐시. 노드 내부 near-cache → Redis → DB 순으로 읽는다.
+ *
+ * 계좌/잔액이 바뀌면 커밋 후 Redis 값을 지우고 version 을 올린 뒤,
+ * RTopic 으로 다른 노드의 near-cache 도 지우게 한다.
+ * DB 를 읽는 사이 version 이 바뀌었으면 읽은 값은 Redis 에 쓰지 않는다. (커밋 전 값이 다시 캐시되는 것 방지)
+ * 무효화는 사용자의 변경이 커밋됐다는 뜻이므로 read-your-writes 표시도 함께 남긴다.
+ */
+@Slf4j
+@Component
+public class AccountListCache {
+    private static final String TOPIC = "account-list-invalidation";
+    private static final TypeReference<List<AccountInfo>> LIST_TYPE =
+            new TypeReference<List<AccountInfo>>() {};
+
+    // version 이 읽기 시작할 때와 같을 때만 저장
+    private static final String PUT_IF_VERSION_SCRIPT =
+            "local version = redis.call('get', KEYS[2]) or '0' "
+                    + "if version == ARGV[1] then "
+                    + "redis.call('set', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 end "
+                    + "return 0";
+    private static final String EVICT_SCRIPT =
+            "redis.call('incr', KEYS[2]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[1]) "
+                    + "return redis.call('del', KEYS[1])";
+
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final LocalLruCache<Long, List<AccountInfo>> nearCache;
+    // 노드 내부 무효화 횟수. 읽는 사이 바뀌었으면 near-cache 에 넣지 않는다.
+    private final AtomicLong localGeneration = new AtomicLong();
+    private final long ttlMillis;
+
+    public AccountListCache(
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            ReadYourWritesTracker readYourWritesTracker,
+            @Value("${account.account-list-cache.local-max-size:10000}") int localMaxSize,
+            @Value("${account.account-list-cache.local-ttl-millis:60000}") long localTtlMillis,
+            @Value("${account.account-list-cache.ttl-millis:600000}") long ttlMillis
+    ) {
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.nearCache = new LocalLruCache<>(localMaxSize, localTtlMillis);
+        this.ttlMillis = ttlMillis;
+        subscribe();
+    }
+
+    /**
+     * 캐시에 없으면 loader 로 DB 에서 읽어 near-cache 와 Redis 에 넣는다.
+     * loader 가 던진 예외는 그대로 전달하고 캐시하지 않는다.
+     */
+    public List<AccountInfo> get(Long userId, Supplier<List<AccountInfo>> loader) {
+        Optional<List<AccountInfo>> cached = nearCache.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        long generation = localGeneration.get();
+        String version = null;
+        try {
+            String stored = redissonClient.<String>getBucket(getKey(userId), StringCodec.INSTANCE).get();
+            if (stored != null) {
+                List<AccountInfo> accountList = objectMapper.readValue(stored, LIST_TYPE);
+                putLocal(userId, accountList, generation);
+                return accountList;
+            }
+            version = Optional.ofNullable(redissonClient
+                    .<String>getBucket(getVersionKey(userId), StringCodec.INSTANCE).get())
+                    .orElse("0");
+        } catch (Exception e) {
+            // Redis 장애 시에는 DB 와 near-cache 만 사용한다.
+            log.error("Redis account list lookup failed", e);
+        }
+
+        List<AccountInfo> accountList = Collections.unmodifiableList(loader.get());
+        if (version != null) {
+            putRemote(userId, accountList, version);
+        }
+        putLocal(userId, accountList, generation);
+        return accountList;
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋된 뒤에 무효화한다. 트랜잭션 밖이면 바로 무효화한다.
+     */
+    public void evictAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    public void evict(Long userId) {
+        evictLocal(userId);
+        readYourWritesTracker.recordWrite(userId);
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(
+                    RScript.Mode.READ_WRITE, EVICT_SCRIPT, RScript.ReturnType.INTEGER,
+                    Arrays.asList(getKey(userId), getVersionKey(userId)),
+                    String.valueOf(ttlMillis));
+            redissonClient.getTopic(TOPIC, LongCodec.INSTANCE).publish(userId);
+        } catch (Exception e) {
+            // 다른 노드의 near-cache 는 local ttl 이 지나면 사라진다.
+            log.error("Redis account list eviction failed for userId : {}", userId, e);
+        }
+    }
+
+    private void subscribe() {
+        try {
+            RTopic topic = redissonClient.getTopic(TOPIC, LongCodec.INSTANCE);
+            topic.addListener(Long.class, (channel, userId) -> evictLocal(userId));
+        } catch (Exception e) {
+            log.error("Subscribing account list invalidation failed", e);
+        }
+    }
+
+    private synchronized void evictLocal(Long userId) {
+        localGeneration.incrementAndGet();
+        nearCache.remove(userId);
+    }
+
+    private synchronized void putLocal(Long userId, List<AccountInfo> accountList, long generation) {
+        if (localGeneration.get() == generation) {
+            nearCache.put(userId, accountList);
+        }
+    }
+
+    private void putRemote(Long userId, List<AccountInfo> accountList, String version) {
+        try {
+            redissonClient.getScript(StringCodec.INSTANCE).eval(
+                    RScript.Mode.READ_WRITE, PUT_IF_VERSION_SCRIPT, RScript.ReturnType.INTEGER,
+                    Arrays.asList(getKey(userId), getVersionKey(userId)),
+                    version, objectMapper.writeValueAsString(accountList), String.valueOf(ttlMillis));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        } catch (Exception e) {
+            log.error("Redis account list store failed for userId : {}", userId, e);
+        }
+    }
+
+    private String getKey(Long userId) {
+        return "ACLIST: " + userId;
+    }
+
+    private String getVersionKey(Long userId) {
+        return "ACLIST:VER: " + userId;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.account.cache;
+
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+
+/**
+ * 커밋된 거래는 바뀌지 않으므로 거래 id 별 TransactionDto 를 노드 내부에 maxSize 개까지 보관한다.
+ * 적중/미스/eviction 수는 account.transaction.cache.* 로 확인한다.
+ */
+@Component
+public class TransactionCache {
+    private final LocalLruCache<String, TransactionDto> cache;
+
+    public TransactionCache(
+            MeterRegistry meterRegistry,
+            @Value("${account.transaction-cache.max-size:10000}") int maxSize
+    ) {
+        this.cache = new LocalLruCache<>(maxSize, 0);
+
+        FunctionCounter.builder("account.transaction.cache.gets", cache, LocalLruCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("account.transaction.cache.gets", cache, LocalLruCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("account.transaction.cache.evictions", cache, LocalLruCache::evictionCount)
+                .register(meterRegistry);
+        Gauge.builder("account.transaction.cache.size", cache, LocalLruCache::size)
+                .register(meterRegistry);
+    }
+
+    public Optional<TransactionDto> get(String transactionId) {
+        return cache.get(transactionId);
+    }
+
+    public void put(TransactionDto transactionDto) {
+        cache.put(transactionDto.getTransactionId(), transactionDto);
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋된 뒤에 넣는다. 롤백되면 넣지 않는다.
+     * dto 변환은 연관 엔티티를 읽을 수 있도록 트랜잭션 안에서 미리 해둔다.
+     */
+    public void putAfterCommit(Transaction transaction) {
+        TransactionDto transactionDto = TransactionDto.fromEntity(transaction);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            put(transactionDto);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                put(transactionDto);
+            }
+        });
+    }
+}
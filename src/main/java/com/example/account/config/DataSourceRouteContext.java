@@ -0,0 +1,34 @@
+package com.example.account.config;
+
+import com.example.account.type.DataSourceRoute;
+
+import java.util.function.Supplier;
+
+/**
+ * 트랜잭션 속성과 상관없이 현재 thread 의 DB 경로를 고정한다.
+ * 커넥션은 트랜잭션의 첫 SQL 에서 정해지므로 트랜잭션 밖에서 감싸야 한다.
+ */
+public final class DataSourceRouteContext {
+    private static final ThreadLocal<DataSourceRoute> ROUTE = new ThreadLocal<>();
+
+    private DataSourceRouteContext() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> supplier) {
+        DataSourceRoute previous = ROUTE.get();
+        ROUTE.set(DataSourceRoute.PRIMARY);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                ROUTE.remove();
+            } else {
+                ROUTE.set(previous);
+            }
+        }
+    }
+
+    static DataSourceRoute current() {
+        return ROUTE.get();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.account.config;
+
+import com.example.account.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+/**
+ * Idempotency-Key 헤더가 있는 요청은 저장된 응답이 있으면 컨트롤러(lock, 거래 처리)를 타지 않고 바로 응답한다.
+ * 처음 들어온 키라면 응답은 IdempotencyResponseAdvice 에서 요청 body hash 와 함께 저장된다.
+ * body 는 IdempotencyBodyCachingFilter 가 미리 읽어 두므로 여기서 읽어도 컨트롤러가 다시 읽을 수 있다.
+ */
+@RequiredArgsConstructor
+public class IdempotencyInterceptor implements HandlerInterceptor {
+    public static final String HEADER = "Idempotency-Key";
+    static final String KEY_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".key";
+    static final String HASH_ATTRIBUTE = IdempotencyInterceptor.class.getName() + ".hash";
+
+    private final IdempotencyService idempotencyService;
+
+    @Override
+    public boolean preHandle(
+            HttpServletRequest request, HttpServletResponse response, Object handler
+    ) throws Exception {
+        String idempotencyKey = request.getHeader(HEADER);
+        if (!StringUtils.hasText(idempotencyKey)) {
+            return true;
+        }
+
+        String key = request.getRequestURI() + ":" + idempotencyKey;
+        String requestHash = sha256(StreamUtils.copyToByteArray(request.getInputStream()));
+        Optional<String> stored = idempotencyService.begin(key, requestHash);
+        if (stored.isPresent()) {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write(stored.get());
+            return false;
+        }
+
+        request.setAttribute(KEY_ATTRIBUTE, key);
+        request.setAttribute(HASH_ATTRIBUTE, requestHash);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(
+            HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex
+    ) {
+        Object key = request.getAttribute(KEY_ATTRIBUTE);
+        if (key != null) {
+            request.removeAttribute(KEY_ATTRIBUTE);
+            idempotencyService.release((String) key);
+        }
+    }
+
+    private static String sha256(byte[] body) throws NoSuchAlgorithmException {
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(body)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
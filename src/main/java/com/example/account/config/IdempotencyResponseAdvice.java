@@ -0,0 +1,62 @@
+package com.example.account.config;
+
+import com.example.account.service.IdempotencyService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Idempotency-Key 로 처음 처리된 요청의 응답(성공, ErrorResponse 모두)을 요청 body hash 와 함께 저장한다.
+ */
+@Slf4j
+@RestControllerAdvice
+@RequiredArgsConstructor
+public class IdempotencyResponseAdvice implements ResponseBodyAdvice<Object> {
+    private final IdempotencyService idempotencyService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(
+            MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType
+    ) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(
+            Object body, MethodParameter returnType, MediaType selectedContentType,
+            Class<? extends HttpMessageConverter<?>> selectedConverterType,
+            ServerHttpRequest request, ServerHttpResponse response
+    ) {
+        if (body == null || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        Object key = servletRequest.getAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE);
+        if (key == null) {
+            return body;
+        }
+
+        try {
+            idempotencyService.complete((String) key,
+                    (String) servletRequest.getAttribute(IdempotencyInterceptor.HASH_ATTRIBUTE),
+                    objectMapper.writeValueAsString(body));
+            servletRequest.removeAttribute(IdempotencyInterceptor.KEY_ATTRIBUTE);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to store idempotent response", e);
+        }
+        return body;
+    }
+}
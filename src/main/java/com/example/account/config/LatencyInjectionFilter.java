@@ -0,0 +1,63 @@
+package com.example.account.config;
+
+import com.example.account.service.LatencyInjector;
+import com.example.account.type.LatencyPoint;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BEFORE_LOCK 지연 주입.
+ * 요청을 async 로 전환해 servlet thread 를 반납하고, 지연 후 다시 dispatch 한다.
+ * async dispatch 에서는 이 필터를 건너뛰므로 컨트롤러(lock 획득)가 그대로 실행된다.
+ */
+@Component
+@Profile(LatencyInjector.PROFILE)
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class LatencyInjectionFilter extends OncePerRequestFilter {
+    private static final long ASYNC_TIMEOUT_MARGIN_MILLIS = 30_000L;
+
+    private final LatencyInjector latencyInjector;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "latency-injection");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public LatencyInjectionFilter(LatencyInjector latencyInjector) {
+        this.latencyInjector = latencyInjector;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/transaction/")
+                || latencyInjector.getDelayMillis(LatencyPoint.BEFORE_LOCK) <= 0;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            HttpServletRequest request, HttpServletResponse response, FilterChain filterChain
+    ) {
+        long delay = latencyInjector.getDelayMillis(LatencyPoint.BEFORE_LOCK);
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(delay + ASYNC_TIMEOUT_MARGIN_MILLIS);
+        scheduler.schedule(() -> asyncContext.dispatch(), delay, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.account.config;
+
+import com.example.account.dto.OnboardingImport;
+import com.example.account.service.OnboardingImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import com.example.account.service.PrivateNumberFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 시작 시 account.import.file 의 사용자/계좌를 가져온다.
+ * 실패한 줄은 account.import.report (기본 : 입력 파일명 + .failures.ndjson) 에 남는다.
+ * ApplicationRunner 는 PrivateNumberFilter 를 채우기 전에 실행되므로
+ * filter 를 채운 뒤의 ApplicationReadyEvent 에서 시작한다.
+ *
+ * java -jar account.jar --account.import.file=users.ndjson
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "account.import.file")
+public class OnboardingImportRunner {
+    private final OnboardingImportService onboardingImportService;
+
+    @Value("${account.import.file}")
+    private String file;
+
+    @Value("${account.import.report:}")
+    private String report;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(PrivateNumberFilter.REBUILD_ORDER + 1)
+    public void run() throws IOException {
+        Path input = Paths.get(file);
+        Path output = report.isEmpty() ? Paths.get(file + ".failures.ndjson") : Paths.get(report);
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            OnboardingImport.Summary summary = onboardingImportService.importUsers(reader, writer);
+            log.info("Import of {} finished : {} imported, {} failed (report : {})",
+                    input, summary.getSucceeded(), summary.getFailed(), output);
+        }
+    }
+}
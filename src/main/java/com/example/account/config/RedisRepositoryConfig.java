@@ -6,6 +6,7 @@ import org.redisson.config.Config;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 
 @Configuration
 public class RedisRepositoryConfig {
@@ -15,7 +16,9 @@ public class RedisRepositoryConfig {
     @Value("${spring.redis.port}")
     private int redisPort;
 
+    // WebMvcConfigurer 처럼 먼저 만들어지는 빈이 의존해도 내장 Redis 가 먼저 떠 있도록 한다.
     @Bean
+    @DependsOn("localRedisConfig")
     public RedissonClient redissonClient(){
         Config config = new Config();
         config.useSingleServer().setAddress("redis://" + redisHost + ":" + redisPort);
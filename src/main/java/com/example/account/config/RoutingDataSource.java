@@ -0,0 +1,24 @@
+package com.example.account.config;
+
+import com.example.account.type.DataSourceRoute;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * readOnly 트랜잭션은 replica, 나머지는 primary 로 보낸다.
+ * LazyConnectionDataSourceProxy 로 감싸서 트랜잭션 속성이 정해진 뒤(첫 SQL 시점)에 커넥션을 고르게 한다.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = DataSourceRouteContext.current();
+        if (route != null) {
+            return route;
+        }
+
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? DataSourceRoute.REPLICA
+                : DataSourceRoute.PRIMARY;
+    }
+}
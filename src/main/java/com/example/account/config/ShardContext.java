@@ -0,0 +1,60 @@
+package com.example.account.config;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Supplier;
+
+/**
+ * 현재 thread 가 사용할 shard 번호. 지정하지 않으면 home shard(0) 를 사용한다.
+ * 트랜잭션의 커넥션은 한 shard 에 묶이므로 트랜잭션 안에서 다른 shard 로 바꿀 수 없다.
+ */
+public final class ShardContext {
+    public static final int HOME_SHARD = 0;
+
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static <T> T onShard(int shard, Supplier<T> supplier) {
+        try {
+            return call(shard, supplier::get);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static <T> T call(int shard, Work<T> work) throws Throwable {
+        Integer previous = SHARD.get();
+        if (current() == shard) {
+            return work.run();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                    "Cannot switch to shard " + shard + " inside a transaction on shard " + current());
+        }
+
+        SHARD.set(shard);
+        try {
+            return work.run();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    static int current() {
+        Integer shard = SHARD.get();
+        return shard == null ? HOME_SHARD : shard;
+    }
+
+    @FunctionalInterface
+    public interface Work<T> {
+        T run() throws Throwable;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.account.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * shard 별 커넥션 pool. 순서가 shard 번호이다.
+ * DataSource 빈으로 등록하지 않아야 Boot 가 이 중 하나를 기본 DataSource 로 고르지 않는다.
+ */
+public class ShardDataSources implements Closeable {
+    private final List<HikariDataSource> dataSources;
+
+    public ShardDataSources(List<HikariDataSource> dataSources) {
+        this.dataSources = Collections.unmodifiableList(dataSources);
+    }
+
+    public HikariDataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    public int size() {
+        return dataSources.size();
+    }
+
+    @Override
+    public void close() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+}
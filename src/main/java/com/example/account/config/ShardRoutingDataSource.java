@@ -0,0 +1,15 @@
+package com.example.account.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * ShardContext 의 shard 로 보낸다.
+ * LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 시점에 커넥션을 고르게 한다.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
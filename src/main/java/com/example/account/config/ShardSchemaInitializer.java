@@ -0,0 +1,54 @@
+package com.example.account.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * ddl-auto 는 home shard 에만 스키마를 만들므로 같은 스키마를 나머지 shard 에 복사한다. (H2 로컬 실행용)
+ * 운영에서는 shard 마다 migration 으로 스키마를 만든다.
+ *
+ * Hibernate 의 pooled optimizer 는 shard 와 관계없이 메모리의 id 블록을 나눠 주므로
+ * shard 마다 시퀀스 시작값을 SEQUENCE_RANGE 씩 띄워 shard 간 id 가 겹치지 않게 한다.
+ */
+@Slf4j
+public class ShardSchemaInitializer implements InitializingBean {
+    static final long SEQUENCE_RANGE = 1_000_000_000_000L;
+
+    private final ShardDataSources shardDataSources;
+
+    public ShardSchemaInitializer(ShardDataSources shardDataSources) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> statements = new JdbcTemplate(shardDataSources.get(ShardContext.HOME_SHARD))
+                .queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> !statement.startsWith("--"))
+                .filter(statement -> !statement.startsWith("CREATE USER"))
+                .collect(Collectors.toList());
+
+        for (int shard = ShardContext.HOME_SHARD + 1; shard < shardDataSources.size(); shard++) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(shardDataSources.get(shard));
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+            statements.forEach(jdbcTemplate::execute);
+            offsetSequences(jdbcTemplate, shard);
+        }
+        log.info("Copied schema ({} statements) to {} shards",
+                statements.size(), shardDataSources.size() - 1);
+    }
+
+    private void offsetSequences(JdbcTemplate jdbcTemplate, int shard) {
+        List<String> sequences = jdbcTemplate.queryForList(
+                "select sequence_name from information_schema.sequences where sequence_schema = schema()",
+                String.class);
+        for (String sequence : sequences) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence
+                    + " RESTART WITH " + (shard * SEQUENCE_RANGE + 1));
+        }
+    }
+}
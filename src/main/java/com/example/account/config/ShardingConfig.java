@@ -0,0 +1,88 @@
+package com.example.account.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * account.sharding.urls 에 DB 를 여러 개 지정하면 계좌번호 hash 로 shard 를 나눈다.
+ * 첫 번째 DB 가 home shard 로, 사용자 원본과 계좌번호 블록, 사용자별 계좌 수를 가진다.
+ * 계좌와 그 거래는 계좌번호의 shard 에 함께 저장된다. (ShardRouter)
+ *
+ * pool 은 shard-0 .. shard-N 이름으로 hikaricp.connections.* 지표가 나온다.
+ * replica 라우팅(account.datasource.replica.url)과는 함께 쓰지 않는다.
+ */
+@Configuration
+@ConditionalOnProperty(name = "account.sharding.urls")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(
+            DataSourceProperties dataSourceProperties,
+            MeterRegistry meterRegistry,
+            @Value("${account.sharding.urls}") String[] urls,
+            @Value("${account.sharding.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${account.datasource.replica.url:}") String replicaUrl
+    ) {
+        if (!replicaUrl.isEmpty()) {
+            throw new IllegalStateException(
+                    "account.sharding.urls cannot be combined with account.datasource.replica.url");
+        }
+
+        List<HikariDataSource> dataSources = new ArrayList<>(urls.length);
+        for (int shard = 0; shard < urls.length; shard++) {
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(urls[shard].trim())
+                    .username(dataSourceProperties.determineUsername())
+                    .password(dataSourceProperties.determinePassword())
+                    .build();
+            dataSource.setPoolName("shard-" + shard);
+            dataSource.setMaximumPoolSize(maximumPoolSize);
+            dataSource.setMetricRegistry(meterRegistry);
+            dataSources.add(dataSource);
+        }
+        return new ShardDataSources(dataSources);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardDataSources.size(); shard++) {
+            targets.put(shard, shardDataSources.get(shard));
+        }
+
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(shardDataSources.get(ShardContext.HOME_SHARD));
+        routingDataSource.afterPropertiesSet();
+
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    // EntityManagerFactory 가 home shard 에 스키마를 만든 뒤에 복사한다.
+    @Bean
+    @ConditionalOnExpression("'${spring.jpa.hibernate.ddl-auto:none}'.startsWith('create')")
+    public ShardSchemaInitializer shardSchemaInitializer(
+            ShardDataSources shardDataSources,
+            EntityManagerFactory entityManagerFactory
+    ) {
+        return new ShardSchemaInitializer(shardDataSources);
+    }
+}
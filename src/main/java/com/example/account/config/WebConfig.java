@@ -0,0 +1,23 @@
+package com.example.account.config;
+
+import com.example.account.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final IdempotencyService idempotencyService;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new IdempotencyInterceptor(idempotencyService))
+                .addPathPatterns(
+                        "/transaction/use",
+                        "/transaction/use-batch",
+                        "/transaction/transfer",
+                        "/transaction/cancel");
+    }
+}
@@ -1,15 +1,29 @@
 package com.example.account.controller;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.QueryTransactionResponse;
+import com.example.account.dto.TransactionHistoryResponse;
+import com.example.account.dto.TransferBalance;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
+import com.example.account.service.BalanceBatchService;
+import com.example.account.service.TransactionExportService;
 import com.example.account.service.TransactionService;
+import com.example.account.service.TransferService;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
 
 /**
  * 잔액 컨트롤러
@@ -20,14 +34,19 @@ import javax.validation.Valid;
 @RequiredArgsConstructor
 @RequestMapping("/transaction")
 public class TransactionController {
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TransactionService transactionService;
+    private final BalanceBatchService balanceBatchService;
+    private final TransferService transferService;
+    private final TransactionExportService transactionExportService;
 
     @PostMapping("/use")
+    @AccountLock(tryLockTime = 1000L, leaseTime = 3000L)
     public UseBalance.Response useBalance(
             @Valid @RequestBody UseBalance.Request request
-    ) throws InterruptedException {
+    ){
         try{
-            Thread.sleep(5000L);
             return UseBalance.Response.from(
                     transactionService.useBalance(
                             request.getUserId(),
@@ -44,7 +63,43 @@ public class TransactionController {
         }
     }
 
+    /**
+     * 계좌번호별로 묶어 계좌마다 lock 을 한 번만 잡는다. (lock 은 서비스에서 처리)
+     */
+    @PostMapping("/use-batch")
+    public UseBalanceBatch.Response useBalanceBatch(
+            @Valid @RequestBody UseBalanceBatch.Request request
+    ){
+        return balanceBatchService.useBalanceBatch(request.getItems());
+    }
+
+    /**
+     * 두 계좌의 lock 을 정해진 순서로 잡는다. (lock 은 서비스에서 처리)
+     */
+    @PostMapping("/transfer")
+    public TransferBalance.Response transferBalance(
+            @Valid @RequestBody TransferBalance.Request request
+    ){
+        try{
+            return TransferBalance.Response.from(request,
+                    transferService.transferBalance(
+                            request.getUserId(),
+                            request.getFromAccountNumber(),
+                            request.getToAccountNumber(),
+                            request.getAmount())
+            );
+        } catch(AccountException e){
+            log.error("Failed to transfer balance.");
+            transactionService.saveFailedTransferTransaction(
+                    request.getFromAccountNumber(),
+                    request.getAmount()
+            );
+            throw e;
+        }
+    }
+
     @PostMapping("/cancel")
+    @AccountLock(tryLockTime = 3000L, leaseTime = 3000L)
     public CancelBalance.Response cancelBalance(
             @Valid @RequestBody CancelBalance.Request request
     ){
@@ -66,6 +121,39 @@ public class TransactionController {
         }
     }
 
+    /**
+     * 계좌 거래 내역 (최신순, keyset 페이지)
+     * 다음 페이지는 응답의 nextCursor 를 cursor 로 넘겨 조회한다.
+     */
+    @GetMapping("/history/{accountNumber}")
+    public TransactionHistoryResponse getTransactionHistory(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) TransactionType transactionType,
+            @RequestParam(required = false) TransactionResultType transactionResult,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size
+    ){
+        return TransactionHistoryResponse.from(
+                transactionService.getTransactionHistory(
+                        accountNumber, transactionType, transactionResult, cursor, size)
+        );
+    }
+
+    /**
+     * 하루치 거래를 NDJSON 으로 내려준다. 응답은 DB 에서 읽는 대로 바로 쓴다.
+     */
+    @GetMapping(value = "/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date
+    ){
+        StreamingResponseBody body = outputStream -> transactionExportService.export(
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay(), outputStream);
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
+    }
+
     @GetMapping("/{transactionId}")
     public QueryTransactionResponse queryTransaction(
             @PathVariable String transactionId
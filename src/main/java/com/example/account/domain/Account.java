@@ -18,16 +18,23 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_account_account_number", columnNames = "accountNumber"),
+        indexes = @Index(
+                name = "idx_account_user_status", columnList = "account_user_id, accountStatus")
+)
 @EntityListeners(AuditingEntityListener.class)
 public class Account {
 
-    // PK, Auto Increment
+    // PK, 시퀀스를 50개씩 미리 할당받아 insert 마다 시퀀스를 조회하지 않는다.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_seq")
+    @SequenceGenerator(name = "account_seq", sequenceName = "account_seq", allocationSize = 50)
     private Long id;
 
-    // join
-    @ManyToOne
+    // join, 소유주 확인은 FK(id) 만 쓰므로 사용자를 함께 읽지 않는다.
+    @ManyToOne(fetch = FetchType.LAZY)
     private AccountUser accountUser;
     private String accountNumber;
 
@@ -36,6 +43,14 @@ public class Account {
     private AccountStatus accountStatus;
     private long balance;
 
+    // 낙관적 lock 용 버전
+    @Version
+    private Long version;
+
+    // 마지막으로 예약한 outbox 이벤트 순번. AccountRepository.reserveEventSeq 로만 바꾼다.
+    @Column(insertable = false, updatable = false, columnDefinition = "bigint default 0 not null")
+    private long eventSeq;
+
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
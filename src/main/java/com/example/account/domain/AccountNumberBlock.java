@@ -0,0 +1,27 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Version;
+
+/**
+ * 계좌번호 블록 발급 현황. nextValue 부터가 아직 어느 노드에도 발급되지 않은 번호이다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class AccountNumberBlock {
+
+    @Id
+    private String name;
+
+    private Long nextValue;
+
+    @Version
+    private Long version;
+}
@@ -1,6 +1,7 @@
 package com.example.account.domain;
 
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -14,17 +15,31 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = AccountUser.PRIVATE_NUMBER_CONSTRAINT, columnNames = "privateNumber"))
 @EntityListeners(AuditingEntityListener.class)
 public class AccountUser {
+    // 저장 실패 원인이 privateNumber 중복인지 구분할 때 쓴다.
+    public static final String PRIVATE_NUMBER_CONSTRAINT = "uk_account_user_private_number";
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_user_seq")
+    @SequenceGenerator(name = "account_user_seq", sequenceName = "account_user_seq", allocationSize = 50)
     private Long id;
     private String name;
 
-    @Column(name="privateNumber", unique = true)
+    @Column(name="privateNumber")
     private String privateNumber;
 
+    /**
+     * 사용 중(IN_USE) 계좌 수. AccountUserRepository 의 조건부 UPDATE 로만 바꾼다.
+     * 엔티티 변경이 이 값을 덮어쓰지 않도록 updatable = false.
+     */
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private int activeAccountCount = 0;
+
     private LocalDateTime registeredAt;
     private LocalDateTime unRegisteredAt;
 
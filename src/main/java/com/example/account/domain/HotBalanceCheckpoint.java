@@ -0,0 +1,26 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * Redis 잔액 계좌의 journal 을 DB 에 어디까지 반영했는지. (계좌마다 한 행, 계좌와 같은 shard)
+ * 반영 후 journal 을 지우기 전에 죽어도 persistedSeq 이하 항목은 다시 저장하지 않는다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class HotBalanceCheckpoint {
+
+    @Id
+    private String accountNumber;
+
+    private Long persistedSeq;
+    private LocalDateTime persistedAt;
+}
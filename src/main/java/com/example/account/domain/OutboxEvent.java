@@ -0,0 +1,58 @@
+package com.example.account.domain;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 거래 저장과 같은 DB 트랜잭션에서 쌓는 발행 대기 이벤트. (transactional outbox)
+ * OutboxRelay 가 id 순서로 꺼내 발행한 뒤 삭제한다.
+ * id 는 노드마다 50개씩 미리 받은 블록에서 나오므로 커밋 순서와 다를 수 있다.
+ * eventSeq 는 계좌 row lock 아래에서 계좌 row 의 순번을 올려 받으므로 계좌별 커밋 순서이고 빈 번호가 없다.
+ * 소비자는 eventSeq 로 계좌별 순서와 빠진 이벤트를 확인한다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+
+    private String accountNumber;
+    private Long eventSeq;
+    private String transactionId;
+    private String linkedTransactionId;
+
+    @Enumerated(EnumType.STRING)
+    private TransactionType transactionType;
+    @Enumerated(EnumType.STRING)
+    private TransactionResultType transactionResultType;
+
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+    private LocalDateTime createdAt;
+
+    public static OutboxEvent from(Transaction transaction, Long eventSeq) {
+        return OutboxEvent.builder()
+                .accountNumber(transaction.getAccount().getAccountNumber())
+                .eventSeq(eventSeq)
+                .transactionId(transaction.getTransactionId())
+                .linkedTransactionId(transaction.getLinkedTransactionId())
+                .transactionType(transaction.getTransactionType())
+                .transactionResultType(transaction.getTransactionResultType())
+                .amount(transaction.getAmount())
+                .balanceSnapshot(transaction.getBalanceSnapshot())
+                .transactedAt(transaction.getTransactedAt())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
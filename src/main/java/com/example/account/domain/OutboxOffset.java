@@ -0,0 +1,26 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+/**
+ * relay 가 마지막으로 발행한 outbox 이벤트 id 와 누적 발행 건수. (DB 마다 한 행)
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+public class OutboxOffset {
+
+    @Id
+    private String name;
+
+    private Long lastEventId;
+    private Long deliveredCount;
+    private LocalDateTime deliveredAt;
+}
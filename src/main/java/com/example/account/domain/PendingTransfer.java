@@ -0,0 +1,34 @@
+package com.example.account.domain;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 다른 shard 로의 이체 중 출금만 커밋된 이체. (출금 계좌와 같은 shard, 출금 거래와 같은 트랜잭션으로 저장)
+ * 입금이 커밋되거나 출금을 되돌리면 지운다. 남아 있는 행은 PendingTransferSweeper 가 마무리한다.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(indexes = @Index(name = "idx_pending_transfer_created_at", columnList = "createdAt"))
+public class PendingTransfer {
+
+    @Id
+    private String transferOutTransactionId;
+
+    // transferOut 이 미리 만든 입금 거래 아이디. 입금은 이 아이디로 한 번만 저장된다.
+    private String transferInTransactionId;
+
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private Long amount;
+    private LocalDateTime createdAt;
+}
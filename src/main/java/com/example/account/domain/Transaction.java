@@ -17,23 +17,38 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder
 @Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(
+                name = "uk_transaction_transaction_id", columnNames = "transactionId"),
+        indexes = {
+                // 계좌별 거래 내역 keyset 페이지 조회용
+                @Index(name = "idx_transaction_account_transacted",
+                        columnList = "account_id, transactedAt desc, id desc"),
+                // 기간별 export 를 정렬 없이 순서대로 읽기 위함
+                @Index(name = "idx_transaction_transacted_at", columnList = "transactedAt, id")
+        }
+)
 @EntityListeners(AuditingEntityListener.class)
 public class Transaction {
-    // PK, Auto Increment
+    // PK, 시퀀스를 50개씩 미리 할당받아 insert 마다 시퀀스를 조회하지 않는다.
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
     private TransactionType transactionType;
     private TransactionResultType transactionResultType;
 
-    @ManyToOne
+    // 계좌가 필요한 조회만 fetch join / entity graph 로 함께 읽는다.
+    @ManyToOne(fetch = FetchType.LAZY)
     private Account account;
     private Long amount;
     private Long balanceSnapshot;
 
     private String transactionId;
+    // 이체 시 상대편 거래 아이디 (출금 <-> 입금)
+    private String linkedTransactionId;
     private LocalDateTime transactedAt;
 
     @CreatedDate
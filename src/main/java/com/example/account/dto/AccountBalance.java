@@ -0,0 +1,12 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class AccountBalance {
+    private Long accountId;
+    private Long accountUserId;
+    private Long balance;
+}
@@ -0,0 +1,34 @@
+package com.example.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 조건부 잔액 변경 결과.
+ * updatedRows 가 0 이면 조건(소유주, 상태, 잔액)을 만족하지 않아 변경되지 않은 것.
+ */
+@Getter
+@AllArgsConstructor
+public class BalanceUpdateResult {
+    private int updatedRows;
+    private Long accountId;
+    private Long accountUserId;
+    private Long balance;
+
+    public static BalanceUpdateResult notUpdated() {
+        return new BalanceUpdateResult(0, null, null, null);
+    }
+
+    public static BalanceUpdateResult of(int updatedRows, AccountBalance accountBalance) {
+        return new BalanceUpdateResult(
+                updatedRows,
+                accountBalance.getAccountId(),
+                accountBalance.getAccountUserId(),
+                accountBalance.getBalance()
+        );
+    }
+
+    public boolean isUpdated() {
+        return updatedRows > 0;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.account.dto;
+
+import com.example.account.domain.Transaction;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 거래 내역 다음 페이지 위치. 이전 페이지 마지막 거래의 (transactedAt, id) 를 base64url 로 감싼다.
+ */
+@Getter
+@AllArgsConstructor
+public class HistoryCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime transactedAt;
+    private Long id;
+
+    public static HistoryCursor from(Transaction transaction) {
+        return new HistoryCursor(transaction.getTransactedAt(), transaction.getId());
+    }
+
+    public String encode() {
+        String raw = transactedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new HistoryCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Redis 잔액 계좌 journal 의 한 항목.
+ * Lua script 가 "seq|type|amount|balance|transactionId|transactedAt(epoch ms)" 문자열로 쌓는다.
+ */
+@Getter
+@AllArgsConstructor
+@Builder
+public class HotBalanceEntry {
+    private static final String SEPARATOR = "\\|";
+
+    private long seq;
+    private TransactionType transactionType;
+    private long amount;
+    private long balance;
+    private String transactionId;
+    private LocalDateTime transactedAt;
+
+    public static HotBalanceEntry parse(String raw) {
+        String[] fields = raw.split(SEPARATOR);
+        return HotBalanceEntry.builder()
+                .seq(Long.parseLong(fields[0]))
+                .transactionType(TransactionType.valueOf(fields[1]))
+                .amount(Long.parseLong(fields[2]))
+                .balance(Long.parseLong(fields[3]))
+                .transactionId(fields[4])
+                .transactedAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(Long.parseLong(fields[5])), ZoneId.systemDefault()))
+                .build();
+    }
+
+    // 잔액 변화량 (사용은 -, 취소는 +)
+    public long delta() {
+        return transactionType == TransactionType.USE ? -amount : amount;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * 대량 가입 import.
+ * 입력은 한 줄에 사용자 하나 (NDJSON)
+ * {"name":"nyh","privateNumber":"900101-1234567","initialBalances":[1000,5000]}
+ */
+public class OnboardingImport {
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row{
+        private String name;
+        private String privateNumber;
+        private List<Long> initialBalances;
+    }
+
+    /**
+     * 실패 리포트 한 줄
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Failure{
+        private long line;
+        private String privateNumber;
+        private ErrorCode errorCode;
+        private String message;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Summary{
+        private long total;
+        private long succeeded;
+        private long failed;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.account.dto;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * sink 로 내보내는 거래 이벤트. 최소 한 번 전달되므로 소비하는 쪽은 transactionId 로 중복을 거른다.
+ * 계좌별 순서는 eventSeq(1 부터 빈 번호 없이 증가)로 정한다. eventId 는 순서와 무관하다.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxMessage {
+    private Long eventId;
+    private String accountNumber;
+    private Long eventSeq;
+    private String transactionId;
+    private String linkedTransactionId;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResultType;
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+
+    public static OutboxMessage fromEntity(OutboxEvent event) {
+        return OutboxMessage.builder()
+                .eventId(event.getId())
+                .accountNumber(event.getAccountNumber())
+                .eventSeq(event.getEventSeq())
+                .transactionId(event.getTransactionId())
+                .linkedTransactionId(event.getLinkedTransactionId())
+                .transactionType(event.getTransactionType())
+                .transactionResultType(event.getTransactionResultType())
+                .amount(event.getAmount())
+                .balanceSnapshot(event.getBalanceSnapshot())
+                .transactedAt(event.getTransactedAt())
+                .build();
+    }
+}
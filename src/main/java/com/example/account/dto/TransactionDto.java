@@ -20,16 +20,19 @@ public class TransactionDto {
     private Long amount;
     private Long balanceSnapshot;
     private String transactionId;
+    private String linkedTransactionId;
     private LocalDateTime transactedAt;
 
     public static TransactionDto fromEntity(Transaction transaction){
         return TransactionDto.builder()
+                .accountNumber(transaction.getAccount().getAccountNumber())
                 .transactionType(transaction.getTransactionType())
                 .transactionResultType(transaction.getTransactionResultType())
                 .amount(transaction.getAmount())
                 .balanceSnapshot(transaction.getBalanceSnapshot())
                 .transactionId(transaction.getTransactionId())
-                .transactedAt(LocalDateTime.now())
+                .linkedTransactionId(transaction.getLinkedTransactionId())
+                .transactedAt(transaction.getTransactedAt())
                 .build();
     }
 }
@@ -0,0 +1,26 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 거래 export 한 줄. 엔티티 대신 필요한 컬럼만 읽어 영속성 컨텍스트에 쌓이지 않게 한다.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionExportRow {
+    private String transactionId;
+    private String linkedTransactionId;
+    private String accountNumber;
+    private TransactionType transactionType;
+    private TransactionResultType transactionResultType;
+    private Long amount;
+    private Long balanceSnapshot;
+    private LocalDateTime transactedAt;
+}
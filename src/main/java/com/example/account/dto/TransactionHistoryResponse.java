@@ -0,0 +1,34 @@
+package com.example.account.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionHistoryResponse {
+    /**
+     * {
+     *  "transactions":[{"accountNumber":"1000000000", "transactionType":"USE", ...}],
+     *  "nextCursor":"MjAyMi0wNi0wMVQyMzoyNjoxNC42NzE4NTl8MTI",
+     *  "hasNext":true
+     * }
+     */
+    private List<QueryTransactionResponse> transactions;
+    private String nextCursor;
+    private boolean hasNext;
+
+    public static TransactionHistoryResponse from(TransactionHistoryDto transactionHistoryDto) {
+        return TransactionHistoryResponse.builder()
+                .transactions(transactionHistoryDto.getTransactions().stream()
+                        .map(QueryTransactionResponse::from)
+                        .collect(Collectors.toList()))
+                .nextCursor(transactionHistoryDto.getNextCursor())
+                .hasNext(transactionHistoryDto.getNextCursor() != null)
+                .build();
+    }
+}
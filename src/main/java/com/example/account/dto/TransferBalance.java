@@ -0,0 +1,79 @@
+package com.example.account.dto;
+
+import com.example.account.type.TransactionResultType;
+import lombok.*;
+
+import javax.validation.constraints.*;
+import java.time.LocalDateTime;
+
+public class TransferBalance {
+
+    /**
+     * {
+     *     "userId":1,
+     *     "fromAccountNumber":"1000000000",
+     *     "toAccountNumber":"1000000001",
+     *     "amount":1000
+     * }
+     */
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Request {
+        @NotNull
+        @Min(1)
+        private Long userId;
+
+        @NotBlank
+        @Size(min = 10, max = 10)
+        private String fromAccountNumber;
+
+        @NotBlank
+        @Size(min = 10, max = 10)
+        private String toAccountNumber;
+
+        @NotNull
+        @Min(10)
+        @Max(1000_000_000)
+        private Long amount;
+    }
+
+    /**
+     * {
+     *  "fromAccountNumber":"1000000000",
+     *  "toAccountNumber":"1000000001",
+     *  "transactionResult":"S",
+     *  "transactionId":"출금 거래 아이디",
+     *  "linkedTransactionId":"입금 거래 아이디",
+     *  "amount":1000,
+     *  "transactedAt":"2022-06-01T23:26:14.671859"
+     * }
+     */
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Response {
+        private String fromAccountNumber;
+        private String toAccountNumber;
+        private TransactionResultType transactionResult;
+        private String transactionId;
+        private String linkedTransactionId;
+        private Long amount;
+        private LocalDateTime transactedAt;
+
+        public static Response from(Request request, TransactionDto transactionDto) {
+            return Response.builder()
+                    .fromAccountNumber(request.getFromAccountNumber())
+                    .toAccountNumber(request.getToAccountNumber())
+                    .transactionResult(transactionDto.getTransactionResultType())
+                    .transactionId(transactionDto.getTransactionId())
+                    .linkedTransactionId(transactionDto.getLinkedTransactionId())
+                    .amount(transactionDto.getAmount())
+                    .transactedAt(transactionDto.getTransactedAt())
+                    .build();
+        }
+    }
+}
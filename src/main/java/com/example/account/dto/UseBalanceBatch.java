@@ -0,0 +1,82 @@
+package com.example.account.dto;
+
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import lombok.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class UseBalanceBatch {
+
+    /**
+     * {
+     *     "items":[
+     *         {"userId":1, "accountNumber":"1000000000", "amount":1000},
+     *         {"userId":1, "accountNumber":"1000000000", "amount":2000}
+     *     ]
+     * }
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Request {
+        @Valid
+        @NotEmpty
+        @Size(max = 1000)
+        private List<UseBalance.Request> items;
+    }
+
+    /**
+     * 요청 순서대로 건별 결과
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Response {
+        private List<Result> results;
+    }
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Result {
+        private String accountNumber;
+        private TransactionResultType transactionResult;
+        private String transactionId;
+        private Long amount;
+        private LocalDateTime transactedAt;
+        private ErrorCode errorCode;
+        private String errorMessage;
+
+        public static Result success(String accountNumber, TransactionDto transactionDto) {
+            return Result.builder()
+                    .accountNumber(accountNumber)
+                    .transactionResult(transactionDto.getTransactionResultType())
+                    .transactionId(transactionDto.getTransactionId())
+                    .amount(transactionDto.getAmount())
+                    .transactedAt(transactionDto.getTransactedAt())
+                    .build();
+        }
+
+        public static Result fail(
+                String accountNumber, Long amount, String transactionId, ErrorCode errorCode
+        ) {
+            return Result.builder()
+                    .accountNumber(accountNumber)
+                    .transactionResult(TransactionResultType.F)
+                    .transactionId(transactionId)
+                    .amount(amount)
+                    .errorCode(errorCode)
+                    .errorMessage(errorCode.getDescription())
+                    .build();
+        }
+    }
+}
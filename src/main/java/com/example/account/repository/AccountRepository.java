@@ -2,21 +2,127 @@ package com.example.account.repository;
 
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountBalance;
 import com.example.account.dto.AccountInfo;
+import com.example.account.dto.BalanceUpdateResult;
 import com.example.account.type.AccountStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 // Account Table 접근 위한 인터페이스
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (변경 메서드는 따로 @Transactional)
 @Repository
+@Transactional(readOnly = true)
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findFirstByOrderByIdDesc();
     Optional<Account> findByAccountUserAndAccountNumber(
             AccountUser accountUser, String accountNumber
     );
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    // 자릿수가 달라도 맞도록 숫자로 비교한다. 첫 번호 블록을 만들 때 한 번만 실행된다.
+    @Query("select max(cast(a.accountNumber as long)) from Account a")
+    Optional<Long> findMaxAccountNumber();
     List<AccountInfo> findByAccountUserAndAccountStatus(AccountUser accountUser, AccountStatus accountStatus);
+
+    /**
+     * 소유주가 맞고, 사용 중이고, 잔액이 충분할 때만 한 문장으로 차감한다.
+     * 변경된 row 는 커밋까지 DB row lock 이 걸려 있으므로 이어서 읽는 잔액은 이 차감의 결과이다.
+     */
+    default BalanceUpdateResult debitBalance(
+            Long userId, String accountNumber, Long amount, LocalDateTime now
+    ) {
+        int updatedRows = debitIfSufficient(userId, accountNumber, amount, now);
+        if (updatedRows == 0) {
+            return BalanceUpdateResult.notUpdated();
+        }
+        return BalanceUpdateResult.of(updatedRows, findBalanceByAccountNumber(accountNumber));
+    }
+
+    /**
+     * 계좌 id 와 계좌번호가 모두 일치할 때만 한 문장으로 입금한다.
+     */
+    default BalanceUpdateResult creditBalance(
+            Long accountId, String accountNumber, Long amount, LocalDateTime now
+    ) {
+        int updatedRows = credit(accountId, accountNumber, amount, now);
+        if (updatedRows == 0) {
+            return BalanceUpdateResult.notUpdated();
+        }
+        return BalanceUpdateResult.of(updatedRows, findBalanceByAccountNumber(accountNumber));
+    }
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a" +
+            " set a.balance = a.balance - :amount, a.version = a.version + 1, a.updatedAt = :now" +
+            " where a.accountNumber = :accountNumber" +
+            " and a.accountUser.id = :userId" +
+            " and a.accountStatus = com.example.account.type.AccountStatus.IN_USE" +
+            " and a.balance >= :amount")
+    int debitIfSufficient(
+            @Param("userId") Long userId,
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") Long amount,
+            @Param("now") LocalDateTime now
+    );
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a" +
+            " set a.balance = a.balance + :amount, a.version = a.version + 1, a.updatedAt = :now" +
+            " where a.id = :accountId and a.accountNumber = :accountNumber")
+    int credit(
+            @Param("accountId") Long accountId,
+            @Param("accountNumber") String accountNumber,
+            @Param("amount") Long amount,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * 잔액 차이만 더한다. 결과가 음수가 되면 바꾸지 않는다. (PARTITIONED 모드 group commit)
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a" +
+            " set a.balance = a.balance + :delta, a.version = a.version + 1, a.updatedAt = :now" +
+            " where a.id = :accountId and a.balance + :delta >= 0")
+    int addBalance(
+            @Param("accountId") Long accountId,
+            @Param("delta") Long delta,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * 계좌의 outbox 이벤트 순번을 count 개 예약하고 마지막 순번을 돌려준다.
+     * 계좌 row lock 을 커밋까지 잡으므로 같은 계좌의 순번은 커밋 순서대로 늘어난다.
+     * 증가와 조회가 같은 트랜잭션(primary)이어야 하므로 호출자의 트랜잭션이 없으면 실패한다.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    default long reserveEventSeq(Long accountId, long count) {
+        incrementEventSeq(accountId, count);
+        return findEventSeqById(accountId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Modifying(flushAutomatically = true)
+    @Query("update Account a set a.eventSeq = a.eventSeq + :count where a.id = :accountId")
+    int incrementEventSeq(@Param("accountId") Long accountId, @Param("count") long count);
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("select a.eventSeq from Account a where a.id = :accountId")
+    long findEventSeqById(@Param("accountId") Long accountId);
+
+    @Query("select new com.example.account.dto.AccountBalance(a.id, a.accountUser.id, a.balance)" +
+            " from Account a where a.accountNumber = :accountNumber")
+    AccountBalance findBalanceByAccountNumber(@Param("accountNumber") String accountNumber);
 }
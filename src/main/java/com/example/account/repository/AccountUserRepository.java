@@ -2,13 +2,65 @@ package com.example.account.repository;
 
 import com.example.account.domain.AccountUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (변경 메서드는 따로 @Transactional)
 @Repository
+@Transactional(readOnly = true)
 public interface AccountUserRepository extends JpaRepository<AccountUser, Long> {
     Optional<AccountUser> findByPrivateNumber(String privateNumber);
 
+    @Query("select u.privateNumber from AccountUser u where u.privateNumber in :privateNumbers")
+    List<String> findExistingPrivateNumbers(@Param("privateNumbers") Collection<String> privateNumbers);
+
+    /**
+     * Bloom filter 재구성용. 호출하는 쪽 트랜잭션 안에서 사용하고 반드시 close 한다.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.privateNumber from AccountUser u")
+    Stream<String> streamAllPrivateNumbers();
+
+    /**
+     * 사용 중 계좌 수가 max 미만일 때만 1 올린다. 0 이면 한도 초과.
+     * 같은 사용자 행을 갱신하므로 동시에 생성해도 한도를 넘지 않는다.
+     */
+    @Transactional
+    @Modifying
+    @Query("update AccountUser u set u.activeAccountCount = u.activeAccountCount + 1" +
+            " where u.id = :userId and u.activeAccountCount < :max")
+    int incrementActiveAccountCount(@Param("userId") Long userId, @Param("max") int max);
+
+    @Transactional
+    @Modifying
+    @Query("update AccountUser u set u.activeAccountCount = u.activeAccountCount - 1" +
+            " where u.id = :userId and u.activeAccountCount > 0")
+    int decrementActiveAccountCount(@Param("userId") Long userId);
+
+    /**
+     * 계좌 shard 에 같은 id 의 사용자 복사본을 만든다. (계좌의 FK 용, 계좌 수는 home shard 에서만 관리)
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into account_user (id, name, private_number, active_account_count, registered_at)" +
+            " values (:id, :name, :privateNumber, 0, :registeredAt)", nativeQuery = true)
+    int insertShardCopy(
+            @Param("id") Long id,
+            @Param("name") String name,
+            @Param("privateNumber") String privateNumber,
+            @Param("registeredAt") LocalDateTime registeredAt
+    );
+
 }
@@ -0,0 +1,12 @@
+package com.example.account.repository;
+
+import com.example.account.domain.HotBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (writer 는 자기 트랜잭션 안에서 호출)
+@Repository
+@Transactional(readOnly = true)
+public interface HotBalanceCheckpointRepository extends JpaRepository<HotBalanceCheckpoint, String> {
+}
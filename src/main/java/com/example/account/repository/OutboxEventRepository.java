@@ -0,0 +1,26 @@
+package com.example.account.repository;
+
+import com.example.account.domain.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (relay 는 자기 트랜잭션 안에서 호출)
+@Repository
+@Transactional(readOnly = true)
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 발행할 다음 묶음. PK 순서, 즉 대략 오래된 이벤트부터 읽는다.
+     * 계좌번호 순으로 읽으면 이벤트가 몰리는 앞 번호 계좌 때문에 뒤 번호 계좌가 계속 밀릴 수 있다.
+     */
+    @Query("select e from OutboxEvent e order by e.id")
+    List<OutboxEvent> findNextBatch(Pageable pageable);
+
+    Optional<OutboxEvent> findFirstByOrderByIdAsc();
+}
@@ -0,0 +1,29 @@
+package com.example.account.repository;
+
+import com.example.account.domain.PendingTransfer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (마무리 직전 primary 에서 다시 확인)
+@Repository
+@Transactional(readOnly = true)
+public interface PendingTransferRepository extends JpaRepository<PendingTransfer, String> {
+
+    List<PendingTransfer> findByCreatedAtBeforeOrderByCreatedAt(LocalDateTime createdAt, Pageable pageable);
+
+    /**
+     * 이체를 끝낸 쪽만 1 을 받는다. 행 lock 으로 입금 완료와 출금 되돌리기 중 하나만 성공한다.
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("delete from PendingTransfer p where p.transferOutTransactionId = :transferOutTransactionId")
+    int deleteByTransferOutTransactionId(@Param("transferOutTransactionId") String transferOutTransactionId);
+}
@@ -1,14 +1,93 @@
 package com.example.account.repository;
 
+import com.example.account.domain.Account;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionExportRow;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+// 조회 메서드는 readOnly 트랜잭션으로 실행되어 replica 로 간다. (변경 메서드는 따로 @Transactional)
 @Repository
+@Transactional(readOnly = true)
 public interface TransactionRepository
         extends JpaRepository<Transaction, Long> {
 
+    /**
+     * 취소 검증용. 계좌는 id 만 비교하므로 함께 읽지 않는다.
+     */
     Optional<Transaction> findByTransactionId(String transactionId);
+
+    /**
+     * 거래 조회 응답에 계좌번호가 필요하므로 계좌를 join 해서 한 번에 읽는다.
+     */
+    @EntityGraph(attributePaths = "account")
+    Optional<Transaction> findWithAccountByTransactionId(String transactionId);
+
+    /**
+     * 계좌 거래 내역 첫 페이지 (최신순)
+     */
+    @EntityGraph(attributePaths = "account")
+    @Query("select t from Transaction t" +
+            " where t.account = :account" +
+            " and (:transactionType is null or t.transactionType = :transactionType)" +
+            " and (:transactionResultType is null or t.transactionResultType = :transactionResultType)" +
+            " order by t.account.id, t.transactedAt desc, t.id desc")
+    List<Transaction> findHistory(
+            @Param("account") Account account,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("transactionResultType") TransactionResultType transactionResultType,
+            Pageable pageable
+    );
+
+    /**
+     * 계좌 거래 내역 다음 페이지. offset 없이 이전 페이지 마지막 (transactedAt, id) 뒤부터 읽는다.
+     * transactedAt <= 조건을 따로 두어 (account_id, transactedAt, id) 인덱스를 범위로 타고,
+     * 정렬도 인덱스 순서 그대로 읽어 페이지마다 size 건만 읽는다.
+     * (order by 의 account.id 는 조건이 = 라 결과에 영향이 없고, 인덱스 정렬을 쓰기 위해 둔다.)
+     */
+    @EntityGraph(attributePaths = "account")
+    @Query("select t from Transaction t" +
+            " where t.account = :account" +
+            " and (:transactionType is null or t.transactionType = :transactionType)" +
+            " and (:transactionResultType is null or t.transactionResultType = :transactionResultType)" +
+            " and t.transactedAt <= :transactedAt" +
+            " and (t.transactedAt < :transactedAt or t.id < :id)" +
+            " order by t.account.id, t.transactedAt desc, t.id desc")
+    List<Transaction> findHistoryAfter(
+            @Param("account") Account account,
+            @Param("transactionType") TransactionType transactionType,
+            @Param("transactionResultType") TransactionResultType transactionResultType,
+            @Param("transactedAt") LocalDateTime transactedAt,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * export 용 forward-only 커서. 호출하는 쪽 트랜잭션 안에서 사용하고 반드시 close 한다.
+     */
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.example.account.dto.TransactionExportRow(" +
+            " t.transactionId, t.linkedTransactionId, a.accountNumber, t.transactionType," +
+            " t.transactionResultType, t.amount, t.balanceSnapshot, t.transactedAt)" +
+            " from Transaction t join t.account a" +
+            " where t.transactedAt >= :from and t.transactedAt < :to" +
+            " order by t.transactedAt, t.id")
+    Stream<TransactionExportRow> streamForExport(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to
+    );
 }
@@ -0,0 +1,153 @@
+package com.example.account.service;
+
+import com.example.account.config.DataSourceRouteContext;
+import com.example.account.domain.AccountNumberBlock;
+import com.example.account.repository.AccountNumberBlockRepository;
+import com.example.account.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 계좌번호를 DB 에서 blockSize 개씩 빌려와 메모리에서 나눠준다.
+ * 블록은 account_number_block 행을 잠그고 nextValue 를 올려서 받으므로 노드가 여러 개여도 겹치지 않는다.
+ * 잠금을 기다린 뒤 이전 값을 읽는 DB(H2 1.4 등)도 있어 @Version 으로 한 번 더 확인하고, 충돌하면 다시 받는다.
+ * 블록 안에서는 lock 없이 AtomicLong 으로 발급하고, 블록을 다 쓴 경우에만 새 블록을 받는다.
+ * 노드가 재시작하면 남은 블록 번호는 버려진다. (번호 사이에 빈 곳이 생길 수 있음)
+ *
+ * 블록을 받을 때 별도 트랜잭션(커넥션)을 쓰므로 다른 트랜잭션 밖에서 호출한다.
+ * 블록 행은 home shard 에 있고, 첫 블록은 모든 shard 의 가장 큰 계좌번호 다음부터 시작한다.
+ */
+@Slf4j
+@Component
+public class AccountNumberAllocator {
+    private static final String BLOCK_NAME = "account_number";
+    private static final long FIRST_ACCOUNT_NUMBER = 1_000_000_000L;
+
+    private final AccountNumberBlockRepository accountNumberBlockRepository;
+    private final AccountRepository accountRepository;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+
+    public AccountNumberAllocator(
+            AccountNumberBlockRepository accountNumberBlockRepository,
+            AccountRepository accountRepository,
+            PlatformTransactionManager transactionManager,
+            ShardRouter shardRouter,
+            @Value("${account.account-number.block-size:100}") int blockSize
+    ) {
+        this.accountNumberBlockRepository = accountNumberBlockRepository;
+        this.accountRepository = accountRepository;
+        this.shardRouter = shardRouter;
+        // 계좌 생성 트랜잭션과 별개로 바로 커밋해 블록 행의 lock 을 짧게 잡는다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public String next() {
+        while (true) {
+            Block block = current.get();
+            long number = block.next.getAndIncrement();
+            if (number < block.end) {
+                return String.valueOf(number);
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        // 기다리는 사이 다른 thread 가 이미 새 블록을 받았으면 그대로 사용
+        if (current.get() == exhausted) {
+            current.set(lease());
+        }
+    }
+
+    private Block lease() {
+        long start;
+        try {
+            start = leaseStart();
+        } catch (DataIntegrityViolationException e) {
+            // 다른 노드가 동시에 첫 블록 행을 만든 경우 : 만들어진 행에서 다시 받는다.
+            start = leaseStart();
+        }
+        log.debug("Leased account numbers [{}, {})", start, start + blockSize);
+        return new Block(start, start + blockSize);
+    }
+
+    private long leaseStart() {
+        while (true) {
+            try {
+                return leaseStartOnce();
+            } catch (OptimisticLockingFailureException e) {
+                // 같은 nextValue 를 읽은 다른 노드가 먼저 커밋한 경우 : 다시 읽는다.
+                log.debug("Account number block lease conflict, retrying");
+            }
+        }
+    }
+
+    private long leaseStartOnce() {
+        return shardRouter.onHomeShard(() -> {
+            Long start = transactionTemplate.execute(status -> accountNumberBlockRepository
+                    .findForUpdate(BLOCK_NAME)
+                    .map(this::advance)
+                    .orElse(null));
+            if (start != null) {
+                return start;
+            }
+
+            // 첫 블록 : 트랜잭션 안에서는 shard 를 바꿀 수 없으므로 시작 번호를 먼저 구한다.
+            long initialValue = initialValue();
+            return transactionTemplate.execute(status -> advance(accountNumberBlockRepository.save(
+                    AccountNumberBlock.builder()
+                            .name(BLOCK_NAME)
+                            .nextValue(initialValue)
+                            .build())));
+        });
+    }
+
+    private long advance(AccountNumberBlock block) {
+        long leased = block.getNextValue();
+        block.setNextValue(leased + blockSize);
+        return leased;
+    }
+
+    /**
+     * 블록 행이 없을 때 모든 shard 의 계좌번호 중 가장 큰 번호 다음부터 시작한다.
+     * id 는 노드마다 미리 받은 블록에서 나오므로 마지막 id 의 계좌가 마지막으로 만든 계좌가 아닐 수 있다.
+     * 복제가 늦은 replica 에서 읽으면 이미 쓴 번호를 다시 줄 수 있으므로 primary 에서 읽는다.
+     */
+    private long initialValue() {
+        return shardRouter.collectFromAllShards(() -> DataSourceRouteContext.onPrimary(
+                        () -> accountRepository.findMaxAccountNumber()
+                                .map(Collections::singletonList)
+                                .orElse(Collections.emptyList())))
+                .stream()
+                .mapToLong(max -> max + 1)
+                .max()
+                .orElse(FIRST_ACCOUNT_NUMBER);
+    }
+
+    private static class Block {
+        private static final Block EMPTY = new Block(0, 0);
+
+        private final AtomicLong next;
+        private final long end;
+
+        private Block(long start, long end) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.account.service;
 
+import com.example.account.cache.AccountListCache;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountInfo;
@@ -9,48 +10,107 @@ import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 
 import static com.example.account.type.AccountStatus.IN_USE;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AccountService{
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
     private final AccountRepository accountRepository;
     private final AccountUserRepository accountUserRepository;
+    private final AccountListCache accountListCache;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final TransactionTemplate transactionTemplate;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ShardRouter shardRouter;
+    private final HotBalanceService hotBalanceService;
+    private final PartitionedBalanceEngine partitionedBalanceEngine;
     /**
      * 사용자가 있는지 조회
-     * 계좌의 번호를 생성하고
+     * 계좌의 번호를 발급받고 (AccountNumberAllocator)
      * 계좌를 저장하고, 그 정보를 넘긴다.
      * 해당 사용자가 10개 이상의 계좌를 가지고 있다면 생성이 불가하다.
      * 사용자가 10개 계좌를 가지고 있는 경우는 REGISTER 상태가 IN_USE 인 경우이다.
+     *
+     * 번호 블록을 새로 받을 때 DB 커넥션이 하나 더 필요하므로
+     * 계좌 저장 트랜잭션을 열기 전에 번호를 먼저 발급받는다. (커넥션 풀 고갈 방지)
+     * 계좌번호의 shard 가 home shard 가 아니면 createAccountOnShard 로 나눠 처리한다.
      */
-    @Transactional
     public Account createAccount(Long userId, Long initialBalance){
-        AccountUser accountUser = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
-
-        List<AccountInfo> accountList = accountRepository.findByAccountUserAndAccountStatus(accountUser, IN_USE);
-
-        validateCreateAccount(accountList);
-
-        String newAccountNumber = accountRepository.findFirstByOrderByIdDesc()
-                .map(account -> (Integer.parseInt(account.getAccountNumber())) + 1 + "")
-                .orElse("1000000000");
+        String newAccountNumber = accountNumberAllocator.next();
+        if (!shardRouter.isHomeShard(newAccountNumber)) {
+            return createAccountOnShard(userId, newAccountNumber, initialBalance);
+        }
+
+        return transactionTemplate.execute(status -> {
+            AccountUser accountUser = accountUserRepository.findById(userId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+
+            validateCreateAccount(userId);
+
+            Account account = accountRepository.save(
+                    Account.builder()
+                            .accountUser(accountUser)
+                            .accountStatus(IN_USE)
+                            .accountNumber(newAccountNumber)
+                            .balance(initialBalance)
+                            .registeredAt(LocalDateTime.now())
+                            .build()
+            );
+            accountListCache.evictAfterCommit(userId);
+
+            return account;
+        });
+    }
 
-        return accountRepository.save(
-                Account.builder()
-                        .accountUser(accountUser)
-                        .accountStatus(IN_USE)
-                        .accountNumber(newAccountNumber)
-                        .balance(initialBalance)
-                        .registeredAt(LocalDateTime.now())
-                        .build()
-        );
+    /**
+     * 두 DB 를 한 트랜잭션으로 묶을 수 없으므로 나눠서 처리한다.
+     * 1. home shard : 사용자 확인 + 사용 중 계좌 수 증가
+     * 2. 계좌 shard : 사용자 복사본이 없으면 만들고 계좌 저장 (계좌가 사용자를 FK 로 참조)
+     * 2가 실패하면 1에서 올린 계좌 수를 되돌린다.
+     */
+    private Account createAccountOnShard(Long userId, String accountNumber, Long initialBalance){
+        AccountUser accountUser = shardRouter.onHomeShard(() -> transactionTemplate.execute(status -> {
+            AccountUser user = accountUserRepository.findById(userId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+
+            validateCreateAccount(userId);
+            return user;
+        }));
+
+        try {
+            return shardRouter.onAccountShard(accountNumber, () -> transactionTemplate.execute(status -> {
+                if (!accountUserRepository.existsById(userId)) {
+                    accountUserRepository.insertShardCopy(userId, accountUser.getName(),
+                            accountUser.getPrivateNumber(), accountUser.getRegisteredAt());
+                }
+
+                Account account = accountRepository.save(
+                        Account.builder()
+                                .accountUser(accountUserRepository.getById(userId))
+                                .accountStatus(IN_USE)
+                                .accountNumber(accountNumber)
+                                .balance(initialBalance)
+                                .registeredAt(LocalDateTime.now())
+                                .build()
+                );
+                accountListCache.evictAfterCommit(userId);
+
+                return account;
+            }));
+        } catch (RuntimeException e) {
+            shardRouter.onHomeShard(() -> accountUserRepository.decrementActiveAccountCount(userId));
+            throw e;
+        }
     }
 
     /**
@@ -59,31 +119,63 @@ public class AccountService{
      * 사용자 아이디와 계좌 소유주가 다른 경우 ACCOUNT NOT FOUND
      * 계좌가 이미 해지 상태인 경우 ALREADY UNREGISTERED
      * 잔액이 있는 경우 EXISTS BALANCE
+     *
+     * 계좌가 home shard 에 없으면 계좌 shard 에서 해지를 커밋한 뒤 home shard 의 계좌 수를 내린다.
+     * PARTITIONED 모드에서는 계좌의 partition 에서 앞선 거래를 모두 커밋한 뒤 잔액을 확인한다.
      */
-    @Transactional
     public Account unRegisteredAccount(Long userId, String accountNumber){
+        // Redis 잔액 계좌는 DB 잔액이 최신이 아닐 수 있어 잔액 확인을 할 수 없다.
+        hotBalanceService.requireNotHot(accountNumber);
+        return partitionedBalanceEngine.runExclusive(accountNumber, () -> unRegisterAccount(userId, accountNumber));
+    }
+
+    private Account unRegisterAccount(Long userId, String accountNumber){
+        if (shardRouter.isHomeShard(accountNumber)) {
+            return transactionTemplate.execute(status -> {
+                Account account = unRegister(userId, accountNumber, ErrorCode.USER_NOT_FOUND);
+                accountUserRepository.decrementActiveAccountCount(userId);
+                return account;
+            });
+        }
+
+        if (!shardRouter.onHomeShard(() -> accountUserRepository.existsById(userId)))
+            throw new AccountException(ErrorCode.USER_NOT_FOUND);
+
+        // 사용자 복사본이 없으면 그 shard 에 이 사용자의 계좌가 없는 것
+        Account account = shardRouter.onAccountShard(accountNumber, () -> transactionTemplate.execute(
+                status -> unRegister(userId, accountNumber, ErrorCode.ACCOUNT_NOT_FOUND)));
+        try {
+            shardRouter.onHomeShard(() -> accountUserRepository.decrementActiveAccountCount(userId));
+        } catch (RuntimeException e) {
+            // 계좌 해지는 이미 커밋되었다. 계좌 수만 실제보다 하나 많게 남는다.
+            log.error("Failed to decrement active account count of user {}", userId, e);
+        }
+        return account;
+    }
+
+    private Account unRegister(Long userId, String accountNumber, ErrorCode userNotFound){
         AccountUser accountUser = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+                .orElseThrow(() -> new AccountException(userNotFound));
 
         Account account = accountRepository.findByAccountUserAndAccountNumber(accountUser, accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         validateUnRegister(account, userId);
 
-        return accountRepository.save(
-                Account.builder()
-                        .accountUser(accountUser)
-                        .accountStatus(AccountStatus.UNREGISTERED)
-                        .accountNumber(account.getAccountNumber())
-                        .balance(account.getBalance())
-                        .registeredAt(account.getRegisteredAt())
-                        .unRegisteredAt(LocalDateTime.now())
-                        .build()
-        );
+        // 계좌번호가 unique 이므로 새 row 를 만들지 않고 기존 계좌의 상태를 바꾼다.
+        account.setAccountStatus(AccountStatus.UNREGISTERED);
+        account.setUnRegisteredAt(LocalDateTime.now());
+        accountListCache.evictAfterCommit(userId);
+
+        return accountRepository.save(account);
     }
 
-    private void validateCreateAccount(List<AccountInfo> accountList){
-        if(accountList.size() == 10)
+    /**
+     * 사용 중 계좌 수를 조건부로 올려 한도를 확인한다.
+     * 계좌 저장이 롤백되면 증가도 함께 롤백된다.
+     */
+    private void validateCreateAccount(Long userId){
+        if(accountUserRepository.incrementActiveAccountCount(userId, MAX_ACCOUNT_PER_USER) == 0)
             throw new AccountException(ErrorCode.MAX_ACCOUNT_PER_USER_10);
     }
 
@@ -104,13 +196,19 @@ public class AccountService{
      *
      * 사용자가 없는 경우 USER NOT FOUND
      * 사용자 아이디와 사용자 상태가 IN_USE 인 계좌리스트 반환
+     * 캐시에 있으면 DB 를 조회하지 않도록 트랜잭션을 열지 않는다.
+     * 조회 메서드는 readOnly 라 replica 에서 읽고, 방금 변경한 사용자면 primary 에서 읽는다.
+     * 사용자는 home shard 에서 확인하고, 계좌는 모든 shard 에서 모은다.
      */
-    @Transactional
     public List<AccountInfo> getAccountList(Long userId){
-        AccountUser accountUser = accountUserRepository.findById(userId)
-                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
-
-        List<AccountInfo> accountList = accountRepository.findByAccountUserAndAccountStatus(accountUser, IN_USE);
+        List<AccountInfo> accountList = accountListCache.get(userId, () ->
+                readYourWritesTracker.read(userId, () -> {
+                    AccountUser accountUser = shardRouter.onHomeShard(() -> accountUserRepository.findById(userId))
+                            .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+
+                    return shardRouter.collectFromAllShards(() ->
+                            accountRepository.findByAccountUserAndAccountStatus(accountUser, IN_USE));
+                }));
         if (accountList.size() == 0)
             throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
 
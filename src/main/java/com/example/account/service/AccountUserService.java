@@ -5,39 +5,51 @@ import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountUserRepository;
 import com.example.account.type.ErrorCode;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
-import java.util.Optional;
 
 
 @Service
 @RequiredArgsConstructor
 public class AccountUserService{
     private final AccountUserRepository accountUserRepository;
+    private final PrivateNumberFilter privateNumberFilter;
 
     /**
      * 사용자 이름과 사용자 ID를 받는다.
      * 받은 사용자 이름과 동일한 사용자가 있는지 확인한다.
      * privateNumber 유효성을 검증한다.
+     * Bloom filter 에 없는 번호는 조회 없이 저장하고, 중복은 unique 제약으로 걸러낸다.
      */
     @Transactional
     public AccountUser createAccountUser(String name, String privateNumber){
 
-        Optional<AccountUser> accountUser = accountUserRepository.findByPrivateNumber(privateNumber);
-        if(accountUser.isPresent()){
+        if(privateNumberFilter.mightExist(privateNumber)
+                && accountUserRepository.findByPrivateNumber(privateNumber).isPresent()){
             throw new AccountException(ErrorCode.EXIST_SAME_PRIVATE_NUMBER);
         }
 
-        return accountUserRepository.save(
-                AccountUser.builder()
-                        .name(name)
-                        .privateNumber(privateNumber)
-                        .registeredAt(LocalDateTime.now())
-                        .build()
-        );
+        AccountUser accountUser;
+        try {
+            accountUser = accountUserRepository.saveAndFlush(
+                    AccountUser.builder()
+                            .name(name)
+                            .privateNumber(privateNumber)
+                            .registeredAt(LocalDateTime.now())
+                            .build()
+            );
+        } catch (DataIntegrityViolationException e) {
+            if (UniqueConstraints.isViolated(e, AccountUser.PRIVATE_NUMBER_CONSTRAINT)) {
+                throw new AccountException(ErrorCode.EXIST_SAME_PRIVATE_NUMBER);
+            }
+            throw e;
+        }
+        privateNumberFilter.add(privateNumber);
 
+        return accountUser;
     }
 
 }
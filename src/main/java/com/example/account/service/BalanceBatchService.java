@@ -0,0 +1,119 @@
+package com.example.account.service;
+
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.ErrorCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 여러 건의 잔액 사용 요청을 계좌번호별로 묶어서 처리한다.
+ * 계좌마다 lock 한 번, DB 트랜잭션 한 번으로 요청 순서대로 차감하고 거래는 batch insert 한다.
+ * PARTITIONED 모드에서는 lock 대신 계좌의 partition 에서 실행한다.
+ * lock lease 는 /use 와 같은 기본값에 계좌 묶음의 건수만큼 더해, 처리 중인 노드가 죽어도 오래 막히지 않게 한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceBatchService {
+    private static final long WAIT_TIME_MILLIS = 3_000L;
+    private static final long BASE_LEASE_TIME_MILLIS = 3_000L;
+    private static final long LEASE_TIME_MILLIS_PER_ITEM = 5L;
+
+    private final TransactionService transactionService;
+    private final LockService lockService;
+    private final OptimisticRetryService optimisticRetryService;
+    private final PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @Value("${account.concurrency.mode:REDIS_LOCK}")
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.REDIS_LOCK;
+
+    public UseBalanceBatch.Response useBalanceBatch(List<UseBalance.Request> items) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            groups.computeIfAbsent(items.get(i).getAccountNumber(), k -> new ArrayList<>()).add(i);
+        }
+
+        UseBalanceBatch.Result[] results = new UseBalanceBatch.Result[items.size()];
+        groups.forEach((accountNumber, indexes) -> {
+            List<UseBalance.Request> group = new ArrayList<>(indexes.size());
+            indexes.forEach(index -> group.add(items.get(index)));
+
+            List<UseBalanceBatch.Result> groupResults = useBalanceGroup(accountNumber, group);
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = groupResults.get(i);
+            }
+        });
+
+        return new UseBalanceBatch.Response(Arrays.asList(results));
+    }
+
+    private List<UseBalanceBatch.Result> useBalanceGroup(
+            String accountNumber, List<UseBalance.Request> group
+    ) {
+        try {
+            if (concurrencyMode == ConcurrencyMode.PARTITIONED) {
+                return partitionedBalanceEngine.runExclusive(accountNumber,
+                        () -> transactionService.useBalanceGroup(accountNumber, group));
+            }
+            if (concurrencyMode != ConcurrencyMode.REDIS_LOCK) {
+                // lock 없이 처리하는 모드에서는 계좌 @Version 충돌 시 그룹 전체를 재시도
+                return useBalanceGroupWithRetry(accountNumber, group);
+            }
+
+            lockService.lock(accountNumber, WAIT_TIME_MILLIS, leaseTimeMillis(group.size()), false);
+            try {
+                return transactionService.useBalanceGroup(accountNumber, group);
+            } finally {
+                lockService.unLock(accountNumber);
+            }
+        } catch (AccountException e) {
+            log.error("Failed to use balance batch for accountNumber : {}", accountNumber);
+            return failAll(accountNumber, group, e.getErrorCode());
+        } catch (RuntimeException e) {
+            log.error("Failed to use balance batch for accountNumber : {}", accountNumber, e);
+            return failAll(accountNumber, group, ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private List<UseBalanceBatch.Result> useBalanceGroupWithRetry(
+            String accountNumber, List<UseBalance.Request> group
+    ) {
+        try {
+            return castResults(optimisticRetryService.execute("useBalanceBatch",
+                    () -> transactionService.useBalanceGroup(accountNumber, group)));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static long leaseTimeMillis(int groupSize) {
+        return BASE_LEASE_TIME_MILLIS + LEASE_TIME_MILLIS_PER_ITEM * groupSize;
+    }
+
+    private List<UseBalanceBatch.Result> failAll(
+            String accountNumber, List<UseBalance.Request> group, ErrorCode errorCode
+    ) {
+        List<UseBalanceBatch.Result> results = new ArrayList<>(group.size());
+        group.forEach(item ->
+                results.add(UseBalanceBatch.Result.fail(accountNumber, item.getAmount(), null, errorCode)));
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<UseBalanceBatch.Result> castResults(Object results) {
+        return (List<UseBalanceBatch.Result>) results;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.dto.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * 파일 끝에 NDJSON(한 줄에 이벤트 하나)으로 덧붙인다.
+ * 묶음마다 한 번 write + fsync 한 뒤 반환하므로 outbox 에서 지운 이벤트는 디스크에 남아 있다.
+ */
+@Component
+@ConditionalOnProperty(name = "account.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+    private final ObjectWriter objectWriter;
+    private final FileChannel channel;
+
+    public FileOutboxSink(
+            ObjectMapper objectMapper,
+            @Value("${account.outbox.file.path:./outbox/transactions.ndjson}") String path
+    ) throws IOException {
+        this.objectWriter = objectMapper.writerFor(OutboxMessage.class);
+        Path file = Paths.get(path).toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxMessage> messages) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(messages.size() * 256);
+            for (OutboxMessage message : messages) {
+                objectWriter.writeValue(buffer, message);
+                buffer.write('\n');
+            }
+
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.account.service;
+
+import com.example.account.cache.TransactionCache;
+import com.example.account.domain.Account;
+import com.example.account.domain.HotBalanceCheckpoint;
+import com.example.account.dto.HotBalanceEntry;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.HotBalanceCheckpointRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * account.hot-balance.accounts 로 지정한 계좌의 잔액을 Redis 에서 관리한다.
+ *
+ * - 잔액 확인, 차감/입금, journal 추가를 Lua script 하나로 처리하므로 Redisson lock 과 DB row lock 이 필요 없다.
+ * - journal 은 계좌마다 Redis list 이고, HotBalanceWriter 가 묶음으로 DB 에 거래와 잔액을 반영한다.
+ *   (Redis stream 은 5.0 부터라 list 를 쓴다. 한 노드만 소비하므로 consumer group 이 필요 없다.)
+ * - 처음 사용할 때 DB 잔액과 반영된 seq 로 Redis 에 올린다. journal 이 남아 있으면 먼저 반영될 때까지 기다린다.
+ * - 조회 API 의 잔액과 거래 내역은 flush 주기만큼 늦게 보이고, 거래 단건 조회는 캐시에서 바로 보인다.
+ * - 이체 / 묶음 사용 / 해지는 지원하지 않는다. (HOT_BALANCE_UNSUPPORTED)
+ *
+ * Redis 가 journal 을 잃으면 반영 전 거래도 잃으므로 Redis 는 AOF(appendfsync everysec 이상)로 운영한다.
+ */
+@Slf4j
+@Service
+public class HotBalanceService {
+    private static final long NOT_LOADED = -1;
+    private static final long USER_UN_MATCH = -2;
+    private static final long INSUFFICIENT_BALANCE = -3;
+
+    // KEYS : 잔액 hash, journal / ARGV : 거래 종류, 사용자 id, 금액, 거래 아이디, 거래 시각(ms)
+    private static final String APPLY_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 0 then return {-1, '0'} end "
+            + "local amount = tonumber(ARGV[3]) "
+            + "local balance = tonumber(redis.call('hget', KEYS[1], 'balance')) "
+            + "if ARGV[1] == 'USE' then "
+            + "  if redis.call('hget', KEYS[1], 'userId') ~= ARGV[2] then return {-2, '0'} end "
+            + "  if balance < amount then return {-3, '0'} end "
+            + "  balance = balance - amount "
+            + "else "
+            + "  balance = balance + amount "
+            + "end "
+            + "balance = string.format('%d', balance) "
+            + "redis.call('hset', KEYS[1], 'balance', balance) "
+            + "local seq = redis.call('hincrby', KEYS[1], 'seq', 1) "
+            + "redis.call('rpush', KEYS[2], table.concat({seq, ARGV[1], ARGV[3], balance, ARGV[4], ARGV[5]}, '|')) "
+            + "return {seq, balance}";
+
+    // KEYS : 잔액 hash, journal / ARGV : 사용자 id, DB 잔액, 반영된 seq
+    private static final String LOAD_SCRIPT =
+            "if redis.call('exists', KEYS[1]) == 1 then return 1 end "
+            + "if redis.call('llen', KEYS[2]) > 0 then return -1 end "
+            + "redis.call('hmset', KEYS[1], 'userId', ARGV[1], 'balance', ARGV[2], 'seq', ARGV[3]) "
+            + "return 1";
+
+    private static final String SNAPSHOT_SCRIPT =
+            "return {redis.call('hget', KEYS[1], 'balance') or '', redis.call('lrange', KEYS[2], 0, -1)}";
+
+    private final RedissonClient redissonClient;
+    private final AccountRepository accountRepository;
+    private final AccountUserRepository accountUserRepository;
+    private final HotBalanceCheckpointRepository hotBalanceCheckpointRepository;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionCache transactionCache;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> accountNumbers;
+
+    public HotBalanceService(
+            RedissonClient redissonClient,
+            AccountRepository accountRepository,
+            AccountUserRepository accountUserRepository,
+            HotBalanceCheckpointRepository hotBalanceCheckpointRepository,
+            TransactionIdGenerator transactionIdGenerator,
+            TransactionCache transactionCache,
+            ShardRouter shardRouter,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.hot-balance.accounts:}") String accountNumbers
+    ) {
+        this.redissonClient = redissonClient;
+        this.accountRepository = accountRepository;
+        this.accountUserRepository = accountUserRepository;
+        this.hotBalanceCheckpointRepository = hotBalanceCheckpointRepository;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.transactionCache = transactionCache;
+        this.shardRouter = shardRouter;
+        // replica 가 아닌 primary 의 잔액으로 올린다.
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        Set<String> hotAccountNumbers = Arrays.stream(accountNumbers.split(","))
+                .map(String::trim)
+                .filter(accountNumber -> !accountNumber.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.accountNumbers = Collections.unmodifiableSet(hotAccountNumbers);
+    }
+
+    public boolean isEnabled() {
+        return !accountNumbers.isEmpty();
+    }
+
+    public boolean isHot(String accountNumber) {
+        return accountNumbers.contains(accountNumber);
+    }
+
+    public Set<String> getAccountNumbers() {
+        return accountNumbers;
+    }
+
+    public void requireNotHot(String... accountNumbers) {
+        for (String accountNumber : accountNumbers) {
+            if (isHot(accountNumber)) {
+                throw new AccountException(ErrorCode.HOT_BALANCE_UNSUPPORTED);
+            }
+        }
+    }
+
+    public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
+        return apply(TransactionType.USE, userId, accountNumber, amount);
+    }
+
+    /**
+     * 원 거래 검증은 호출하는 쪽(TransactionService.cancelBalance)에서 끝낸 뒤 호출한다.
+     */
+    public TransactionDto cancelBalance(String accountNumber, Long amount) {
+        if (amount < 0) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+        return apply(TransactionType.CANCEL, null, accountNumber, amount);
+    }
+
+    public List<String> readJournal(String accountNumber, int size) {
+        return redissonClient.<String>getList(journalKey(accountNumber), StringCodec.INSTANCE)
+                .range(0, size - 1);
+    }
+
+    // journal 앞쪽 size 개를 지운다. 뒤에 쌓이는 항목은 건드리지 않는다.
+    public void trimJournal(String accountNumber, int size) {
+        redissonClient.getList(journalKey(accountNumber), StringCodec.INSTANCE)
+                .trim(size, -1);
+    }
+
+    /**
+     * Redis 잔액과 journal 전체를 한 번에 읽는다. 아직 Redis 에 올라가지 않았으면 balance 는 null.
+     */
+    public Snapshot snapshot(String accountNumber) {
+        List<Object> result = redissonClient.getScript(StringCodec.INSTANCE).eval(
+                RScript.Mode.READ_ONLY, SNAPSHOT_SCRIPT, RScript.ReturnType.MULTI,
+                keys(accountNumber));
+
+        String balance = String.valueOf(result.get(0));
+        @SuppressWarnings("unchecked")
+        List<Object> journal = (List<Object>) result.get(1);
+        return new Snapshot(
+                balance.isEmpty() ? null : Long.parseLong(balance),
+                journal.stream()
+                        .map(entry -> HotBalanceEntry.parse(String.valueOf(entry)))
+                        .collect(Collectors.toList()));
+    }
+
+    private TransactionDto apply(
+            TransactionType transactionType, Long userId, String accountNumber, Long amount
+    ) {
+        String transactionId = transactionIdGenerator.generate();
+        long transactedAtMillis = System.currentTimeMillis();
+
+        List<Object> result = eval(transactionType, userId, accountNumber, amount,
+                transactionId, transactedAtMillis);
+        if (code(result) == NOT_LOADED) {
+            load(accountNumber);
+            result = eval(transactionType, userId, accountNumber, amount,
+                    transactionId, transactedAtMillis);
+        }
+
+        long code = code(result);
+        if (code == USER_UN_MATCH) {
+            throw new AccountException(accountUserRepository.existsById(userId)
+                    ? ErrorCode.USER_ACCOUNT_UN_MATCH
+                    : ErrorCode.USER_NOT_FOUND);
+        }
+        if (code == INSUFFICIENT_BALANCE) {
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        if (code == NOT_LOADED) {
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        TransactionDto transactionDto = TransactionDto.builder()
+                .accountNumber(accountNumber)
+                .transactionType(transactionType)
+                .transactionResultType(TransactionResultType.S)
+                .amount(amount)
+                .balanceSnapshot(Long.parseLong(String.valueOf(result.get(1))))
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(transactedAtMillis), ZoneId.systemDefault()))
+                .build();
+        // DB 에 반영되기 전에도 거래 단건 조회가 되도록 바로 넣는다.
+        transactionCache.put(transactionDto);
+        return transactionDto;
+    }
+
+    private List<Object> eval(
+            TransactionType transactionType, Long userId, String accountNumber, Long amount,
+            String transactionId, long transactedAtMillis
+    ) {
+        return redissonClient.getScript(StringCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE, APPLY_SCRIPT, RScript.ReturnType.MULTI,
+                keys(accountNumber),
+                transactionType.name(), String.valueOf(userId), String.valueOf(amount),
+                transactionId, String.valueOf(transactedAtMillis));
+    }
+
+    /**
+     * DB 의 사용 중인 계좌를 Redis 에 올린다. 다른 노드가 먼저 올렸으면 그대로 둔다.
+     * 반영되지 않은 journal 이 남아 있으면 올리지 않는다. (DB 잔액이 최신이 아님)
+     */
+    private void load(String accountNumber) {
+        Object[] values = shardRouter.onAccountShard(accountNumber, () -> transactionTemplate.execute(status -> {
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+            if (account.getAccountStatus() != AccountStatus.IN_USE) {
+                throw new AccountException(ErrorCode.ALREADY_UNREGISTERED);
+            }
+
+            long persistedSeq = hotBalanceCheckpointRepository.findById(accountNumber)
+                    .map(HotBalanceCheckpoint::getPersistedSeq)
+                    .orElse(0L);
+            return new Object[]{
+                    String.valueOf(account.getAccountUser().getId()),
+                    String.valueOf(account.getBalance()),
+                    String.valueOf(persistedSeq)};
+        }));
+
+        Long loaded = redissonClient.getScript(StringCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE, LOAD_SCRIPT, RScript.ReturnType.INTEGER,
+                keys(accountNumber), values);
+        if (loaded < 0) {
+            log.warn("Hot balance of {} is waiting for journal to be persisted", accountNumber);
+        }
+    }
+
+    private static long code(List<Object> result) {
+        return Long.parseLong(String.valueOf(result.get(0)));
+    }
+
+    // 같은 계좌의 두 key 가 cluster 에서도 같은 slot 에 가도록 계좌번호를 hash tag 로 쓴다.
+    private static List<Object> keys(String accountNumber) {
+        return Arrays.asList("HOTB: {" + accountNumber + "}", journalKey(accountNumber));
+    }
+
+    private static String journalKey(String accountNumber) {
+        return "HOTB_JOURNAL: {" + accountNumber + "}";
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+        private final Long balance;
+        private final List<HotBalanceEntry> journal;
+    }
+}
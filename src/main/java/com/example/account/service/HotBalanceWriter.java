@@ -0,0 +1,303 @@
+package com.example.account.service;
+
+import com.example.account.cache.AccountListCache;
+import com.example.account.domain.Account;
+import com.example.account.domain.HotBalanceCheckpoint;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.HotBalanceEntry;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.HotBalanceCheckpointRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Redis 잔액 계좌의 journal 을 묶음으로 DB 에 반영하는 배경 thread. (write-behind)
+ *
+ * - 여러 노드 중 Redisson lock 을 잡은 한 노드만 반영한다.
+ * - 한 묶음은 계좌 shard 의 한 트랜잭션이다 : 거래 저장 + outbox + 계좌 잔액 + checkpoint(seq).
+ *   커밋 후 journal 을 지우기 전에 죽으면 다음 반영에서 checkpoint 이하 항목을 건너뛴다.
+ * - 시작하면 바로 남은 journal 부터 반영한다. (재시작 복구)
+ * - reconcile-interval 마다 DB 잔액 + 미반영 journal 합이 Redis 잔액과 같은지 확인한다.
+ *
+ * 지표 : account.hot-balance.persisted, account.hot-balance.failures,
+ *        account.hot-balance.reconcile.mismatches
+ */
+@Slf4j
+@Service
+public class HotBalanceWriter {
+    private static final String LOCK_KEY = "HOTB: writer";
+    private static final int MAX_BATCHES_PER_FLUSH = 20;
+
+    private final HotBalanceService hotBalanceService;
+    private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
+    private final HotBalanceCheckpointRepository hotBalanceCheckpointRepository;
+    private final OutboxService outboxService;
+    private final AccountListCache accountListCache;
+    private final RedissonClient redissonClient;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long reconcileIntervalMillis;
+    private final long leaseMillis;
+
+    private final Counter persisted;
+    private final Counter failures;
+    private final Counter mismatches;
+    private ExecutorService executor;
+
+    public HotBalanceWriter(
+            HotBalanceService hotBalanceService,
+            TransactionRepository transactionRepository,
+            AccountRepository accountRepository,
+            HotBalanceCheckpointRepository hotBalanceCheckpointRepository,
+            OutboxService outboxService,
+            AccountListCache accountListCache,
+            RedissonClient redissonClient,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.hot-balance.batch-size:500}") int batchSize,
+            @Value("${account.hot-balance.flush-interval-millis:50}") long flushIntervalMillis,
+            @Value("${account.hot-balance.reconcile-interval-millis:60000}") long reconcileIntervalMillis,
+            @Value("${account.hot-balance.lease-millis:30000}") long leaseMillis
+    ) {
+        this.hotBalanceService = hotBalanceService;
+        this.transactionRepository = transactionRepository;
+        this.accountRepository = accountRepository;
+        this.hotBalanceCheckpointRepository = hotBalanceCheckpointRepository;
+        this.outboxService = outboxService;
+        this.accountListCache = accountListCache;
+        this.redissonClient = redissonClient;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.reconcileIntervalMillis = reconcileIntervalMillis;
+        this.leaseMillis = leaseMillis;
+        this.persisted = meterRegistry.counter("account.hot-balance.persisted");
+        this.failures = meterRegistry.counter("account.hot-balance.failures");
+        this.mismatches = meterRegistry.counter("account.hot-balance.reconcile.mismatches");
+    }
+
+    // 스키마(shard 복사 포함)가 모두 준비된 뒤에 시작한다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!hotBalanceService.isEnabled() || executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-balance-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::run);
+        log.info("Hot balance writer started : {}", hotBalanceService.getAccountNumbers());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        try {
+            // 종료 전에 쌓인 journal 을 한 번 더 반영한다. (실패해도 다음 기동 때 반영)
+            flushOnce();
+        } catch (RuntimeException e) {
+            log.warn("Hot balance flush on shutdown failed", e);
+        }
+    }
+
+    /**
+     * leader lock 을 잡으면 모든 Redis 잔액 계좌의 journal 을 DB 에 반영한다.
+     *
+     * @return 새로 저장한 거래 수 (lock 을 못 잡으면 0)
+     */
+    public long flushOnce() {
+        return withLeaderLock(() -> hotBalanceService.getAccountNumbers().stream()
+                .mapToLong(this::drain)
+                .sum());
+    }
+
+    /**
+     * DB 잔액 + 반영되지 않은 journal 의 합이 Redis 잔액과 다른 계좌를 찾는다.
+     * 반영과 같은 lock 안에서 DB 를 먼저 읽으므로 그 사이 새 거래는 journal 에만 더해진다.
+     *
+     * @return 불일치 계좌 수
+     */
+    public long reconcile() {
+        return withLeaderLock(() -> hotBalanceService.getAccountNumbers().stream()
+                .filter(accountNumber -> !reconcile(accountNumber))
+                .count());
+    }
+
+    private void run() {
+        long nextReconcileAt = System.currentTimeMillis() + reconcileIntervalMillis;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                flushOnce();
+                if (System.currentTimeMillis() >= nextReconcileAt) {
+                    reconcile();
+                    nextReconcileAt = System.currentTimeMillis() + reconcileIntervalMillis;
+                }
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Hot balance writer failed", e);
+            }
+        }
+    }
+
+    private long withLeaderLock(LongSupplier work) {
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        try {
+            if (!lock.tryLock(0, leaseMillis, TimeUnit.MILLISECONDS)) {
+                return 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+
+        try {
+            return work.getAsLong();
+        } finally {
+            try {
+                lock.unlock();
+            } catch (Exception e) {
+                log.warn("Hot balance writer unlock failed", e);
+            }
+        }
+    }
+
+    private long drain(String accountNumber) {
+        long total = 0;
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_FLUSH; i++) {
+                List<String> raw = hotBalanceService.readJournal(accountNumber, batchSize);
+                if (raw.isEmpty()) {
+                    break;
+                }
+
+                List<HotBalanceEntry> entries = raw.stream()
+                        .map(HotBalanceEntry::parse)
+                        .collect(Collectors.toList());
+                total += shardRouter.onAccountShard(accountNumber,
+                        () -> transactionTemplate.execute(status -> persist(accountNumber, entries)));
+                hotBalanceService.trimJournal(accountNumber, raw.size());
+
+                if (raw.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Hot balance persist failed for {}, retrying on next flush", accountNumber, e);
+        }
+        persisted.increment(total);
+        return total;
+    }
+
+    private long persist(String accountNumber, List<HotBalanceEntry> entries) {
+        long persistedSeq = persistedSeq(accountNumber);
+        List<HotBalanceEntry> pending = entries.stream()
+                .filter(entry -> entry.getSeq() > persistedSeq)
+                .collect(Collectors.toList());
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        List<Transaction> transactions = pending.stream()
+                .map(entry -> Transaction.builder()
+                        .transactionType(entry.getTransactionType())
+                        .transactionResultType(TransactionResultType.S)
+                        .account(account)
+                        .amount(entry.getAmount())
+                        .balanceSnapshot(entry.getBalance())
+                        .transactionId(entry.getTransactionId())
+                        .transactedAt(entry.getTransactedAt())
+                        .build())
+                .collect(Collectors.toList());
+        transactionRepository.saveAll(transactions);
+        outboxService.append(transactions);
+
+        HotBalanceEntry last = pending.get(pending.size() - 1);
+        account.setBalance(last.getBalance());
+        hotBalanceCheckpointRepository.save(HotBalanceCheckpoint.builder()
+                .accountNumber(accountNumber)
+                .persistedSeq(last.getSeq())
+                .persistedAt(LocalDateTime.now())
+                .build());
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
+        return pending.size();
+    }
+
+    private boolean reconcile(String accountNumber) {
+        AtomicLong dbBalance = new AtomicLong();
+        AtomicLong persistedSeq = new AtomicLong();
+        boolean found = shardRouter.onAccountShard(accountNumber, () -> transactionTemplate.execute(status -> {
+            persistedSeq.set(persistedSeq(accountNumber));
+            return accountRepository.findByAccountNumber(accountNumber)
+                    .map(account -> {
+                        dbBalance.set(account.getBalance());
+                        return true;
+                    })
+                    .orElse(false);
+        }));
+
+        HotBalanceService.Snapshot snapshot = hotBalanceService.snapshot(accountNumber);
+        if (!found || snapshot.getBalance() == null) {
+            // 아직 Redis 에 올라가지 않은 계좌
+            return true;
+        }
+
+        long expected = dbBalance.get() + snapshot.getJournal().stream()
+                .filter(entry -> entry.getSeq() > persistedSeq.get())
+                .mapToLong(HotBalanceEntry::delta)
+                .sum();
+        if (expected != snapshot.getBalance()) {
+            mismatches.increment();
+            log.error("Hot balance mismatch for {} : redis {}, db + journal {}",
+                    accountNumber, snapshot.getBalance(), expected);
+            return false;
+        }
+        return true;
+    }
+
+    private long persistedSeq(String accountNumber) {
+        return hotBalanceCheckpointRepository.findById(accountNumber)
+                .map(HotBalanceCheckpoint::getPersistedSeq)
+                .orElse(0L);
+    }
+}
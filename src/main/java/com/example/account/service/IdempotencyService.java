@@ -0,0 +1,120 @@
+package com.example.account.service;
+
+import com.example.account.cache.LocalLruCache;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Idempotency-Key 별 첫 응답(JSON)을 저장한다.
+ * 노드 내부 LRU 캐시를 먼저 보고, 없으면 Redis 에서 다른 노드가 저장한 응답을 찾는다.
+ * 처리 중인 키는 Redis 에 IN_PROGRESS 표시를 남겨 동시에 들어온 재시도를 막는다.
+ * 응답은 요청 body hash 와 함께 저장하고, 같은 키에 다른 body 가 오면 IDEMPOTENCY_KEY_REUSED.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    private static final String IN_PROGRESS = "__IN_PROGRESS__";
+    // 저장 형식 : "{요청 hash}\n{응답 JSON}"
+    private static final char HASH_SEPARATOR = '\n';
+
+    private final RedissonClient redissonClient;
+    private final LocalLruCache<String, String> localCache;
+    private final long ttlMillis;
+    private final long inProgressTtlMillis;
+
+    public IdempotencyService(
+            RedissonClient redissonClient,
+            @Value("${account.idempotency.local-max-size:10000}") int localMaxSize,
+            @Value("${account.idempotency.local-ttl-millis:600000}") long localTtlMillis,
+            @Value("${account.idempotency.ttl-millis:86400000}") long ttlMillis,
+            @Value("${account.idempotency.in-progress-ttl-millis:30000}") long inProgressTtlMillis
+    ) {
+        this.redissonClient = redissonClient;
+        this.localCache = new LocalLruCache<>(localMaxSize, localTtlMillis);
+        this.ttlMillis = ttlMillis;
+        this.inProgressTtlMillis = inProgressTtlMillis;
+    }
+
+    /**
+     * 저장된 응답이 있으면 돌려주고, 없으면 키를 처리 중으로 표시한다.
+     * 다른 요청이 같은 키를 처리 중이면 IDEMPOTENCY_KEY_IN_PROGRESS,
+     * 저장된 응답의 요청 hash 가 다르면 IDEMPOTENCY_KEY_REUSED.
+     */
+    public Optional<String> begin(String key, String requestHash) {
+        Optional<String> cached = localCache.get(key);
+        if (cached.isPresent()) {
+            return Optional.of(responseOf(cached.get(), requestHash));
+        }
+
+        try {
+            RBucket<String> bucket = getBucket(key);
+            if (bucket.trySet(IN_PROGRESS, inProgressTtlMillis, TimeUnit.MILLISECONDS)) {
+                return Optional.empty();
+            }
+
+            String stored = bucket.get();
+            if (stored == null) {
+                // 확인하는 사이 만료된 경우
+                return bucket.trySet(IN_PROGRESS, inProgressTtlMillis, TimeUnit.MILLISECONDS)
+                        ? Optional.empty() : begin(key, requestHash);
+            }
+            if (IN_PROGRESS.equals(stored)) {
+                throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS);
+            }
+            localCache.put(key, stored);
+            return Optional.of(responseOf(stored, requestHash));
+        } catch (AccountException e) {
+            throw e;
+        } catch (Exception e) {
+            // Redis 장애 시에는 노드 내부 캐시만으로 중복을 걸러낸다.
+            log.error("Redis idempotency lookup failed", e);
+            return Optional.empty();
+        }
+    }
+
+    public void complete(String key, String requestHash, String response) {
+        String stored = requestHash + HASH_SEPARATOR + response;
+        localCache.put(key, stored);
+        try {
+            getBucket(key).set(stored, ttlMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("Redis idempotency save failed", e);
+        }
+    }
+
+    /**
+     * 응답을 저장하지 못하고 끝난 요청의 처리 중 표시를 지운다.
+     */
+    public void release(String key) {
+        try {
+            getBucket(key).compareAndSet(IN_PROGRESS, null);
+        } catch (Exception e) {
+            log.error("Redis idempotency release failed", e);
+        }
+    }
+
+    private String responseOf(String stored, String requestHash) {
+        int separator = stored.indexOf(HASH_SEPARATOR);
+        if (separator < 0) {
+            // hash 없이 저장된 이전 형식
+            return stored;
+        }
+        if (!stored.substring(0, separator).equals(requestHash)) {
+            throw new AccountException(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        }
+        return stored.substring(separator + 1);
+    }
+
+    private RBucket<String> getBucket(String key) {
+        return redissonClient.getBucket("IDEM: " + key, StringCodec.INSTANCE);
+    }
+}
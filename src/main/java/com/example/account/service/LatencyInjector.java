@@ -0,0 +1,58 @@
+package com.example.account.service;
+
+import com.example.account.type.LatencyPoint;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * lock 경합 테스트용 지연 주입.
+ * fault-injection 프로필이 켜져 있을 때만 fault-injection.latency.* (ms) 만큼 지연시킨다.
+ */
+@Slf4j
+@Component
+public class LatencyInjector {
+    public static final String PROFILE = "fault-injection";
+
+    private final Map<LatencyPoint, Long> delays = new EnumMap<>(LatencyPoint.class);
+
+    public LatencyInjector(Environment environment) {
+        if (environment.acceptsProfiles(Profiles.of(PROFILE))) {
+            for (LatencyPoint point : LatencyPoint.values()) {
+                long delay = environment.getProperty(propertyName(point), Long.class, 0L);
+                if (delay > 0) {
+                    delays.put(point, delay);
+                    log.warn("Fault injection enabled : {} {}ms", point, delay);
+                }
+            }
+        }
+    }
+
+    public long getDelayMillis(LatencyPoint point) {
+        return delays.getOrDefault(point, 0L);
+    }
+
+    /**
+     * 현재 thread 를 멈춘다. lock 이나 DB 트랜잭션을 잡고 있는 구간을 늘리는 용도.
+     */
+    public void pause(LatencyPoint point) {
+        long delay = getDelayMillis(point);
+        if (delay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String propertyName(LatencyPoint point) {
+        return "fault-injection.latency." + point.name().toLowerCase().replace('_', '-');
+    }
+}
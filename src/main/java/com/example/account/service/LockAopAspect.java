@@ -1,11 +1,15 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.aop.AccountLockIdInterface;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.LatencyPoint;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Aspect
@@ -15,14 +19,46 @@ import org.springframework.stereotype.Component;
 public class LockAopAspect {
 
     private final LockService lockService;
-    @Around("@annotation(com.example.account.aop.AccountLock) && args(request)" )
+    private final OptimisticRetryService optimisticRetryService;
+    private final LatencyInjector latencyInjector;
+    private final HotBalanceService hotBalanceService;
+
+    @Value("${account.concurrency.mode:REDIS_LOCK}")
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.REDIS_LOCK;
+
+    @Around("@annotation(accountLock) && args(request, ..)" )
     public Object aroundMethod(
         ProceedingJoinPoint pjp,
+        AccountLock accountLock,
         AccountLockIdInterface request
     )throws Throwable{
+        if (hotBalanceService.isHot(request.getAccountNumber())) {
+            // 잔액 검증과 변경이 Redis Lua script 하나라 lock 이 필요 없다.
+            return pjp.proceed();
+        }
+        if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+            // Redis lock 없이 버전 충돌 시 재시도
+            return optimisticRetryService.execute(
+                    pjp.getSignature().getName(), pjp::proceed);
+        }
+        if (concurrencyMode == ConcurrencyMode.ATOMIC_UPDATE) {
+            // 잔액 검증과 변경이 조건부 UPDATE 한 문장이라 lock 이 필요 없다.
+            return pjp.proceed();
+        }
+        if (concurrencyMode == ConcurrencyMode.PARTITIONED) {
+            // 계좌의 명령을 partition thread 하나가 순서대로 처리하므로 lock 이 필요 없다.
+            return pjp.proceed();
+        }
+
         // lock 획득 시도
-        lockService.lock(request.getAccountNumber());
+        lockService.lock(
+                request.getAccountNumber(),
+                accountLock.tryLockTime(),
+                accountLock.leaseTime(),
+                accountLock.fair()
+        );
         try{
+            latencyInjector.pause(LatencyPoint.INSIDE_LOCK);
             return pjp.proceed();
         }finally {
             // lock 해제
@@ -8,39 +8,273 @@ import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
+/**
+ * 계좌 lock 은 2단계로 잡는다.
+ * 1. 노드 내부 계좌별 lock : 같은 노드의 요청은 계좌번호별로 로컬에서 줄을 선다.
+ *    계좌별 lock 은 잡거나 기다리는 요청이 있는 동안만 참조 수로 유지하고, 아무도 없으면 지운다.
+ * 2. Redisson RLock : 로컬 줄의 맨 앞 요청만 Redis 에 lock 을 요청한다.
+ * 로컬에 같은 계좌를 기다리는 요청이 있으면 RLock 을 풀지 않고 다음 요청에 넘겨준다.
+ * 남은 lease 가 넘겨받는 요청의 leaseTime 보다 짧으면 넘겨줄 때 lease 를 늘린다.
+ * 넘겨받을 요청이 모두 포기하면 마지막으로 참조를 놓는 쪽이 RLock 을 반납한다.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class LockService {
+    private static final long WAIT_TIME_MILLIS = 1_000L;
+    private static final long LEASE_TIME_MILLIS = 15_000L;
+    // Redisson 은 lock 소유자를 thread id 로 구분하므로
+    // 실제 thread id 와 겹치지 않는 음수 id 를 계좌별 lock 의 소유자로 사용한다.
+    private static final AtomicLong OWNER_IDS = new AtomicLong();
+
     private final RedissonClient redissonClient;
+    private final ConcurrentHashMap<String, LocalLock> localLocks = new ConcurrentHashMap<>();
 
     public String lock(String accountNumber){
-        RLock lock = redissonClient.getLock(getLockKey(accountNumber));
+        return lock(accountNumber, WAIT_TIME_MILLIS, LEASE_TIME_MILLIS, false);
+    }
+
+    /**
+     * waitTime 안에 lock 을 얻지 못하면 ACCOUNT_TRANSACTION_LOCK.
+     * leaseTime 이 지나면 unlock 하지 않아도 Redis 에서 lock 이 풀린다.
+     * 같은 계좌를 잠그는 곳들은 fair 설정이 같아야 한다.
+     */
+    public String lock(String accountNumber, long waitTimeMillis, long leaseTimeMillis, boolean fair){
+        LocalLock localLock = reference(accountNumber);
         log.debug("Trying lock for accountNumber : {}", accountNumber);
 
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeMillis);
+        if (!localLock.tryLock(waitTimeMillis)) {
+            dereference(accountNumber, localLock);
+            log.error("======Local lock acquisition failed======");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
         try {
-            boolean isLock = lock.tryLock(1, 15, TimeUnit.SECONDS);
-            if (!isLock) {
-                log.error("======Lock acquisition failed======");
-                throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
-            }
-        }catch(AccountException e){
+            acquireRemote(localLock, accountNumber, deadline, leaseTimeMillis, fair);
+        } catch (AccountException e) {
+            unLock(accountNumber);
             throw e;
-        }catch(Exception e){
-            log.error("Redis lock failed");
+        } catch (Exception e) {
+            // Redis 장애 시에도 같은 노드 안에서의 상호배제는 로컬 lock 으로 유지된다.
+            log.error("Redis lock failed", e);
         }
 
         return "Lock success";
     }
 
-    private String getLockKey(String accountNumber) {
-        return "ACLK: " + accountNumber;
+    /**
+     * 여러 계좌를 항상 같은 순서(계좌번호)로 잠근다.
+     * 로컬 lock 과 Redis lock 모두 같은 순서로 잡히므로 A→B, B→A 가 교차해도 교착이 생기지 않는다.
+     * 중간에 실패하면 이미 잡은 lock 을 풀고 ACCOUNT_TRANSACTION_LOCK.
+     *
+     * @return 잠근 순서대로의 계좌번호 (unLockAll 에 그대로 넘긴다)
+     */
+    public List<String> lockAll(
+            Collection<String> accountNumbers, long waitTimeMillis, long leaseTimeMillis, boolean fair
+    ){
+        List<String> ordered = accountNumbers.stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTimeMillis);
+        List<String> locked = new ArrayList<>(ordered.size());
+        try {
+            for (String accountNumber : ordered) {
+                long remainWait = Math.max(0L,
+                        TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                lock(accountNumber, remainWait, leaseTimeMillis, fair);
+                locked.add(accountNumber);
+            }
+        } catch (RuntimeException e) {
+            unLockAll(locked);
+            throw e;
+        }
+        return ordered;
+    }
+
+    public void unLockAll(List<String> lockedAccountNumbers){
+        for (int i = lockedAccountNumbers.size() - 1; i >= 0; i--) {
+            unLock(lockedAccountNumbers.get(i));
+        }
     }
 
     public void unLock(String accountNumber){
         log.debug("Unlock for accountNumber : {}", accountNumber);
-        redissonClient.getLock(getLockKey(accountNumber)).unlock();
+        LocalLock localLock = localLocks.get(accountNumber);
+        if (localLock == null || !localLock.lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("Not locked by this thread : " + accountNumber);
+        }
+
+        try {
+            RemoteHold hold = localLock.held;
+            if (localLock.lock.getHoldCount() == 1 && hold != null
+                    && !(localLock.hasWaiters() && hold.isFresh())) {
+                localLock.held = null;
+                unlockQuietly(localLock, accountNumber, hold);
+            }
+        } finally {
+            localLock.lock.unlock();
+            dereference(accountNumber, localLock);
+        }
+    }
+
+    private void acquireRemote(
+            LocalLock localLock, String accountNumber, long deadline, long leaseTimeMillis, boolean fair
+    ) throws Exception {
+        RemoteHold hold = localLock.held;
+        if (localLock.lock.getHoldCount() > 1 && hold != null) {
+            // 같은 thread 가 다시 잠그는 경우 이미 잡은 RLock 을 사용
+            return;
+        }
+        if (hold != null && hold.fair == fair && hold.isFresh()) {
+            // 이전 요청이 넘겨준 RLock 을 이어서 사용
+            if (hold.covers(leaseTimeMillis)) {
+                return;
+            }
+            // fresh 한 동안은 lease 가 남아 있으므로 아직 이 노드가 소유한 key 이다.
+            long extendedAt = System.nanoTime();
+            if (redissonClient.getKeys().expireAsync(
+                    hold.lock.getName(), leaseTimeMillis, TimeUnit.MILLISECONDS).get()) {
+                localLock.held = hold.extend(extendedAt, leaseTimeMillis);
+                return;
+            }
+            // lease 가 이미 끝나 Redis 에 lock 이 없는 경우 : 새로 잡는다.
+        }
+        if (hold != null) {
+            localLock.held = null;
+            unlockQuietly(localLock, accountNumber, hold);
+        }
+
+        RLock lock = fair
+                ? redissonClient.getFairLock(getLockKey(accountNumber))
+                : redissonClient.getLock(getLockKey(accountNumber));
+        long remainWait = Math.max(0L,
+                TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        boolean isLock = lock.tryLockAsync(
+                remainWait, leaseTimeMillis, TimeUnit.MILLISECONDS, localLock.ownerId
+        ).get();
+        if (!isLock) {
+            log.error("======Lock acquisition failed======");
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        long now = System.nanoTime();
+        localLock.held = new RemoteHold(
+                lock, now, leaseTimeMillis, now + TimeUnit.MILLISECONDS.toNanos(leaseTimeMillis), fair);
+    }
+
+    private LocalLock reference(String accountNumber) {
+        return localLocks.compute(accountNumber, (key, localLock) -> {
+            LocalLock referenced = localLock == null ? new LocalLock(-OWNER_IDS.incrementAndGet()) : localLock;
+            referenced.references.incrementAndGet();
+            return referenced;
+        });
+    }
+
+    /**
+     * 참조가 0 이 되면 계좌별 lock 을 지운다.
+     * 다음 요청에 넘겨주려고 남겨 둔 RLock 이 있으면 (넘겨받을 요청이 모두 포기한 경우) 여기서 반납한다.
+     */
+    private void dereference(String accountNumber, LocalLock localLock) {
+        RemoteHold[] orphan = new RemoteHold[1];
+        localLocks.computeIfPresent(accountNumber, (key, current) -> {
+            if (current != localLock || current.references.decrementAndGet() > 0) {
+                return current;
+            }
+            orphan[0] = current.held;
+            current.held = null;
+            return null;
+        });
+        if (orphan[0] != null) {
+            unlockQuietly(localLock, accountNumber, orphan[0]);
+        }
+    }
+
+    private void unlockQuietly(LocalLock localLock, String accountNumber, RemoteHold hold) {
+        try {
+            hold.lock.unlockAsync(localLock.ownerId).get();
+        } catch (Exception e) {
+            log.warn("Redis unlock failed for accountNumber : {}", accountNumber, e);
+        }
+    }
+
+    private String getLockKey(String accountNumber) {
+        return "ACLK: " + accountNumber;
+    }
+
+    private static class LocalLock {
+        private final ReentrantLock lock = new ReentrantLock(true);
+        // 잡고 있거나 기다리는 lock 호출 수. localLocks.compute 안에서만 바꾼다.
+        private final AtomicInteger references = new AtomicInteger();
+        private final long ownerId;
+        private volatile RemoteHold held;
+
+        private LocalLock(long ownerId) {
+            this.ownerId = ownerId;
+        }
+
+        private boolean tryLock(long waitTimeMillis) {
+            try {
+                return lock.tryLock(waitTimeMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        // lock 을 잡은 thread 의 참조(재진입 포함)를 빼고 남는 참조가 기다리는 요청이다.
+        private boolean hasWaiters() {
+            return references.get() > lock.getHoldCount();
+        }
+    }
+
+    private static class RemoteHold {
+        private final RLock lock;
+        private final long acquiredAt;
+        private final long leaseTimeMillis;
+        // Redis 에서 lock 이 풀리는 시각 (nanoTime). 넘겨줄 때 lease 를 늘리면 바뀐다.
+        private final long expiresAt;
+        private final boolean fair;
+
+        private RemoteHold(RLock lock, long acquiredAt, long leaseTimeMillis, long expiresAt, boolean fair) {
+            this.lock = lock;
+            this.acquiredAt = acquiredAt;
+            this.leaseTimeMillis = leaseTimeMillis;
+            this.expiresAt = expiresAt;
+            this.fair = fair;
+        }
+
+        private boolean covers(long leaseTimeMillis) {
+            return expiresAt - System.nanoTime() >= TimeUnit.MILLISECONDS.toNanos(leaseTimeMillis);
+        }
+
+        /**
+         * 다음 요청에 넘겨줄 수 있는 기간은 처음 잡은 시각부터 계산하므로 acquiredAt 은 그대로 둔다.
+         */
+        private RemoteHold extend(long extendedAt, long leaseTimeMillis) {
+            return new RemoteHold(lock, acquiredAt, this.leaseTimeMillis,
+                    extendedAt + TimeUnit.MILLISECONDS.toNanos(leaseTimeMillis), fair);
+        }
+
+        /**
+         * lease 의 절반이 지나기 전까지만 다음 요청에 넘겨준다.
+         * lease 만료로 다른 노드와 겹치는 것을 막고, 한 노드가 계좌를 독점하지 않도록 한다.
+         */
+        private boolean isFresh() {
+            return System.nanoTime() - acquiredAt
+                    < TimeUnit.MILLISECONDS.toNanos(leaseTimeMillis) / 2;
+        }
     }
 }
@@ -0,0 +1,117 @@
+package com.example.account.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBucket;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 에서 빌린 거래 아이디 노드 번호. (0 ~ maxNodeId)
+ *
+ * - INCR 로 후보 번호를 받고 그 번호의 key 를 SET NX PX 로 잡는다. 다른 노드가 잡고 있으면 다음 번호를 받는다.
+ * - lease-millis / 3 마다 key 값이 자기 것일 때만 만료 시간을 늘린다.
+ * - 연장하지 못한 채 lease 가 끝나면 다른 노드가 같은 번호를 받을 수 있으므로 check() 가 실패해 아이디 발급을 멈춘다.
+ */
+@Slf4j
+class NodeIdLease {
+    private static final String COUNTER_KEY = "TXID: node-counter";
+    private static final String KEY_PREFIX = "TXID: node:";
+    private static final String REFRESH_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then"
+                    + " return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end";
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then"
+                    + " return redis.call('del', KEYS[1]) else return 0 end";
+
+    private final RedissonClient redissonClient;
+    private final int nodeId;
+    private final String owner;
+    private final long leaseMillis;
+    private final ScheduledExecutorService scheduler;
+    private volatile long validUntil;
+
+    private NodeIdLease(RedissonClient redissonClient, int nodeId, String owner, long leaseMillis, long leasedAt) {
+        this.redissonClient = redissonClient;
+        this.nodeId = nodeId;
+        this.owner = owner;
+        this.leaseMillis = leaseMillis;
+        this.validUntil = leasedAt + leaseMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-node-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshMillis = Math.max(1, leaseMillis / 3);
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 비어 있는 번호를 찾을 때까지 후보를 돌아본다. 모두 잡혀 있으면 시작하지 않는다.
+     */
+    static NodeIdLease acquire(RedissonClient redissonClient, int maxNodeId, long leaseMillis) {
+        String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+        for (int attempt = 0; attempt <= maxNodeId; attempt++) {
+            int candidate = (int) (redissonClient.getAtomicLong(COUNTER_KEY).getAndIncrement() % (maxNodeId + 1));
+            RBucket<String> bucket = redissonClient.getBucket(KEY_PREFIX + candidate, StringCodec.INSTANCE);
+            long leasedAt = System.currentTimeMillis();
+            if (bucket.trySet(owner, leaseMillis, TimeUnit.MILLISECONDS)) {
+                log.info("Leased transaction id node {}", candidate);
+                return new NodeIdLease(redissonClient, candidate, owner, leaseMillis, leasedAt);
+            }
+        }
+        throw new IllegalStateException("No free transaction id node, set account.transaction-id.node-id");
+    }
+
+    int getNodeId() {
+        return nodeId;
+    }
+
+    void check() {
+        if (System.currentTimeMillis() >= validUntil) {
+            throw new IllegalStateException("Transaction id node lease expired : " + nodeId);
+        }
+    }
+
+    void release() {
+        scheduler.shutdownNow();
+        validUntil = 0;
+        try {
+            eval(RELEASE_SCRIPT);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release transaction id node {}", nodeId, e);
+        }
+    }
+
+    private void refresh() {
+        long refreshedAt = System.currentTimeMillis();
+        try {
+            if (eval(REFRESH_SCRIPT, String.valueOf(leaseMillis)) == 1L) {
+                validUntil = refreshedAt + leaseMillis;
+            } else {
+                validUntil = 0;
+                log.error("Transaction id node {} was taken by another node", nodeId);
+                scheduler.shutdown();
+            }
+        } catch (RuntimeException e) {
+            // 만료 전까지 다음 주기에 다시 연장한다.
+            log.warn("Failed to refresh transaction id node {}", nodeId, e);
+        }
+    }
+
+    private Long eval(String script, Object... arguments) {
+        Object[] values = new Object[arguments.length + 1];
+        values[0] = owner;
+        System.arraycopy(arguments, 0, values, 1, arguments.length);
+        return redissonClient.getScript(StringCodec.INSTANCE).eval(
+                RScript.Mode.READ_WRITE, script, RScript.ReturnType.INTEGER,
+                Collections.singletonList(KEY_PREFIX + nodeId), values);
+    }
+}
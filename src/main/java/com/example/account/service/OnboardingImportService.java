@@ -0,0 +1,298 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.CreateAccount;
+import com.example.account.dto.CreateUser;
+import com.example.account.dto.OnboardingImport;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.example.account.type.AccountStatus.IN_USE;
+
+/**
+ * NDJSON 파일의 사용자와 초기 계좌를 chunkSize 줄씩 읽어 chunk 마다 한 트랜잭션으로 저장한다.
+ * 한 번에 chunk 하나만 메모리에 두므로 파일 크기와 관계없이 메모리 사용량이 일정하다.
+ *
+ * 가입/계좌 생성 규칙은 API 와 같다.
+ * - CreateUser / CreateAccount 의 검증 조건
+ * - privateNumber 중복 (Bloom filter + DB, 파일 안의 중복 포함)
+ * - 사용자당 계좌 10 개, 계좌번호는 AccountNumberAllocator 에서 발급
+ * 실패한 줄은 report 에 NDJSON 으로 남기고 계속 진행한다.
+ * chunk 를 한 DB 트랜잭션으로 저장하므로 shard 로 나눈 구성에서는 지원하지 않는다.
+ */
+@Slf4j
+@Service
+public class OnboardingImportService {
+    private static final int MAX_ACCOUNT_PER_USER = 10;
+
+    private final AccountUserRepository accountUserRepository;
+    private final AccountRepository accountRepository;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final PrivateNumberFilter privateNumberFilter;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final int chunkSize;
+
+    public OnboardingImportService(
+            AccountUserRepository accountUserRepository,
+            AccountRepository accountRepository,
+            AccountNumberAllocator accountNumberAllocator,
+            PrivateNumberFilter privateNumberFilter,
+            TransactionTemplate transactionTemplate,
+            Validator validator,
+            ObjectMapper objectMapper,
+            ShardRouter shardRouter,
+            @Value("${account.import.chunk-size:500}") int chunkSize
+    ) {
+        this.accountUserRepository = accountUserRepository;
+        this.accountRepository = accountRepository;
+        this.accountNumberAllocator = accountNumberAllocator;
+        this.privateNumberFilter = privateNumberFilter;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.shardRouter = shardRouter;
+        this.chunkSize = chunkSize;
+    }
+
+    public OnboardingImport.Summary importUsers(BufferedReader reader, Writer report) throws IOException {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("Onboarding import is not supported with account.sharding.urls");
+        }
+
+        Progress progress = new Progress(report);
+        List<PendingRow> chunk = new ArrayList<>(chunkSize);
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            progress.total++;
+            try {
+                chunk.add(parse(lineNumber, line));
+            } catch (RejectedRowException e) {
+                progress.fail(lineNumber, e.privateNumber, e.errorCode, e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, progress);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, progress);
+        }
+        report.flush();
+
+        log.info("Imported {} of {} users ({} failed)",
+                progress.succeeded, progress.total, progress.failed);
+        return new OnboardingImport.Summary(progress.total, progress.succeeded, progress.failed);
+    }
+
+    private PendingRow parse(long lineNumber, String line) {
+        OnboardingImport.Row row;
+        try {
+            row = objectMapper.readValue(line, OnboardingImport.Row.class);
+        } catch (JsonProcessingException e) {
+            throw new RejectedRowException(null, ErrorCode.INVALID_REQUEST, e.getOriginalMessage());
+        }
+
+        CreateUser.Request user = new CreateUser.Request();
+        user.setName(row.getName());
+        user.setPrivateNumber(row.getPrivateNumber());
+        validate(row, validator.validate(user));
+
+        List<Long> initialBalances = row.getInitialBalances() == null
+                ? Collections.emptyList() : row.getInitialBalances();
+        if (initialBalances.size() > MAX_ACCOUNT_PER_USER) {
+            throw new RejectedRowException(row.getPrivateNumber(), ErrorCode.MAX_ACCOUNT_PER_USER_10,
+                    ErrorCode.MAX_ACCOUNT_PER_USER_10.getDescription());
+        }
+        for (Long initialBalance : initialBalances) {
+            validate(row, validator.validateProperty(
+                    new CreateAccount.Request(null, initialBalance), "initialBalance"));
+        }
+
+        return new PendingRow(lineNumber, row.getName(), row.getPrivateNumber(), initialBalances);
+    }
+
+    private <T> void validate(OnboardingImport.Row row, Set<ConstraintViolation<T>> violations) {
+        if (!violations.isEmpty()) {
+            throw new RejectedRowException(row.getPrivateNumber(), ErrorCode.INVALID_REQUEST,
+                    violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void writeChunk(List<PendingRow> chunk, Progress progress) throws IOException {
+        List<PendingRow> rows = removeDuplicates(chunk, progress);
+        if (rows.isEmpty()) {
+            return;
+        }
+        // 번호 블록을 받을 때 커넥션이 필요하므로 트랜잭션 밖에서 먼저 발급
+        for (PendingRow row : rows) {
+            row.accountNumbers = row.initialBalances.stream()
+                    .map(balance -> accountNumberAllocator.next())
+                    .collect(Collectors.toList());
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(rows));
+            afterSaved(rows, progress);
+        } catch (RuntimeException e) {
+            // 다른 노드가 같은 번호를 먼저 가입시킨 경우 등 : 어느 줄인지 찾기 위해 한 줄씩 다시 저장
+            log.warn("Import chunk failed, retrying row by row", e);
+            for (PendingRow row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> save(Collections.singletonList(row)));
+                    afterSaved(Collections.singletonList(row), progress);
+                } catch (RuntimeException rowException) {
+                    // 계좌번호 등 다른 제약 위반은 가져오는 데이터의 문제가 아니므로 중복 가입으로 보고하지 않는다.
+                    if (UniqueConstraints.isViolated(rowException, AccountUser.PRIVATE_NUMBER_CONSTRAINT)) {
+                        progress.fail(row, ErrorCode.EXIST_SAME_PRIVATE_NUMBER);
+                    } else {
+                        log.error("Import failed at line {}", row.lineNumber, rowException);
+                        progress.fail(row, ErrorCode.INTERNAL_SERVER_ERROR);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 파일 안에서 앞에 나온 번호와 이미 가입된 번호를 걸러낸다.
+     * Bloom filter 가 없다고 한 번호는 DB 를 조회하지 않는다.
+     */
+    private List<PendingRow> removeDuplicates(List<PendingRow> chunk, Progress progress) throws IOException {
+        Set<String> maybeExisting = chunk.stream()
+                .map(row -> row.privateNumber)
+                .filter(privateNumberFilter::mightExist)
+                .collect(Collectors.toSet());
+        Set<String> existing = maybeExisting.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(accountUserRepository.findExistingPrivateNumbers(maybeExisting));
+
+        Set<String> seen = new HashSet<>();
+        List<PendingRow> rows = new ArrayList<>(chunk.size());
+        for (PendingRow row : chunk) {
+            if (existing.contains(row.privateNumber) || !seen.add(row.privateNumber)) {
+                progress.fail(row, ErrorCode.EXIST_SAME_PRIVATE_NUMBER);
+            } else {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private void save(List<PendingRow> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        List<AccountUser> users = new ArrayList<>(rows.size());
+        List<Account> accounts = new ArrayList<>();
+        for (PendingRow row : rows) {
+            AccountUser user = AccountUser.builder()
+                    .name(row.name)
+                    .privateNumber(row.privateNumber)
+                    .activeAccountCount(row.initialBalances.size())
+                    .registeredAt(now)
+                    .build();
+            users.add(user);
+            for (int i = 0; i < row.initialBalances.size(); i++) {
+                accounts.add(Account.builder()
+                        .accountUser(user)
+                        .accountStatus(IN_USE)
+                        .accountNumber(row.accountNumbers.get(i))
+                        .balance(row.initialBalances.get(i))
+                        .registeredAt(now)
+                        .build());
+            }
+        }
+        // hibernate.jdbc.batch_size 단위로 묶여서 insert 된다.
+        accountUserRepository.saveAll(users);
+        accountRepository.saveAll(accounts);
+    }
+
+    private void afterSaved(List<PendingRow> rows, Progress progress) {
+        for (PendingRow row : rows) {
+            privateNumberFilter.add(row.privateNumber);
+        }
+        progress.succeeded += rows.size();
+    }
+
+    private static class RejectedRowException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final String privateNumber;
+        private final ErrorCode errorCode;
+
+        private RejectedRowException(String privateNumber, ErrorCode errorCode, String message) {
+            super(message);
+            this.privateNumber = privateNumber;
+            this.errorCode = errorCode;
+        }
+    }
+
+    private static class PendingRow {
+        private final long lineNumber;
+        private final String name;
+        private final String privateNumber;
+        private final List<Long> initialBalances;
+        private List<String> accountNumbers;
+
+        private PendingRow(long lineNumber, String name, String privateNumber, List<Long> initialBalances) {
+            this.lineNumber = lineNumber;
+            this.name = name;
+            this.privateNumber = privateNumber;
+            this.initialBalances = initialBalances;
+        }
+    }
+
+    private class Progress {
+        private final Writer report;
+        private long total;
+        private long succeeded;
+        private long failed;
+
+        private Progress(Writer report) {
+            this.report = report;
+        }
+
+        private void fail(PendingRow row, ErrorCode errorCode) throws IOException {
+            fail(row.lineNumber, row.privateNumber, errorCode, errorCode.getDescription());
+        }
+
+        private void fail(long lineNumber, String privateNumber, ErrorCode errorCode, String message)
+                throws IOException {
+            failed++;
+            report.write(objectMapper.writeValueAsString(
+                    new OnboardingImport.Failure(lineNumber, privateNumber, errorCode, message)));
+            report.write('\n');
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * OPTIMISTIC 모드에서 계좌 @Version 충돌이 나면 트랜잭션을 처음부터 다시 실행한다.
+ * 재시도 간격은 지수 증가 + full jitter 이고, maxAttempts 를 넘기면 CONCURRENT_UPDATE_CONFLICT.
+ *
+ * 충돌률은 account.optimistic.conflicts / account.optimistic.attempts 로 확인한다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OptimisticRetryService {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${account.optimistic.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${account.optimistic.base-backoff-millis:5}")
+    private long baseBackoffMillis = 5L;
+
+    @Value("${account.optimistic.max-backoff-millis:100}")
+    private long maxBackoffMillis = 100L;
+
+    public Object execute(String operation, Attempt attempt) throws Throwable {
+        for (int tryCount = 1; ; tryCount++) {
+            counter("account.optimistic.attempts", operation).increment();
+            try {
+                return attempt.run();
+            } catch (OptimisticLockingFailureException e) {
+                counter("account.optimistic.conflicts", operation).increment();
+                if (tryCount >= maxAttempts) {
+                    log.warn("Optimistic retry exhausted for {} after {} attempts", operation, tryCount);
+                    counter("account.optimistic.exhausted", operation).increment();
+                    throw new AccountException(ErrorCode.CONCURRENT_UPDATE_CONFLICT);
+                }
+                backoff(tryCount);
+            }
+        }
+    }
+
+    private void backoff(int tryCount) throws InterruptedException {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(tryCount, 20));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private Counter counter(String name, String operation) {
+        return meterRegistry.counter(name, "operation", operation);
+    }
+
+    @FunctionalInterface
+    public interface Attempt {
+        Object run() throws Throwable;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.OutboxOffset;
+import com.example.account.dto.OutboxMessage;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.OutboxOffsetRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * outbox 이벤트를 묶음 단위로 꺼내 OutboxSink 로 발행하는 배경 thread.
+ *
+ * - 여러 노드 중 Redisson lock 을 잡은 한 노드만 발행한다. (노드 간 순서 뒤섞임 / 중복 방지)
+ * - 한 묶음은 한 트랜잭션이다 : id 순 조회 → 발행 → 삭제 + offset 갱신.
+ *   묶음 안에서는 계좌별 eventSeq 순으로 발행하고, 묶음 사이의 계좌별 순서는 소비자가 eventSeq 로 맞춘다.
+ *   발행 후 커밋 전에 죽으면 같은 묶음을 다시 보낸다. (최소 한 번 전달)
+ * - 거래 커밋 직후 OutboxService 가 깨우므로 지연은 보통 수십 ms 이고,
+ *   poll-interval 은 다른 노드에서 쌓인 이벤트를 위한 안전망이다.
+ * - 한 번 깨어나면 shard 마다 최대 max-batches-per-poll 묶음까지 비운다.
+ *
+ * 지표 : account.outbox.delivered, account.outbox.delivery.latency (저장 → 발행),
+ *        account.outbox.lag (shard 별 가장 오래된 미발행 이벤트의 나이, 발행 노드에서만 갱신)
+ */
+@Slf4j
+@Service
+public class OutboxRelay {
+    static final String OFFSET_NAME = "relay";
+    private static final String LOCK_KEY = "OUTBOX: relay";
+    private static final Comparator<OutboxEvent> PUBLISH_ORDER = Comparator
+            .comparing(OutboxEvent::getAccountNumber)
+            .thenComparing(OutboxEvent::getEventSeq);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final OutboxSink outboxSink;
+    private final RedissonClient redissonClient;
+    private final ShardRouter shardRouter;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerPoll;
+    private final long pollIntervalMillis;
+    private final long leaseMillis;
+
+    private final Semaphore signal = new Semaphore(0);
+    private final Map<Integer, AtomicLong> lagMillis = new ConcurrentHashMap<>();
+    private final Counter delivered;
+    private final Counter failures;
+    private final Timer deliveryLatency;
+    private ExecutorService executor;
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            OutboxOffsetRepository outboxOffsetRepository,
+            OutboxSink outboxSink,
+            RedissonClient redissonClient,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.outbox.relay.enabled:true}") boolean enabled,
+            @Value("${account.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${account.outbox.relay.max-batches-per-poll:20}") int maxBatchesPerPoll,
+            @Value("${account.outbox.relay.poll-interval-millis:1000}") long pollIntervalMillis,
+            @Value("${account.outbox.relay.lease-millis:30000}") long leaseMillis
+    ) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.outboxSink = outboxSink;
+        this.redissonClient = redissonClient;
+        this.shardRouter = shardRouter;
+        this.meterRegistry = meterRegistry;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerPoll = maxBatchesPerPoll;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.leaseMillis = leaseMillis;
+        this.delivered = meterRegistry.counter("account.outbox.delivered");
+        this.failures = meterRegistry.counter("account.outbox.failures");
+        this.deliveryLatency = meterRegistry.timer("account.outbox.delivery.latency");
+    }
+
+    // 스키마(shard 복사 포함)가 모두 준비된 뒤에 시작한다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::run);
+        log.info("Outbox relay started : {}", outboxSink.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public void wakeUp() {
+        signal.release();
+    }
+
+    /**
+     * leader lock 을 잡으면 모든 shard 의 outbox 를 비운다.
+     *
+     * @return 발행한 이벤트 수 (lock 을 못 잡으면 0)
+     */
+    public long relayOnce() {
+        RLock lock = redissonClient.getLock(LOCK_KEY);
+        try {
+            if (!lock.tryLock(0, leaseMillis, TimeUnit.MILLISECONDS)) {
+                return 0;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            log.warn("Outbox relay lock failed", e);
+            return 0;
+        }
+
+        AtomicLong total = new AtomicLong();
+        try {
+            shardRouter.runOnEachShard(shard -> total.addAndGet(drain(shard)));
+        } finally {
+            try {
+                lock.unlock();
+            } catch (Exception e) {
+                log.warn("Outbox relay unlock failed", e);
+            }
+        }
+        return total.get();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                signal.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                signal.drainPermits();
+                relayOnce();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Outbox relay failed", e);
+            }
+        }
+    }
+
+    private long drain(int shard) {
+        long total = 0;
+        int relayed = batchSize;
+        try {
+            for (int i = 0; i < maxBatchesPerPoll && relayed == batchSize; i++) {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+                total += relayed;
+            }
+            updateLag(shard, relayed < batchSize);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Outbox relay failed on shard {}, retrying on next poll", shard, e);
+        }
+        return total;
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxEventRepository.findNextBatch(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        outboxSink.publish(events.stream()
+                .sorted(PUBLISH_ORDER)
+                .map(OutboxMessage::fromEntity)
+                .collect(Collectors.toList()));
+        outboxEventRepository.deleteAllByIdInBatch(events.stream()
+                .map(OutboxEvent::getId)
+                .collect(Collectors.toList()));
+
+        OutboxEvent last = events.get(events.size() - 1);
+        LocalDateTime now = LocalDateTime.now();
+        OutboxOffset offset = outboxOffsetRepository.findById(OFFSET_NAME)
+                .orElseGet(() -> OutboxOffset.builder().name(OFFSET_NAME).deliveredCount(0L).build());
+        offset.setLastEventId(last.getId());
+        offset.setDeliveredCount(offset.getDeliveredCount() + events.size());
+        offset.setDeliveredAt(now);
+        outboxOffsetRepository.save(offset);
+
+        delivered.increment(events.size());
+        for (OutboxEvent event : events) {
+            deliveryLatency.record(Duration.between(event.getCreatedAt(), now));
+        }
+        return events.size();
+    }
+
+    /**
+     * 다 비웠으면 0, 남았으면 가장 오래된 이벤트의 나이.
+     */
+    private void updateLag(int shard, boolean drained) {
+        long lag = 0;
+        if (!drained) {
+            lag = outboxEventRepository.findFirstByOrderByIdAsc()
+                    .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+                    .orElse(0L);
+        }
+        lagMillis.computeIfAbsent(shard, key -> {
+            AtomicLong value = new AtomicLong();
+            TimeGauge.builder("account.outbox.lag", value, TimeUnit.MILLISECONDS, AtomicLong::get)
+                    .tags(Tags.of("shard", String.valueOf(key)))
+                    .register(meterRegistry);
+            return value;
+        }).set(lag);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.account.service;
+
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 거래를 저장하는 트랜잭션 안에서 호출해 같은 커밋으로 outbox 이벤트를 남긴다.
+ * 이벤트 순번은 계좌 row 에서 예약하므로 그 계좌 row 는 커밋까지 lock 이 걸린다.
+ * 커밋되면 relay 를 바로 깨워 polling 주기를 기다리지 않고 발행한다.
+ * 트랜잭션 없이 호출하면 거래와 이벤트가 따로 커밋되므로 예외를 던진다.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final AccountRepository accountRepository;
+    private final OutboxRelay outboxRelay;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(Transaction transaction) {
+        append(Collections.singletonList(transaction));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(List<Transaction> transactions) {
+        Map<Long, List<Transaction>> byAccount = transactions.stream().collect(Collectors.groupingBy(
+                transaction -> transaction.getAccount().getId(), LinkedHashMap::new, Collectors.toList()));
+        List<OutboxEvent> events = new ArrayList<>(transactions.size());
+        byAccount.forEach((accountId, accountTransactions) -> {
+            long eventSeq = accountRepository.reserveEventSeq(accountId, accountTransactions.size())
+                    - accountTransactions.size();
+            for (Transaction transaction : accountTransactions) {
+                events.add(OutboxEvent.from(transaction, ++eventSeq));
+            }
+        });
+        outboxEventRepository.saveAll(events);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.account.service;
+
+import com.example.account.dto.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * outbox 이벤트를 내보낼 곳. account.outbox.sink 로 구현을 고른다. (memory | file | redis-stream)
+ * 예외 없이 반환하면 전달된 것으로 보고 outbox 에서 지운다. 묶음 안의 순서를 지켜야 한다.
+ */
+public interface OutboxSink {
+    void publish(List<OutboxMessage> messages);
+}
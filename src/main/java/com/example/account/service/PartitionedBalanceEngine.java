@@ -0,0 +1,510 @@
+package com.example.account.service;
+
+import com.example.account.cache.AccountListCache;
+import com.example.account.cache.TransactionCache;
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.LatencyPoint;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * PARTITIONED 모드에서 잔액 사용/취소를 계좌번호 hash 로 정한 partition thread 에서 처리한다.
+ *
+ * - partition 은 자기 계좌의 잔액을 메모리에 들고 명령을 하나씩 순서대로 적용하므로 lock 이 필요 없다.
+ * - 큐에서 한 번에 꺼낸 명령들의 거래와 잔액 변화는 트랜잭션 하나로 커밋한다. (group commit)
+ *   요청 thread 는 커밋될 때까지 future 로 기다린다.
+ *   커밋이 실패하면 그 묶음의 요청은 모두 실패하고, 메모리 잔액은 DB 에서 다시 읽는다.
+ * - 기다리다 timeout 난 명령은 partition 이 꺼내기 전이면 취소하고, 이미 꺼냈으면 결과가 나올 때까지 기다린다.
+ * - DB 에는 잔액 차이만 더하고 결과가 음수인 계좌의 명령은 실패시키므로 다른 경로의 변경과 섞여도 잔액이 어긋나지 않는다.
+ * - 이체 / 묶음 사용 / 해지는 runExclusive 로 그 계좌의 partition 에서 실행한 뒤 메모리 잔액을 버린다.
+ * - 계좌 잔액을 노드 메모리에 들고 있으므로 한 계좌의 요청은 한 노드로 보낸다.
+ *
+ * 지표 : account.partitioned.commit.size (group commit 한 번의 명령 수), account.partitioned.queue (대기 명령 수)
+ */
+@Slf4j
+@Service
+public class PartitionedBalanceEngine {
+    private final AccountRepository accountRepository;
+    private final AccountUserRepository accountUserRepository;
+    private final TransactionRepository transactionRepository;
+    private final OutboxService outboxService;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionCache transactionCache;
+    private final AccountListCache accountListCache;
+    private final LatencyInjector latencyInjector;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyMode concurrencyMode;
+    private final int maxBatchSize;
+    private final int maxAccountsPerPartition;
+    private final long timeoutMillis;
+
+    private final Partition[] partitions;
+    private final DistributionSummary commitSize;
+    private volatile boolean started;
+
+    public PartitionedBalanceEngine(
+            AccountRepository accountRepository,
+            AccountUserRepository accountUserRepository,
+            TransactionRepository transactionRepository,
+            OutboxService outboxService,
+            TransactionIdGenerator transactionIdGenerator,
+            TransactionCache transactionCache,
+            AccountListCache accountListCache,
+            LatencyInjector latencyInjector,
+            ShardRouter shardRouter,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${account.concurrency.mode:REDIS_LOCK}") ConcurrencyMode concurrencyMode,
+            @Value("${account.partitioned.partitions:8}") int partitionCount,
+            @Value("${account.partitioned.queue-capacity:10000}") int queueCapacity,
+            @Value("${account.partitioned.max-batch-size:500}") int maxBatchSize,
+            @Value("${account.partitioned.max-accounts-per-partition:100000}") int maxAccountsPerPartition,
+            @Value("${account.partitioned.timeout-millis:10000}") long timeoutMillis
+    ) {
+        this.accountRepository = accountRepository;
+        this.accountUserRepository = accountUserRepository;
+        this.transactionRepository = transactionRepository;
+        this.outboxService = outboxService;
+        this.transactionIdGenerator = transactionIdGenerator;
+        this.transactionCache = transactionCache;
+        this.accountListCache = accountListCache;
+        this.latencyInjector = latencyInjector;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = transactionTemplate;
+        this.concurrencyMode = concurrencyMode;
+        this.maxBatchSize = maxBatchSize;
+        this.maxAccountsPerPartition = maxAccountsPerPartition;
+        this.timeoutMillis = timeoutMillis;
+
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, queueCapacity);
+        }
+        this.commitSize = DistributionSummary.builder("account.partitioned.commit.size")
+                .register(meterRegistry);
+        Gauge.builder("account.partitioned.queue", partitions,
+                        all -> Arrays.stream(all).mapToInt(partition -> partition.queue.size()).sum())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (concurrencyMode != ConcurrencyMode.PARTITIONED || started) {
+            return;
+        }
+
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        started = true;
+        log.info("Partitioned balance engine started : {} partitions", partitions.length);
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        if (!started) {
+            return;
+        }
+
+        started = false;
+        for (Partition partition : partitions) {
+            partition.thread.interrupt();
+        }
+        for (Partition partition : partitions) {
+            partition.thread.join(TimeUnit.SECONDS.toMillis(5));
+            List<Command> remaining = new ArrayList<>();
+            partition.queue.drainTo(remaining);
+            remaining.forEach(command -> command.future.completeExceptionally(
+                    new AccountException(ErrorCode.INTERNAL_SERVER_ERROR)));
+        }
+    }
+
+    public TransactionDto useBalance(Long userId, String accountNumber, Long amount) {
+        return (TransactionDto) submit(Command.balance(TransactionType.USE, userId, accountNumber, amount));
+    }
+
+    /**
+     * 원 거래 검증은 호출하는 쪽(TransactionService.cancelBalance)에서 끝낸 뒤 호출한다.
+     */
+    public TransactionDto cancelBalance(String accountNumber, Long amount) {
+        return (TransactionDto) submit(Command.balance(TransactionType.CANCEL, null, accountNumber, amount));
+    }
+
+    /**
+     * 계좌의 partition 에서 앞선 명령을 모두 커밋한 뒤 work 를 실행하고, 그 계좌의 메모리 잔액을 버린다.
+     * 엔진이 동작하지 않는 모드에서는 바로 실행한다.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T runExclusive(String accountNumber, Supplier<T> work) {
+        if (!started) {
+            return work.get();
+        }
+        return (T) submit(Command.exclusive(accountNumber, work));
+    }
+
+    /**
+     * 다른 경로에서 잔액이 바뀐 계좌의 메모리 잔액을 버린다. (기다리지 않음)
+     */
+    public void invalidate(String accountNumber) {
+        if (started && !partitionOf(accountNumber).queue.offer(Command.exclusive(accountNumber, () -> null))) {
+            log.warn("Partition queue full, {} will be reloaded on next failure", accountNumber);
+        }
+    }
+
+    private Object submit(Command command) {
+        if (!started) {
+            throw new IllegalStateException("Partitioned balance engine is not running");
+        }
+        if (!partitionOf(command.accountNumber).queue.offer(command)) {
+            throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+        }
+
+        try {
+            try {
+                return command.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (command.cancel()) {
+                    // partition 이 꺼내기 전에 취소했으므로 반영되지 않는다.
+                    throw new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK);
+                }
+                // 이미 적용 중인 명령은 커밋 결과를 그대로 돌려준다.
+                return command.future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorCode.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private Partition partitionOf(String accountNumber) {
+        return partitions[ShardRouter.shardOf(accountNumber, partitions.length)];
+    }
+
+    private class Partition implements Runnable {
+        private final BlockingQueue<Command> queue;
+        private final Thread thread;
+        // partition thread 만 접근한다. 오래 안 쓴 계좌부터 버린다.
+        private final Map<String, AccountState> states =
+                new LinkedHashMap<String, AccountState>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, AccountState> eldest) {
+                        return size() > maxAccountsPerPartition;
+                    }
+                };
+
+        private Partition(int index, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = new Thread(this, "balance-partition-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(maxBatchSize);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    log.error("Balance partition failed", e);
+                } finally {
+                    batch.forEach(command -> command.future.completeExceptionally(
+                            new AccountException(ErrorCode.INTERNAL_SERVER_ERROR)));
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process(List<Command> batch) {
+            List<Applied> applied = new ArrayList<>(batch.size());
+            for (Command command : batch) {
+                if (!command.take()) {
+                    command.future.completeExceptionally(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+                    continue;
+                }
+                if (command.exclusive != null) {
+                    // 앞선 명령을 먼저 커밋해야 work 가 최신 DB 잔액을 본다.
+                    commit(applied);
+                    applied.clear();
+                    runExclusive(command);
+                    continue;
+                }
+
+                try {
+                    applied.add(apply(command));
+                } catch (RuntimeException e) {
+                    if (!(e instanceof AccountException)) {
+                        states.remove(command.accountNumber);
+                    }
+                    command.future.completeExceptionally(e);
+                }
+            }
+            commit(applied);
+        }
+
+        private void runExclusive(Command command) {
+            try {
+                command.future.complete(command.exclusive.get());
+            } catch (RuntimeException e) {
+                command.future.completeExceptionally(e);
+            } finally {
+                states.remove(command.accountNumber);
+            }
+        }
+
+        private Applied apply(Command command) {
+            AccountState state = states.get(command.accountNumber);
+            if (state == null) {
+                state = load(command.accountNumber);
+                states.put(command.accountNumber, state);
+            }
+
+            if (command.transactionType == TransactionType.USE) {
+                if (!Objects.equals(state.userId, command.userId)) {
+                    throw new AccountException(accountUserRepository.existsById(command.userId)
+                            ? ErrorCode.USER_ACCOUNT_UN_MATCH
+                            : ErrorCode.USER_NOT_FOUND);
+                }
+                if (state.accountStatus != AccountStatus.IN_USE) {
+                    throw new AccountException(ErrorCode.ALREADY_UNREGISTERED);
+                }
+                if (state.balance < command.amount) {
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }
+                state.balance -= command.amount;
+            } else {
+                if (command.amount < 0) {
+                    throw new AccountException(ErrorCode.INVALID_REQUEST);
+                }
+                state.balance += command.amount;
+            }
+
+            return new Applied(command, state, transactionIdGenerator.generate(), LocalDateTime.now());
+        }
+
+        // replica 가 아닌 primary 의 잔액으로 올린다.
+        private AccountState load(String accountNumber) {
+            return shardRouter.onAccountShard(accountNumber, () -> transactionTemplate.execute(status -> {
+                Account account = accountRepository.findByAccountNumber(accountNumber)
+                        .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+                return new AccountState(account.getId(), account.getAccountUser().getId(),
+                        account.getAccountStatus(), account.getBalance());
+            }));
+        }
+
+        /**
+         * shard 마다 한 트랜잭션으로 저장한다. 실패한 shard 의 명령은 모두 실패 처리하고 메모리 잔액을 버린다.
+         * 다른 경로의 변경으로 DB 잔액이 모자란 계좌는 그 계좌의 명령만 빼고 나머지를 커밋한다.
+         */
+        private void commit(List<Applied> applied) {
+            if (applied.isEmpty()) {
+                return;
+            }
+
+            Map<Integer, List<Applied>> byShard = applied.stream().collect(Collectors.groupingBy(
+                    entry -> shardRouter.shardOf(entry.command.accountNumber),
+                    LinkedHashMap::new, Collectors.toList()));
+            for (List<Applied> group : byShard.values()) {
+                try {
+                    Set<Long> conflicts = shardRouter.onAccountShard(group.get(0).command.accountNumber,
+                            () -> transactionTemplate.execute(status -> persist(group)));
+                    commitSize.record(group.size());
+                    for (Applied entry : group) {
+                        if (conflicts.contains(entry.accountId)) {
+                            states.remove(entry.command.accountNumber);
+                            entry.command.future.completeExceptionally(
+                                    new AccountException(ErrorCode.CONCURRENT_UPDATE_CONFLICT));
+                            continue;
+                        }
+                        TransactionDto transactionDto = entry.toDto();
+                        transactionCache.put(transactionDto);
+                        entry.command.future.complete(transactionDto);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Group commit of {} balance commands failed", group.size(), e);
+                    for (Applied entry : group) {
+                        states.remove(entry.command.accountNumber);
+                        entry.command.future.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 잔액 차이를 먼저 더하고, 반영된 계좌의 거래만 저장한다. 반영되지 않은 계좌 id 를 돌려준다.
+         */
+        private Set<Long> persist(List<Applied> group) {
+            LocalDateTime now = LocalDateTime.now();
+            Map<Long, Long> deltas = new LinkedHashMap<>();
+            for (Applied entry : group) {
+                deltas.merge(entry.accountId, entry.delta(), Long::sum);
+            }
+            Set<Long> conflicts = new HashSet<>();
+            deltas.forEach((accountId, delta) -> {
+                if (accountRepository.addBalance(accountId, delta, now) == 0) {
+                    conflicts.add(accountId);
+                }
+            });
+
+            List<Transaction> transactions = group.stream()
+                    .filter(entry -> !conflicts.contains(entry.accountId))
+                    .map(entry -> Transaction.builder()
+                            .transactionType(entry.command.transactionType)
+                            .transactionResultType(TransactionResultType.S)
+                            .account(accountRepository.getById(entry.accountId))
+                            .amount(entry.command.amount)
+                            .balanceSnapshot(entry.balance)
+                            .transactionId(entry.transactionId)
+                            .transactedAt(entry.transactedAt)
+                            .build())
+                    .collect(Collectors.toList());
+            transactionRepository.saveAll(transactions);
+            outboxService.append(transactions);
+            for (Applied entry : group) {
+                accountListCache.evictAfterCommit(entry.userId);
+            }
+            latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+            return conflicts;
+        }
+    }
+
+    private enum CommandState {
+        PENDING, TAKEN, CANCELLED
+    }
+
+    private static class Command {
+        private final TransactionType transactionType;
+        private final Long userId;
+        private final String accountNumber;
+        private final Long amount;
+        private final Supplier<?> exclusive;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private final AtomicReference<CommandState> state = new AtomicReference<>(CommandState.PENDING);
+
+        private Command(
+                TransactionType transactionType, Long userId, String accountNumber, Long amount,
+                Supplier<?> exclusive
+        ) {
+            this.transactionType = transactionType;
+            this.userId = userId;
+            this.accountNumber = accountNumber;
+            this.amount = amount;
+            this.exclusive = exclusive;
+        }
+
+        private static Command balance(
+                TransactionType transactionType, Long userId, String accountNumber, Long amount
+        ) {
+            return new Command(transactionType, userId, accountNumber, amount, null);
+        }
+
+        private static Command exclusive(String accountNumber, Supplier<?> work) {
+            return new Command(null, null, accountNumber, null, work);
+        }
+
+        // partition thread 가 적용하기 직전에 호출한다. 이미 취소된 명령이면 false
+        private boolean take() {
+            return state.compareAndSet(CommandState.PENDING, CommandState.TAKEN);
+        }
+
+        // 요청 thread 가 timeout 에 호출한다. 이미 적용 중인 명령이면 false
+        private boolean cancel() {
+            return state.compareAndSet(CommandState.PENDING, CommandState.CANCELLED);
+        }
+    }
+
+    private static class AccountState {
+        private final Long accountId;
+        private final Long userId;
+        private final AccountStatus accountStatus;
+        private long balance;
+
+        private AccountState(Long accountId, Long userId, AccountStatus accountStatus, long balance) {
+            this.accountId = accountId;
+            this.userId = userId;
+            this.accountStatus = accountStatus;
+            this.balance = balance;
+        }
+    }
+
+    private static class Applied {
+        private final Command command;
+        private final Long accountId;
+        private final Long userId;
+        private final long balance;
+        private final String transactionId;
+        private final LocalDateTime transactedAt;
+
+        private Applied(Command command, AccountState state, String transactionId, LocalDateTime transactedAt) {
+            this.command = command;
+            this.accountId = state.accountId;
+            this.userId = state.userId;
+            this.balance = state.balance;
+            this.transactionId = transactionId;
+            this.transactedAt = transactedAt;
+        }
+
+        private long delta() {
+            return command.transactionType == TransactionType.USE ? -command.amount : command.amount;
+        }
+
+        private TransactionDto toDto() {
+            return TransactionDto.builder()
+                    .accountNumber(command.accountNumber)
+                    .transactionType(command.transactionType)
+                    .transactionResultType(TransactionResultType.S)
+                    .amount(command.amount)
+                    .balanceSnapshot(balance)
+                    .transactionId(transactionId)
+                    .transactedAt(transactedAt)
+                    .build();
+        }
+    }
+}
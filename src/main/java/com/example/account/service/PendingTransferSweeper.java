@@ -0,0 +1,119 @@
+package com.example.account.service;
+
+import com.example.account.domain.PendingTransfer;
+import com.example.account.repository.PendingTransferRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 다른 shard 로의 이체 중 출금만 커밋된 채 pending-timeout 이 지난 이체를 마무리하는 배경 thread.
+ *
+ * - 입금 계좌가 받으면 입금을 커밋하고, 거절하면 출금을 되돌린다. (TransferService.settlePending)
+ * - 입금은 미리 정한 거래 아이디로 한 번만 저장되므로 이미 입금된 이체를 다시 처리해도 잔액이 두 번 바뀌지 않는다.
+ * - 두 계좌의 lock 을 잡고 처리하므로 여러 노드에서 돌아도 한 이체를 동시에 처리하지 않는다.
+ * - shard 가 하나면 PendingTransfer 가 생기지 않으므로 시작하지 않는다.
+ *
+ * 지표 : account.transfer.pending.failures
+ */
+@Slf4j
+@Service
+public class PendingTransferSweeper {
+    private final PendingTransferRepository pendingTransferRepository;
+    private final TransferService transferService;
+    private final ShardRouter shardRouter;
+    private final long pendingTimeoutMillis;
+    private final long sweepIntervalMillis;
+    private final int batchSize;
+
+    private final Counter failures;
+    private ScheduledExecutorService scheduler;
+
+    public PendingTransferSweeper(
+            PendingTransferRepository pendingTransferRepository,
+            TransferService transferService,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${account.transfer.pending-timeout-millis:60000}") long pendingTimeoutMillis,
+            @Value("${account.transfer.sweep-interval-millis:30000}") long sweepIntervalMillis,
+            @Value("${account.transfer.sweep-batch-size:100}") int batchSize
+    ) {
+        this.pendingTransferRepository = pendingTransferRepository;
+        this.transferService = transferService;
+        this.shardRouter = shardRouter;
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.batchSize = batchSize;
+        this.failures = meterRegistry.counter("account.transfer.pending.failures");
+    }
+
+    // 스키마(shard 복사 포함)가 모두 준비된 뒤에 시작한다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!shardRouter.isSharded() || scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pending-transfer-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweepSafely,
+                sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("Pending transfer sweeper started");
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 모든 shard 에서 pending-timeout 이 지난 이체를 batch-size 만큼씩 마무리한다.
+     *
+     * @return 처리를 시도한 이체 수
+     */
+    public int sweepOnce() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(
+                TimeUnit.MILLISECONDS.toNanos(pendingTimeoutMillis));
+        List<PendingTransfer> pendingTransfers = shardRouter.collectFromAllShards(() ->
+                pendingTransferRepository.findByCreatedAtBeforeOrderByCreatedAt(
+                        before, PageRequest.of(0, batchSize)));
+
+        for (PendingTransfer pending : pendingTransfers) {
+            try {
+                transferService.settlePending(pending);
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Pending transfer {} not settled, retrying on next sweep",
+                        pending.getTransferOutTransactionId(), e);
+            }
+        }
+        return pendingTransfers.size();
+    }
+
+    private void sweepSafely() {
+        try {
+            sweepOnce();
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("Pending transfer sweep failed", e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.account.service;
+
+import com.example.account.cache.BloomFilter;
+import com.example.account.config.DataSourceRouteContext;
+import com.example.account.repository.AccountUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * 가입된 privateNumber 의 Bloom filter.
+ * 시작 시 account_user 를 스트리밍해 채우고, 가입할 때마다 추가한다.
+ * 채우기 전에는 항상 "있을 수 있음" 으로 답해 DB 조회를 건너뛰지 않는다.
+ *
+ * 노드마다 따로 가지므로 다른 노드에서 가입한 번호는 모를 수 있다.
+ * 이 경우에도 unique 제약이 중복 가입을 막는다.
+ * 빠진 번호가 없도록 replica 가 아닌 primary 에서 읽는다.
+ */
+@Slf4j
+@Component
+public class PrivateNumberFilter {
+    /**
+     * 채워진 filter 가 필요한 ApplicationReadyEvent listener 는 이보다 뒤에 둔다.
+     */
+    public static final int REBUILD_ORDER = 0;
+
+    private final AccountUserRepository accountUserRepository;
+    private final BloomFilter bloomFilter;
+    private final TransactionTemplate transactionTemplate;
+    private volatile boolean ready;
+
+    public PrivateNumberFilter(
+            AccountUserRepository accountUserRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${account.private-number-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${account.private-number-filter.false-positive-rate:0.01}") double falsePositiveRate
+    ) {
+        this.accountUserRepository = accountUserRepository;
+        this.bloomFilter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(REBUILD_ORDER)
+    public void rebuild() {
+        long count = DataSourceRouteContext.onPrimary(
+                () -> transactionTemplate.execute(status -> load()));
+        ready = true;
+        log.info("Private number filter loaded {} users ({} bits, {} hashes)",
+                count, bloomFilter.bitSize(), bloomFilter.hashCount());
+    }
+
+    private long load() {
+        long count = 0;
+        try (Stream<String> privateNumbers = accountUserRepository.streamAllPrivateNumbers()) {
+            for (String privateNumber : (Iterable<String>) privateNumbers::iterator) {
+                bloomFilter.put(privateNumber);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * false 면 가입된 적 없는 번호이므로 DB 조회를 생략해도 된다.
+     */
+    public boolean mightExist(String privateNumber) {
+        return !ready || bloomFilter.mightContain(privateNumber);
+    }
+
+    public void add(String privateNumber) {
+        bloomFilter.put(privateNumber);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.account.service;
+
+import com.example.account.config.DataSourceRouteContext;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 사용자가 데이터를 바꾼 뒤 window 동안은 그 사용자의 읽기를 primary 로 보낸다. (replica 복제 지연 대비)
+ * 표시는 Redis 에 TTL 로 남겨서 다른 노드로 간 읽기에도 적용된다.
+ * replica 를 설정하지 않았으면 아무것도 하지 않는다.
+ */
+@Slf4j
+@Component
+public class ReadYourWritesTracker {
+    private final RedissonClient redissonClient;
+    private final boolean enabled;
+    private final long windowMillis;
+
+    public ReadYourWritesTracker(
+            RedissonClient redissonClient,
+            @Value("${account.datasource.replica.url:}") String replicaUrl,
+            @Value("${account.datasource.read-your-writes-millis:1000}") long windowMillis
+    ) {
+        this.redissonClient = redissonClient;
+        this.enabled = !replicaUrl.isEmpty() && windowMillis > 0;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 커밋 후에 호출한다.
+     */
+    public void recordWrite(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            redissonClient.getBucket(getKey(userId), StringCodec.INSTANCE)
+                    .set("1", windowMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.error("Recording write for userId : {} failed", userId, e);
+        }
+    }
+
+    /**
+     * 최근에 쓴 사용자면 primary 에서, 아니면 트랜잭션 속성대로 읽는다.
+     * Redis 를 확인할 수 없으면 primary 에서 읽는다.
+     */
+    public <T> T read(Long userId, Supplier<T> reader) {
+        if (!enabled) {
+            return reader.get();
+        }
+        return recentlyWrote(userId) ? DataSourceRouteContext.onPrimary(reader) : reader.get();
+    }
+
+    /**
+     * replica 에서 못 찾으면 아직 복제되지 않았을 수 있으므로 primary 에서 한 번 더 찾는다.
+     */
+    public <T> Optional<T> findWithPrimaryFallback(Supplier<Optional<T>> finder) {
+        Optional<T> found = finder.get();
+        if (found.isPresent() || !enabled) {
+            return found;
+        }
+        return DataSourceRouteContext.onPrimary(finder);
+    }
+
+    private boolean recentlyWrote(Long userId) {
+        try {
+            return redissonClient.getBucket(getKey(userId), StringCodec.INSTANCE).isExists();
+        } catch (Exception e) {
+            log.error("Read-your-writes lookup for userId : {} failed", userId, e);
+            return true;
+        }
+    }
+
+    private String getKey(Long userId) {
+        return "RYW: " + userId;
+    }
+}
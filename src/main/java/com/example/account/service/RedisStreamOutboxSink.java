@@ -0,0 +1,69 @@
+package com.example.account.service;
+
+import com.example.account.dto.OutboxMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.redisson.api.RBatch;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis stream 에 XADD 한다. 묶음 전체를 RBatch 로 보내 Redis 왕복은 한 번이다.
+ * stream 은 대략 max-length 건으로 잘라 Redis 메모리가 끝없이 늘지 않게 한다.
+ * 소비하는 쪽은 consumer group 으로 읽고 자기 offset(stream id)을 관리한다.
+ */
+@Component
+@ConditionalOnProperty(name = "account.outbox.sink", havingValue = "redis-stream")
+public class RedisStreamOutboxSink implements OutboxSink {
+    private final RedissonClient redissonClient;
+    private final ObjectWriter objectWriter;
+    private final String streamName;
+    private final int maxLength;
+
+    public RedisStreamOutboxSink(
+            RedissonClient redissonClient,
+            ObjectMapper objectMapper,
+            @Value("${account.outbox.redis-stream.name:account-transactions}") String streamName,
+            @Value("${account.outbox.redis-stream.max-length:100000}") int maxLength
+    ) {
+        this.redissonClient = redissonClient;
+        this.objectWriter = objectMapper.writerFor(OutboxMessage.class);
+        this.streamName = streamName;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void publish(List<OutboxMessage> messages) {
+        RBatch batch = redissonClient.createBatch();
+        RStreamAsync<String, String> stream = batch.getStream(streamName, StringCodec.INSTANCE);
+        for (OutboxMessage message : messages) {
+            stream.addAsync(StreamAddArgs.entries(fields(message))
+                    .trimNonStrict().maxLen(maxLength).noLimit());
+        }
+        batch.execute();
+    }
+
+    private Map<String, String> fields(OutboxMessage message) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("accountNumber", message.getAccountNumber());
+        fields.put("eventSeq", String.valueOf(message.getEventSeq()));
+        fields.put("transactionId", message.getTransactionId());
+        try {
+            fields.put("event", objectWriter.writeValueAsString(message));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.account.service;
+
+import com.example.account.aop.AccountShard;
+import com.example.account.config.ShardContext;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * @AccountShard 메서드를 계좌번호의 shard 에서 실행한다.
+ * @Transactional 보다 먼저 적용되어야 트랜잭션 커넥션이 그 shard 에서 열린다.
+ * (트랜잭션 advisor 는 LOWEST_PRECEDENCE. HIGHEST_PRECEDENCE 는 ExposeInvocationInterceptor 보다 앞서 인자 바인딩이 안 된다.)
+ */
+@Aspect
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class ShardAspect {
+    private final ShardRouter shardRouter;
+
+    @Around("@annotation(accountShard)")
+    public Object aroundMethod(ProceedingJoinPoint pjp, AccountShard accountShard) throws Throwable {
+        if (!shardRouter.isSharded()) {
+            return pjp.proceed();
+        }
+
+        String accountNumber = accountNumberOf(pjp, accountShard.value());
+        return ShardContext.call(shardRouter.shardOf(accountNumber), pjp::proceed);
+    }
+
+    private String accountNumberOf(ProceedingJoinPoint pjp, String parameterName) {
+        String[] parameterNames = ((MethodSignature) pjp.getSignature()).getParameterNames();
+        for (int i = 0; i < parameterNames.length; i++) {
+            if (parameterNames[i].equals(parameterName)) {
+                return (String) pjp.getArgs()[i];
+            }
+        }
+        throw new IllegalStateException(
+                "No parameter " + parameterName + " on " + pjp.getSignature().toShortString());
+    }
+}
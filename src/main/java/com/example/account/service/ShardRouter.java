@@ -0,0 +1,114 @@
+package com.example.account.service;
+
+import com.example.account.config.ShardContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 계좌번호 hash 로 shard 를 정하고, 정한 shard 에서 작업을 실행한다.
+ * shard 가 하나면 (account.sharding.urls 미지정) 아무것도 바꾸지 않고 그대로 실행한다.
+ *
+ * hash 는 계좌번호 문자만으로 정해지므로 노드나 재시작과 관계없이 같은 shard 가 나온다.
+ * shard 수를 바꾸면 기존 계좌를 옮겨야 한다.
+ */
+@Component
+public class ShardRouter {
+    private final int shardCount;
+
+    public ShardRouter(@Value("${account.sharding.urls:}") String urls) {
+        this.shardCount = urls.isEmpty() ? 1 : urls.split(",").length;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int shardOf(String accountNumber) {
+        return isSharded() ? shardOf(accountNumber, shardCount) : ShardContext.HOME_SHARD;
+    }
+
+    public boolean isHomeShard(String accountNumber) {
+        return shardOf(accountNumber) == ShardContext.HOME_SHARD;
+    }
+
+    public <T> T onAccountShard(String accountNumber, Supplier<T> work) {
+        return isSharded() ? ShardContext.onShard(shardOf(accountNumber), work) : work.get();
+    }
+
+    public <T> T onHomeShard(Supplier<T> work) {
+        return isSharded() ? ShardContext.onShard(ShardContext.HOME_SHARD, work) : work.get();
+    }
+
+    /**
+     * 모든 shard 에서 실행한 결과를 shard 순서대로 이어 붙인다. (사용자별 조회 fan-out)
+     */
+    public <T> List<T> collectFromAllShards(Supplier<List<T>> work) {
+        if (!isSharded()) {
+            return work.get();
+        }
+
+        List<T> results = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.addAll(ShardContext.onShard(shard, work));
+        }
+        return results;
+    }
+
+    /**
+     * 계좌번호를 모르는 단건 조회. 찾을 때까지 shard 를 차례로 확인한다.
+     */
+    public <T> Optional<T> findOnAnyShard(Supplier<Optional<T>> finder) {
+        if (!isSharded()) {
+            return finder.get();
+        }
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            Optional<T> found = ShardContext.onShard(shard, finder);
+            if (found.isPresent()) {
+                return found;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * shard 마다 차례로 실행한다. 인자는 shard 번호. (shard 별 배경 작업)
+     */
+    public void runOnEachShard(IntConsumer work) {
+        if (!isSharded()) {
+            work.accept(ShardContext.HOME_SHARD);
+            return;
+        }
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            ShardContext.onShard(shard, () -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * FNV-1a 뒤에 비트를 한 번 더 섞어 연속된 계좌번호도 고르게 나눈다.
+     */
+    static int shardOf(String accountNumber, int shardCount) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            hash ^= accountNumber.charAt(i);
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, shardCount);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionExportRow;
+import com.example.account.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 기간 내 거래를 NDJSON(한 줄에 거래 하나)으로 내보낸다.
+ * DB 커서로 한 줄씩 읽어 바로 쓰므로 기간이 길어도 메모리 사용량이 늘지 않는다.
+ * 커서 하나로 기간 순서를 보장하므로 shard 로 나눈 구성에서는 지원하지 않는다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+
+    /**
+     * @return 내보낸 거래 수
+     */
+    @Transactional(readOnly = true)
+    public long export(LocalDateTime from, LocalDateTime to, OutputStream outputStream)
+            throws IOException {
+        if (shardRouter.isSharded()) {
+            throw new IllegalStateException("Transaction export is not supported with account.sharding.urls");
+        }
+
+        long count = 0;
+        // 응답 stream 은 마지막 줄바꿈을 쓴 뒤 컨테이너가 닫는다.
+        try (Stream<TransactionExportRow> rows = transactionRepository.streamForExport(from, to);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+             SequenceWriter writer = objectMapper.writerFor(TransactionExportRow.class)
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(generator)) {
+            Iterator<TransactionExportRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                count++;
+            }
+        }
+        if (count > 0) {
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+
+        log.info("Exported {} transactions from {} to {}", count, from, to);
+        return count;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.account.service;
+
+/**
+ * 거래 아이디 생성기. account.transaction-id.type 으로 구현을 고른다. (time-ordered | uuid)
+ */
+public interface TransactionIdGenerator {
+    String generate();
+}
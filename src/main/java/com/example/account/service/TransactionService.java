@@ -1,47 +1,102 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountShard;
+import com.example.account.cache.AccountListCache;
+import com.example.account.cache.TransactionCache;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
+import com.example.account.domain.PendingTransfer;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.BalanceUpdateResult;
+import com.example.account.dto.HistoryCursor;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.PendingTransferRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
+import com.example.account.type.ConcurrencyMode;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.LatencyPoint;
 import com.example.account.type.TransactionResultType;
 import com.example.account.type.TransactionType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.validation.constraints.*;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_IN;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
 import static com.example.account.type.TransactionType.USE;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TransactionService {
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final TransactionRepository transactionRepository;
+    private final PendingTransferRepository pendingTransferRepository;
     private final AccountUserRepository accountUserRepository;
     private final AccountRepository accountRepository;
+    private final LatencyInjector latencyInjector;
+    private final TransactionIdGenerator transactionIdGenerator;
+    private final TransactionCache transactionCache;
+    private final AccountListCache accountListCache;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ShardRouter shardRouter;
+    private final OutboxService outboxService;
+    private final HotBalanceService hotBalanceService;
+    private final PartitionedBalanceEngine partitionedBalanceEngine;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${account.concurrency.mode:REDIS_LOCK}")
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.REDIS_LOCK;
 
     /**
      * 사용자 없는 경우, 사용자 아이디와 계좌 소유주가 다른 경우,
      *  계좌가 이미 해지 상태인 경우, 거래금액이 잔액보다 큰 경우,
      *  거래금액이 너무 작거나 큰 경우 실패 응답
+     * Redis 잔액 계좌는 HotBalanceService 가 처리하고 DB 에는 HotBalanceWriter 가 나중에 반영한다.
+     * PARTITIONED 모드는 커밋을 기다리는 동안 커넥션을 잡지 않도록 트랜잭션 밖에서 엔진에 넘긴다.
      */
-    @Transactional
+    @AccountShard
     public TransactionDto useBalance(Long userId, String accountNumber, Long amount){
+        if (hotBalanceService.isHot(accountNumber)) {
+            return hotBalanceService.useBalance(userId, accountNumber, amount);
+        }
+        if (concurrencyMode == ConcurrencyMode.PARTITIONED) {
+            return partitionedBalanceEngine.useBalance(userId, accountNumber, amount);
+        }
+
+        return transactionTemplate.execute(status -> concurrencyMode == ConcurrencyMode.ATOMIC_UPDATE
+                ? useBalanceAtomically(userId, accountNumber, amount)
+                : useBalanceOnAccount(userId, accountNumber, amount));
+    }
+
+    private TransactionDto useBalanceOnAccount(Long userId, String accountNumber, Long amount) {
         AccountUser user = accountUserRepository.findById(userId)
                 .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
 
@@ -52,28 +107,79 @@ public class TransactionService {
         validateUseBalance(user, account, amount);
 
         account.useBalance(amount);
+        accountListCache.evictAfterCommit(user.getId());
 
         return TransactionDto.fromEntity(
                 saveAndGetTransaction(USE, S, account, amount));
     }
 
+    /**
+     * 조건부 UPDATE 한 문장으로 검증과 차감을 함께 처리한다. (lock 불필요)
+     * 차감되지 않은 경우에만 계좌를 조회해 실패 사유를 찾는다.
+     */
+    private TransactionDto useBalanceAtomically(Long userId, String accountNumber, Long amount) {
+        BalanceUpdateResult result = accountRepository.debitBalance(
+                userId, accountNumber, amount, LocalDateTime.now());
+
+        if (!result.isUpdated()) {
+            AccountUser user = accountUserRepository.findById(userId)
+                    .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+            Account account = accountRepository.findByAccountNumber(accountNumber)
+                    .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+            validateUseBalance(user, account, amount);
+            throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+        }
+        accountListCache.evictAfterCommit(result.getAccountUserId());
+
+        return TransactionDto.fromEntity(
+                saveAndGetTransaction(USE, S,
+                        accountRepository.getById(result.getAccountId()),
+                        amount, result.getBalance()));
+    }
+
     private Transaction saveAndGetTransaction(
             TransactionType transactionType,
             TransactionResultType transactionResultType,
             Account account,
             Long amount) {
 
-        return transactionRepository.save(
-                Transaction.builder()
-                        .transactionType(transactionType)
-                        .transactionResultType(transactionResultType)
-                        .account(account)
-                        .amount(amount)
-                        .balanceSnapshot(account.getBalance())
-                        .transactionId(UUID.randomUUID().toString().replace("-", ""))
-                        .transactedAt(LocalDateTime.now())
-                        .build()
-        );
+        return saveAndGetTransaction(
+                transactionType, transactionResultType, account, amount, account.getBalance());
+    }
+
+    private Transaction saveAndGetTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount,
+            Long balanceSnapshot) {
+
+        Transaction transaction = transactionRepository.save(newTransaction(
+                transactionType, transactionResultType, account, amount, balanceSnapshot));
+        outboxService.append(transaction);
+        transactionCache.putAfterCommit(transaction);
+        latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+
+        return transaction;
+    }
+
+    private Transaction newTransaction(
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            Account account,
+            Long amount,
+            Long balanceSnapshot) {
+
+        return Transaction.builder()
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .account(account)
+                .amount(amount)
+                .balanceSnapshot(balanceSnapshot)
+                .transactionId(transactionIdGenerator.generate())
+                .transactedAt(LocalDateTime.now())
+                .build();
     }
 
     private void validateUseBalance(AccountUser user, Account account, Long amount) {
@@ -91,6 +197,55 @@ public class TransactionService {
 
     }
 
+    /**
+     * 같은 계좌의 잔액 사용 요청들을 한 트랜잭션에서 순서대로 처리한다.
+     * 건별로 검증해 실패한 건은 실패 거래로 남기고, 거래는 saveAll 로 한 번에 저장한다.
+     * 계좌가 없으면 그룹 전체가 ACCOUNT_NOT_FOUND.
+     */
+    @AccountShard
+    @Transactional
+    public List<UseBalanceBatch.Result> useBalanceGroup(
+            String accountNumber, List<UseBalance.Request> items
+    ) {
+        hotBalanceService.requireNotHot(accountNumber);
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        Map<Long, Optional<AccountUser>> users = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(items.size());
+        List<ErrorCode> errorCodes = new ArrayList<>(items.size());
+        for (UseBalance.Request item : items) {
+            try {
+                AccountUser user = users.computeIfAbsent(item.getUserId(), accountUserRepository::findById)
+                        .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+                validateUseBalance(user, account, item.getAmount());
+
+                account.useBalance(item.getAmount());
+                transactions.add(newTransaction(USE, S, account, item.getAmount(), account.getBalance()));
+                errorCodes.add(null);
+            } catch (AccountException e) {
+                transactions.add(newTransaction(USE, F, account, item.getAmount(), account.getBalance()));
+                errorCodes.add(e.getErrorCode());
+            }
+        }
+        transactionRepository.saveAll(transactions);
+        outboxService.append(transactions);
+        transactions.forEach(transactionCache::putAfterCommit);
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
+        latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+
+        List<UseBalanceBatch.Result> results = new ArrayList<>(items.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            results.add(errorCodes.get(i) == null
+                    ? UseBalanceBatch.Result.success(accountNumber, TransactionDto.fromEntity(transaction))
+                    : UseBalanceBatch.Result.fail(accountNumber, transaction.getAmount(),
+                            transaction.getTransactionId(), errorCodes.get(i)));
+        }
+        return results;
+    }
+
+    @AccountShard
     @Transactional
     public void saveFailedUseTransaction(String accountNumber, Long amount) {
         Account account = accountRepository.findByAccountNumber(accountNumber)
@@ -99,24 +254,260 @@ public class TransactionService {
         saveAndGetTransaction(USE, F, account, amount);
     }
 
+    /**
+     * 출금 계좌에서 차감하고 입금 계좌에 더한 뒤, 서로를 가리키는 출금/입금 거래를 함께 저장한다.
+     * 두 계좌의 lock 은 호출하는 쪽(TransferService)에서 잡는다.
+     * 두 계좌가 같은 shard 에 있을 때만 사용한다. (다른 shard 면 transferOut / transferIn)
+     */
+    @AccountShard("fromAccountNumber")
     @Transactional
-    public TransactionDto cancelBalance(
-            String transactionId, String accountNumber, Long amount
+    public TransactionDto transferBalance(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
     ) {
-        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
-                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+        if (Objects.equals(fromAccountNumber, toAccountNumber)) {
+            throw new AccountException(ErrorCode.SAME_ACCOUNT_TRANSFER);
+        }
+        hotBalanceService.requireNotHot(fromAccountNumber, toAccountNumber);
+
+        AccountUser user = accountUserRepository.findById(userId)
+                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateUseBalance(user, fromAccount, amount);
+        if (toAccount.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(ErrorCode.ALREADY_UNREGISTERED);
+        }
 
+        fromAccount.useBalance(amount);
+        toAccount.cancelBalance(amount);
+        accountListCache.evictAfterCommit(fromAccount.getAccountUser().getId());
+        accountListCache.evictAfterCommit(toAccount.getAccountUser().getId());
+
+        Transaction transferOut = newTransaction(
+                TRANSFER_OUT, S, fromAccount, amount, fromAccount.getBalance());
+        Transaction transferIn = newTransaction(
+                TRANSFER_IN, S, toAccount, amount, toAccount.getBalance());
+        transferOut.setLinkedTransactionId(transferIn.getTransactionId());
+        transferIn.setLinkedTransactionId(transferOut.getTransactionId());
+        transactionRepository.saveAll(Arrays.asList(transferOut, transferIn));
+        outboxService.append(Arrays.asList(transferOut, transferIn));
+        transactionCache.putAfterCommit(transferOut);
+        transactionCache.putAfterCommit(transferIn);
+        latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+
+        return TransactionDto.fromEntity(transferOut);
+    }
+
+    /**
+     * 다른 shard 로의 이체에서 출금 전에 입금 계좌가 사용 중인지 확인한다.
+     */
+    @AccountShard
+    @Transactional(readOnly = true)
+    public void validateTransferTarget(String accountNumber) {
+        hotBalanceService.requireNotHot(accountNumber);
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
-        validateCancelBalance(transaction, account, amount);
+        if (account.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(ErrorCode.ALREADY_UNREGISTERED);
+        }
+    }
+
+    /**
+     * 다른 shard 로의 이체 1단계. 출금 계좌 shard 에서 차감하고 출금 거래를 저장한다.
+     * 입금 거래 아이디를 미리 만들어 linkedTransactionId 로 남기고, transferIn 이 그 아이디로 입금 거래를 저장한다.
+     * 입금이나 되돌리기가 끝날 때까지 남는 PendingTransfer 를 같은 트랜잭션으로 저장한다.
+     */
+    @AccountShard("fromAccountNumber")
+    @Transactional
+    public TransactionDto transferOut(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
+    ) {
+        hotBalanceService.requireNotHot(fromAccountNumber);
+        AccountUser user = accountUserRepository.findById(userId)
+                .orElseThrow(() -> new AccountException(ErrorCode.USER_NOT_FOUND));
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateUseBalance(user, fromAccount, amount);
+
+        fromAccount.useBalance(amount);
+        accountListCache.evictAfterCommit(user.getId());
+
+        Transaction transferOut = newTransaction(
+                TRANSFER_OUT, S, fromAccount, amount, fromAccount.getBalance());
+        transferOut.setLinkedTransactionId(transactionIdGenerator.generate());
+        transactionRepository.save(transferOut);
+        pendingTransferRepository.save(PendingTransfer.builder()
+                .transferOutTransactionId(transferOut.getTransactionId())
+                .transferInTransactionId(transferOut.getLinkedTransactionId())
+                .fromAccountNumber(fromAccountNumber)
+                .toAccountNumber(toAccountNumber)
+                .amount(amount)
+                .createdAt(transferOut.getTransactedAt())
+                .build());
+        outboxService.append(transferOut);
+        transactionCache.putAfterCommit(transferOut);
+        latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+
+        return TransactionDto.fromEntity(transferOut);
+    }
+
+    /**
+     * 다른 shard 로의 이체 2단계. 입금 계좌 shard 에서 더하고 transferOut 이 정해 둔 아이디로 입금 거래를 저장한다.
+     * 그 아이디의 입금 거래가 이미 있으면 다시 더하지 않고 그 거래를 돌려준다. (재시도 / sweeper)
+     * 확인 뒤 Redis 잔액 계좌가 되었으면 DB 에 더한 값을 write-behind 가 덮어쓰므로 다시 확인한다.
+     */
+    @AccountShard("toAccountNumber")
+    @Transactional
+    public TransactionDto transferIn(
+            String toAccountNumber, Long amount, String transactionId, String transferOutTransactionId
+    ) {
+        Optional<Transaction> existing = transactionRepository.findByTransactionId(transactionId);
+        if (existing.isPresent()) {
+            return TransactionDto.fromEntity(existing.get());
+        }
+
+        hotBalanceService.requireNotHot(toAccountNumber);
+        Account toAccount = accountRepository.findByAccountNumber(toAccountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+        if (toAccount.getAccountStatus() != AccountStatus.IN_USE) {
+            throw new AccountException(ErrorCode.ALREADY_UNREGISTERED);
+        }
+
+        toAccount.cancelBalance(amount);
+        accountListCache.evictAfterCommit(toAccount.getAccountUser().getId());
+
+        Transaction transferIn = newTransaction(
+                TRANSFER_IN, S, toAccount, amount, toAccount.getBalance());
+        transferIn.setTransactionId(transactionId);
+        transferIn.setLinkedTransactionId(transferOutTransactionId);
+        transactionRepository.save(transferIn);
+        outboxService.append(transferIn);
+        transactionCache.putAfterCommit(transferIn);
+        latencyInjector.pause(LatencyPoint.BEFORE_COMMIT);
+
+        return TransactionDto.fromEntity(transferIn);
+    }
+
+    /**
+     * 입금 계좌가 입금을 거절하면 출금액을 되돌리고, 원 출금 거래를 가리키는 취소 거래를 남긴다.
+     * PendingTransfer 를 지운 쪽만 되돌리므로 이미 끝난 이체면 아무것도 하지 않는다.
+     */
+    @AccountShard("fromAccountNumber")
+    @Transactional
+    public Optional<TransactionDto> cancelTransferOut(
+            String fromAccountNumber, Long amount, String transferOutTransactionId
+    ) {
+        if (pendingTransferRepository.deleteByTransferOutTransactionId(transferOutTransactionId) == 0) {
+            return Optional.empty();
+        }
+
+        Account fromAccount = accountRepository.findByAccountNumber(fromAccountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        fromAccount.cancelBalance(amount);
+        accountListCache.evictAfterCommit(fromAccount.getAccountUser().getId());
+
+        Transaction cancel = newTransaction(CANCEL, S, fromAccount, amount, fromAccount.getBalance());
+        cancel.setLinkedTransactionId(transferOutTransactionId);
+        transactionRepository.save(cancel);
+        outboxService.append(cancel);
+        transactionCache.putAfterCommit(cancel);
+
+        return Optional.of(TransactionDto.fromEntity(cancel));
+    }
+
+    /**
+     * 입금이 커밋된 이체의 PendingTransfer 를 지운다.
+     */
+    @AccountShard("fromAccountNumber")
+    @Transactional
+    public void completeTransfer(String fromAccountNumber, String transferOutTransactionId) {
+        pendingTransferRepository.deleteByTransferOutTransactionId(transferOutTransactionId);
+    }
+
+    /**
+     * 출금 계좌 shard 의 primary 에서 이체가 아직 끝나지 않았는지 확인한다.
+     */
+    @AccountShard("fromAccountNumber")
+    @Transactional
+    public boolean isTransferPending(String fromAccountNumber, String transferOutTransactionId) {
+        return pendingTransferRepository.existsById(transferOutTransactionId);
+    }
+
+    @AccountShard
+    @Transactional
+    public void saveFailedTransferTransaction(String accountNumber, Long amount) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        saveAndGetTransaction(TRANSFER_OUT, F, account, amount);
+    }
+
+    /**
+     * PARTITIONED 모드는 원 거래 검증만 트랜잭션에서 하고, 잔액 반영은 트랜잭션 밖에서 엔진에 넘긴다.
+     */
+    @AccountShard
+    public TransactionDto cancelBalance(
+            String transactionId, String accountNumber, Long amount
+    ) {
+        if (concurrencyMode == ConcurrencyMode.PARTITIONED && !hotBalanceService.isHot(accountNumber)) {
+            transactionTemplate.executeWithoutResult(status -> findAndValidateCancelBalance(
+                    transactionId, accountNumber, amount));
+            return partitionedBalanceEngine.cancelBalance(accountNumber, amount);
+        }
+
+        return transactionTemplate.execute(status -> cancelBalanceOnAccount(transactionId, accountNumber, amount));
+    }
+
+    private TransactionDto cancelBalanceOnAccount(String transactionId, String accountNumber, Long amount) {
+        Account account = findAndValidateCancelBalance(transactionId, accountNumber, amount);
+
+        if (hotBalanceService.isHot(accountNumber)) {
+            return hotBalanceService.cancelBalance(accountNumber, amount);
+        }
+        if (concurrencyMode == ConcurrencyMode.ATOMIC_UPDATE) {
+            return cancelBalanceAtomically(account, amount);
+        }
 
         account.cancelBalance(amount);
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
 
         return TransactionDto.fromEntity(
                 saveAndGetTransaction(CANCEL, S, account, amount));
     }
 
+    private TransactionDto cancelBalanceAtomically(Account account, Long amount) {
+        if (amount < 0) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        BalanceUpdateResult result = accountRepository.creditBalance(
+                account.getId(), account.getAccountNumber(), amount, LocalDateTime.now());
+        if (!result.isUpdated()) {
+            throw new AccountException(ErrorCode.ACCOUNT_NOT_FOUND);
+        }
+        accountListCache.evictAfterCommit(account.getAccountUser().getId());
+
+        return TransactionDto.fromEntity(
+                saveAndGetTransaction(CANCEL, S, account, amount, result.getBalance()));
+    }
+
+    private Account findAndValidateCancelBalance(String transactionId, String accountNumber, Long amount) {
+        Transaction transaction = transactionRepository.findByTransactionId(transactionId)
+                .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND));
+
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        validateCancelBalance(transaction, account, amount);
+        return account;
+    }
+
     private void validateCancelBalance(Transaction transaction, Account account, Long amount) {
         if(!Objects.equals(transaction.getAccount().getId(), account.getId()))
             throw new AccountException(ErrorCode.TRANSACTION_ACCOUNT_UN_MATCH);
@@ -127,8 +518,14 @@ public class TransactionService {
         if(transaction.getTransactedAt().isBefore(LocalDateTime.now().minusYears(1)))
             throw new AccountException(ErrorCode.TOO_OLD_ORDER_TO_CANCEL);
 
+        // 이체 출금/입금, 취소 거래를 취소하면 상대 계좌와 맞지 않는 돈이 생긴다.
+        if(transaction.getTransactionType() != USE || transaction.getTransactionResultType() != S)
+            throw new AccountException(ErrorCode.CANCEL_ONLY_USE);
+
     }
 
+    @AccountShard
+    @Transactional
     public void saveFailedCancelTransaction(String accountNumber, Long amount) {
         Account account = accountRepository.findByAccountNumber(accountNumber)
                 .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
@@ -136,11 +533,68 @@ public class TransactionService {
         saveAndGetTransaction(CANCEL, F, account, amount);
     }
 
+    /**
+     * 계좌 거래 내역을 최신순으로 size 건씩 조회한다.
+     * cursor 는 이전 페이지 응답의 nextCursor 이고, 첫 페이지는 null.
+     * replica 에서 읽으므로 복제 지연만큼 최근 거래가 늦게 보일 수 있다.
+     */
+    @AccountShard
+    @Transactional(readOnly = true)
+    public TransactionHistoryDto getTransactionHistory(
+            String accountNumber,
+            TransactionType transactionType,
+            TransactionResultType transactionResultType,
+            String cursor,
+            int size
+    ) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new AccountException(ErrorCode.INVALID_REQUEST);
+        }
+
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        // 한 건 더 읽어서 다음 페이지가 있는지 확인
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<Transaction> transactions;
+        if (cursor == null) {
+            transactions = transactionRepository.findHistory(
+                    account, transactionType, transactionResultType, pageable);
+        } else {
+            HistoryCursor historyCursor = HistoryCursor.decode(cursor);
+            transactions = transactionRepository.findHistoryAfter(
+                    account, transactionType, transactionResultType,
+                    historyCursor.getTransactedAt(), historyCursor.getId(), pageable);
+        }
+
+        boolean hasNext = transactions.size() > size;
+        List<Transaction> page = hasNext ? transactions.subList(0, size) : transactions;
+
+        return TransactionHistoryDto.builder()
+                .transactions(page.stream()
+                        .map(TransactionDto::fromEntity)
+                        .collect(Collectors.toList()))
+                .nextCursor(hasNext ? HistoryCursor.from(page.get(size - 1)).encode() : null)
+                .build();
+    }
+
+    /**
+     * 거래는 커밋 후 바뀌지 않으므로 캐시에 있으면 DB 를 조회하지 않는다.
+     * replica 에서 못 찾으면 primary 에서 한 번 더 찾는다.
+     * 거래 아이디로는 shard 를 알 수 없으므로 shard 를 차례로 확인한다.
+     */
     public TransactionDto queryTransaction(String transactionId) {
+        Optional<TransactionDto> cached = transactionCache.get(transactionId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
 
-        return TransactionDto.fromEntity(
-                transactionRepository.findByTransactionId(transactionId)
+        TransactionDto transactionDto = TransactionDto.fromEntity(
+                shardRouter.findOnAnyShard(() -> readYourWritesTracker.findWithPrimaryFallback(
+                                () -> transactionRepository.findWithAccountByTransactionId(transactionId)))
                         .orElseThrow(() -> new AccountException(ErrorCode.TRANSACTION_NOT_FOUND))
         );
+        transactionCache.put(transactionDto);
+        return transactionDto;
     }
 }
@@ -0,0 +1,189 @@
+package com.example.account.service;
+
+import com.example.account.domain.PendingTransfer;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 계좌 간 이체. 두 계좌의 lock 을 LockService.lockAll 로 정해진 순서대로 잡은 뒤
+ * 한 DB 트랜잭션에서 출금/입금을 처리한다.
+ * 두 계좌가 다른 shard 에 있으면 출금/입금을 각 shard 에서 따로 커밋하고, 입금 계좌가 거절하면 출금을 되돌린다.
+ * 출금과 함께 저장한 PendingTransfer 가 남은 이체는 PendingTransferSweeper 가 마무리한다.
+ * PARTITIONED 모드에서는 출금 계좌의 partition 에서 실행하고, 입금 계좌의 메모리 잔액은 끝난 뒤 버린다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransferService {
+    private static final long WAIT_TIME_MILLIS = 3_000L;
+    private static final long LEASE_TIME_MILLIS = 3_000L;
+
+    private final TransactionService transactionService;
+    private final LockService lockService;
+    private final OptimisticRetryService optimisticRetryService;
+    private final ShardRouter shardRouter;
+    private final PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @Value("${account.concurrency.mode:REDIS_LOCK}")
+    private ConcurrencyMode concurrencyMode = ConcurrencyMode.REDIS_LOCK;
+
+    public TransactionDto transferBalance(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
+    ) {
+        if (concurrencyMode != ConcurrencyMode.PARTITIONED) {
+            return transfer(userId, fromAccountNumber, toAccountNumber, amount);
+        }
+
+        try {
+            return partitionedBalanceEngine.runExclusive(fromAccountNumber,
+                    () -> transfer(userId, fromAccountNumber, toAccountNumber, amount));
+        } finally {
+            partitionedBalanceEngine.invalidate(toAccountNumber);
+        }
+    }
+
+    private TransactionDto transfer(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
+    ) {
+        if (shardRouter.shardOf(fromAccountNumber) != shardRouter.shardOf(toAccountNumber)) {
+            return transferAcrossShards(userId, fromAccountNumber, toAccountNumber, amount);
+        }
+        if (concurrencyMode != ConcurrencyMode.REDIS_LOCK) {
+            return transferWithRetry(userId, fromAccountNumber, toAccountNumber, amount);
+        }
+
+        List<String> locked = lockService.lockAll(
+                Arrays.asList(fromAccountNumber, toAccountNumber),
+                WAIT_TIME_MILLIS, LEASE_TIME_MILLIS, false);
+        try {
+            return transactionService.transferBalance(
+                    userId, fromAccountNumber, toAccountNumber, amount);
+        } finally {
+            lockService.unLockAll(locked);
+        }
+    }
+
+    /**
+     * 두 shard 를 한 트랜잭션으로 묶을 수 없으므로 모드와 관계없이 두 계좌를 잠근 채
+     * 1. 입금 계좌 확인 2. 출금 + PendingTransfer 커밋 3. 입금 커밋 4. PendingTransfer 삭제 순으로 처리한다.
+     * lock 을 잡지 않는 모드의 요청과는 @Version 으로 충돌할 수 있어 각 단계를 재시도한다.
+     */
+    private TransactionDto transferAcrossShards(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
+    ) {
+        List<String> locked = lockService.lockAll(
+                Arrays.asList(fromAccountNumber, toAccountNumber),
+                WAIT_TIME_MILLIS, LEASE_TIME_MILLIS, false);
+        try {
+            transactionService.validateTransferTarget(toAccountNumber);
+            TransactionDto transferOut = (TransactionDto) retryOnConflict("transferOut",
+                    () -> transactionService.transferOut(userId, fromAccountNumber, toAccountNumber, amount));
+            settle(fromAccountNumber, toAccountNumber, amount,
+                    transferOut.getTransactionId(), transferOut.getLinkedTransactionId());
+            return transferOut;
+        } finally {
+            lockService.unLockAll(locked);
+        }
+    }
+
+    /**
+     * 출금만 커밋된 채 남은 이체를 마무리한다. (PendingTransferSweeper)
+     * 요청 처리 중인 이체와 겹치지 않도록 두 계좌를 잠근 뒤 primary 에서 아직 남아 있는지 다시 확인한다.
+     */
+    public void settlePending(PendingTransfer pending) {
+        String fromAccountNumber = pending.getFromAccountNumber();
+        String toAccountNumber = pending.getToAccountNumber();
+        List<String> locked = lockService.lockAll(
+                Arrays.asList(fromAccountNumber, toAccountNumber),
+                WAIT_TIME_MILLIS, LEASE_TIME_MILLIS, false);
+        try {
+            if (!transactionService.isTransferPending(
+                    fromAccountNumber, pending.getTransferOutTransactionId())) {
+                return;
+            }
+            settle(fromAccountNumber, toAccountNumber, pending.getAmount(),
+                    pending.getTransferOutTransactionId(), pending.getTransferInTransactionId());
+            log.info("Settled pending transfer {}", pending.getTransferOutTransactionId());
+        } catch (AccountException e) {
+            log.info("Cancelled pending transfer {} : {}", pending.getTransferOutTransactionId(), e.getErrorCode());
+        } finally {
+            lockService.unLockAll(locked);
+            if (concurrencyMode == ConcurrencyMode.PARTITIONED) {
+                partitionedBalanceEngine.invalidate(fromAccountNumber);
+                partitionedBalanceEngine.invalidate(toAccountNumber);
+            }
+        }
+    }
+
+    /**
+     * 입금을 커밋하고 PendingTransfer 를 지운다. 입금은 미리 정한 아이디로 한 번만 저장된다.
+     * 입금 계좌가 거절하면(AccountException, 입금은 롤백됨) 출금을 되돌리고 그 예외를 던진다.
+     * 그 밖의 실패는 입금 커밋 여부를 알 수 없으므로 PendingTransfer 를 남겨 sweeper 가 다시 시도하게 한다.
+     */
+    private void settle(
+            String fromAccountNumber, String toAccountNumber, Long amount,
+            String transferOutTransactionId, String transferInTransactionId
+    ) {
+        try {
+            retryOnConflict("transferIn", () -> transactionService.transferIn(
+                    toAccountNumber, amount, transferInTransactionId, transferOutTransactionId));
+        } catch (AccountException e) {
+            compensate(fromAccountNumber, amount, transferOutTransactionId);
+            throw e;
+        }
+
+        try {
+            transactionService.completeTransfer(fromAccountNumber, transferOutTransactionId);
+        } catch (RuntimeException e) {
+            // 입금은 커밋되었다. 남은 PendingTransfer 는 sweeper 가 입금을 확인하고 지운다.
+            log.warn("Failed to complete transfer {}", transferOutTransactionId, e);
+        }
+    }
+
+    private void compensate(String fromAccountNumber, Long amount, String transferOutTransactionId) {
+        try {
+            retryOnConflict("cancelTransferOut", () -> transactionService.cancelTransferOut(
+                    fromAccountNumber, amount, transferOutTransactionId));
+        } catch (RuntimeException e) {
+            // PendingTransfer 가 남아 있으므로 sweeper 가 다시 되돌린다.
+            log.error("Compensation failed for transferOut {}", transferOutTransactionId, e);
+        }
+    }
+
+    private Object retryOnConflict(String operation, OptimisticRetryService.Attempt attempt) {
+        try {
+            return concurrencyMode == ConcurrencyMode.REDIS_LOCK
+                    ? attempt.run()
+                    : optimisticRetryService.execute(operation, attempt);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * lock 없이 처리하는 모드에서는 두 계좌의 @Version 충돌 시 재시도
+     */
+    private TransactionDto transferWithRetry(
+            Long userId, String fromAccountNumber, String toAccountNumber, Long amount
+    ) {
+        try {
+            return (TransactionDto) optimisticRetryService.execute("transferBalance",
+                    () -> transactionService.transferBalance(
+                            userId, fromAccountNumber, toAccountNumber, amount));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.account.service;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Locale;
+
+/**
+ * 저장 실패가 어느 unique 제약 위반인지 확인한다.
+ * 제약 이름으로 구분하므로 다른 제약 위반(계좌번호 등)을 중복 가입 같은 업무 오류로 잘못 응답하지 않는다.
+ */
+final class UniqueConstraints {
+
+    private UniqueConstraints() {
+    }
+
+    static boolean isViolated(RuntimeException e, String constraintName) {
+        if (!(e instanceof DataIntegrityViolationException)) {
+            return false;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                ConstraintViolationException violation = (ConstraintViolationException) cause;
+                // DB 에 따라 제약 이름을 꺼내지 못하면 드라이버 메시지에서 찾는다.
+                String constraint = violation.getConstraintName() != null
+                        ? violation.getConstraintName() : violation.getSQLException().getMessage();
+                return constraint != null && constraint.toLowerCase(Locale.ROOT)
+                        .contains(constraintName.toLowerCase(Locale.ROOT));
+            }
+        }
+        return false;
+    }
+}
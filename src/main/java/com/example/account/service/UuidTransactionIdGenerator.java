@@ -0,0 +1,19 @@
+package com.example.account.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * 기존 방식의 랜덤 UUID 거래 아이디 (32자리, '-' 제외)
+ */
+@Component
+@ConditionalOnProperty(name = "account.transaction-id.type", havingValue = "uuid")
+public class UuidTransactionIdGenerator implements TransactionIdGenerator {
+
+    @Override
+    public String generate() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
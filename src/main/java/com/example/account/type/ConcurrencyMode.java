@@ -0,0 +1,12 @@
+package com.example.account.type;
+
+public enum ConcurrencyMode {
+    // Redis 분산 lock 으로 계좌를 잠그고 처리
+    REDIS_LOCK,
+    // lock 없이 @Version 충돌 시 재시도
+    OPTIMISTIC,
+    // lock 없이 조건부 UPDATE 한 문장으로 잔액 변경
+    ATOMIC_UPDATE,
+    // 계좌번호 hash 로 정한 partition thread 하나가 메모리 잔액으로 순서대로 처리하고 묶어서 커밋
+    PARTITIONED
+}
@@ -0,0 +1,8 @@
+package com.example.account.type;
+
+public enum DataSourceRoute {
+    // 쓰기와 read-your-writes 구간의 읽기
+    PRIMARY,
+    // @Transactional(readOnly = true) 읽기
+    REPLICA
+}
@@ -0,0 +1,10 @@
+package com.example.account.type;
+
+public enum LatencyPoint {
+    // 계좌 lock 획득 전 (요청 thread 를 잡지 않음)
+    BEFORE_LOCK,
+    // 계좌 lock 을 잡은 상태
+    INSIDE_LOCK,
+    // 거래 저장 후 DB 커밋 전
+    BEFORE_COMMIT
+}
@@ -0,0 +1,90 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountNumberBlockRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.AccountNumberAllocator;
+import com.example.account.service.AccountService;
+import com.example.account.service.ShardRouter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 대량 가입 시 계좌번호 발급 처리량을 블록 크기별로 비교한다.
+ * blockSize 1 은 계좌마다 DB 에서 번호를 받아오는 것과 같다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.redis.port=6386",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountOnboardingBenchmarkTest {
+    private static final int THREADS = 16;
+    private static final int ALLOCATIONS = 20_000;
+    private static final int ACCOUNTS = 2_000;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountNumberBlockRepository accountNumberBlockRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void compareBlockSizes() throws Exception {
+        LoadRunner.Result perNumber = allocate(1);
+        LoadRunner.Result leased = allocate(100);
+
+        System.out.printf("block / per-number throughput : %.2fx%n",
+                leased.throughput() / perNumber.throughput());
+    }
+
+    @Test
+    void bulkOnboarding() throws Exception {
+        Set<String> accountNumbers = ConcurrentHashMap.newKeySet();
+        LoadRunner.Result result = LoadRunner.run("onboarding", THREADS, ACCOUNTS, i -> {
+            AccountUser user = accountUserRepository.save(AccountUser.builder()
+                    .name("onboarding" + i)
+                    .privateNumber("onboarding-" + i)
+                    .registeredAt(LocalDateTime.now())
+                    .build());
+            accountNumbers.add(accountService.createAccount(user.getId(), 0L).getAccountNumber());
+        });
+
+        assertEquals(0, result.getFailures());
+        assertEquals(ACCOUNTS, accountNumbers.size());
+    }
+
+    private LoadRunner.Result allocate(int blockSize) throws InterruptedException {
+        AccountNumberAllocator allocator = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, blockSize);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        LoadRunner.Result result = LoadRunner.run("blockSize " + blockSize, THREADS, ALLOCATIONS,
+                i -> numbers.add(allocator.next()));
+
+        assertEquals(0, result.getFailures());
+        assertEquals(ALLOCATIONS, numbers.size());
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.BalanceBatchService;
+import com.example.account.service.HotBalanceService;
+import com.example.account.service.HotBalanceWriter;
+import com.example.account.service.LockService;
+import com.example.account.service.TransactionService;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.TransactionResultType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 한 계좌에 몰리는 잔액 사용 요청을
+ * Redis lock + dirty checking 경로와 조건부 UPDATE 경로, Redis 잔액 경로로 각각 처리해 비교한다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.redis.port=6380",
+        "account.hot-balance.accounts=9100000005",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class BalanceUpdateBenchmarkTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 2_000;
+    private static final long AMOUNT = 10L;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private LockService lockService;
+
+    @Autowired
+    private BalanceBatchService balanceBatchService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private HotBalanceService hotBalanceService;
+
+    @Autowired
+    private HotBalanceWriter hotBalanceWriter;
+
+    @AfterEach
+    void resetMode() {
+        setConcurrencyMode(ConcurrencyMode.REDIS_LOCK);
+    }
+
+    @Test
+    void compareLockedAndAtomicUseBalance() throws Exception {
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("bench")
+                .privateNumber("bench-balance-update")
+                .registeredAt(LocalDateTime.now())
+                .build());
+        Account locked = createAccount(user, "9100000001");
+        Account atomic = createAccount(user, "9100000002");
+
+        setConcurrencyMode(ConcurrencyMode.REDIS_LOCK);
+        LoadRunner.Result lockedResult = LoadRunner.run("redis lock", THREADS, OPERATIONS, i -> {
+            lockService.lock(locked.getAccountNumber(), 10_000L, 3_000L, false);
+            try {
+                transactionService.useBalance(user.getId(), locked.getAccountNumber(), AMOUNT);
+            } finally {
+                lockService.unLock(locked.getAccountNumber());
+            }
+        });
+
+        setConcurrencyMode(ConcurrencyMode.ATOMIC_UPDATE);
+        LoadRunner.Result atomicResult = LoadRunner.run("atomic update", THREADS, OPERATIONS, i ->
+                transactionService.useBalance(user.getId(), atomic.getAccountNumber(), AMOUNT));
+
+        System.out.printf("atomic / locked throughput : %.2fx%n",
+                atomicResult.throughput() / lockedResult.throughput());
+        assertEquals(0, lockedResult.getFailures());
+        assertEquals(0, atomicResult.getFailures());
+        assertEquals(expectedBalance(), balanceOf(locked));
+        assertEquals(expectedBalance(), balanceOf(atomic));
+    }
+
+    @Test
+    void compareLockedAndHotBalanceUseBalance() throws Exception {
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("bench")
+                .privateNumber("bench-hot-balance")
+                .registeredAt(LocalDateTime.now())
+                .build());
+        Account hot = createAccount(user, "9100000005");
+        Account locked = createAccount(user, "9100000006");
+
+        setConcurrencyMode(ConcurrencyMode.REDIS_LOCK);
+        LoadRunner.Result lockedResult = LoadRunner.run("redis lock", THREADS, OPERATIONS, i -> {
+            lockService.lock(locked.getAccountNumber(), 10_000L, 3_000L, false);
+            try {
+                transactionService.useBalance(user.getId(), locked.getAccountNumber(), AMOUNT);
+            } finally {
+                lockService.unLock(locked.getAccountNumber());
+            }
+        });
+
+        // Redis 잔액 계좌는 LockAopAspect 도 lock 을 잡지 않는다.
+        LoadRunner.Result hotResult = LoadRunner.run("hot balance", THREADS, OPERATIONS, i ->
+                transactionService.useBalance(user.getId(), hot.getAccountNumber(), AMOUNT));
+
+        System.out.printf("hot balance / locked throughput : %.2fx%n",
+                hotResult.throughput() / lockedResult.throughput());
+        assertEquals(0, lockedResult.getFailures());
+        assertEquals(0, hotResult.getFailures());
+        assertEquals(expectedBalance(), balanceOf(locked));
+
+        // write-behind 가 DB 에 반영할 때까지 기다린다.
+        while (!hotBalanceService.snapshot(hot.getAccountNumber()).getJournal().isEmpty()) {
+            hotBalanceWriter.flushOnce();
+        }
+        assertEquals(expectedBalance(), balanceOf(hot));
+    }
+
+    @Test
+    void compareSingleAndBatchUseBalance() throws Exception {
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("bench")
+                .privateNumber("bench-balance-batch")
+                .registeredAt(LocalDateTime.now())
+                .build());
+        Account single = createAccount(user, "9100000003");
+        Account batched = createAccount(user, "9100000004");
+
+        setConcurrencyMode(ConcurrencyMode.REDIS_LOCK);
+        long singleStart = System.nanoTime();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            lockService.lock(single.getAccountNumber(), 10_000L, 3_000L, false);
+            try {
+                transactionService.useBalance(user.getId(), single.getAccountNumber(), AMOUNT);
+            } finally {
+                lockService.unLock(single.getAccountNumber());
+            }
+        }
+        long singleNanos = System.nanoTime() - singleStart;
+
+        List<UseBalance.Request> items = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            items.add(new UseBalance.Request(user.getId(), batched.getAccountNumber(), AMOUNT));
+        }
+        long batchStart = System.nanoTime();
+        UseBalanceBatch.Response response = balanceBatchService.useBalanceBatch(items);
+        long batchNanos = System.nanoTime() - batchStart;
+
+        System.out.printf("[single x %d] %d ms%n", BATCH_SIZE, singleNanos / 1_000_000);
+        System.out.printf("[batch  x %d] %d ms%n", BATCH_SIZE, batchNanos / 1_000_000);
+        System.out.printf("batch / single throughput : %.2fx%n", (double) singleNanos / batchNanos);
+        assertTrue(response.getResults().stream()
+                .allMatch(result -> result.getTransactionResult() == TransactionResultType.S));
+        assertEquals(1_000_000_000L - BATCH_SIZE * AMOUNT, balanceOf(single));
+        assertEquals(1_000_000_000L - BATCH_SIZE * AMOUNT, balanceOf(batched));
+    }
+
+    private Account createAccount(AccountUser user, String accountNumber) {
+        return accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(1_000_000_000L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    private long expectedBalance() {
+        return 1_000_000_000L - OPERATIONS * AMOUNT;
+    }
+
+    private long balanceOf(Account account) {
+        return accountRepository.findById(account.getId()).get().getBalance();
+    }
+
+    private void setConcurrencyMode(ConcurrencyMode concurrencyMode) {
+        Object target = AopTestUtils.getTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "concurrencyMode", concurrencyMode);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.account.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 여러 thread 로 같은 작업을 반복 실행하고 처리량과 지연시간을 잰다.
+ */
+public class LoadRunner {
+
+    public static Result run(String name, int threads, int operations, Operation operation)
+            throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        long[] latencies = new long[operations];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(threads);
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < operations) {
+                    long begin = System.nanoTime();
+                    try {
+                        operation.run(index);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[index] = System.nanoTime() - begin;
+                }
+                done.countDown();
+            });
+        }
+        done.await(10, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - startedAt;
+        executorService.shutdown();
+
+        Arrays.sort(latencies);
+        Result result = new Result(name, operations, failures.get(), elapsed,
+                latencies[operations / 2], latencies[(int) (operations * 0.99)]);
+        System.out.println(result);
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface Operation {
+        void run(int index) throws Exception;
+    }
+
+    public static class Result {
+        private final String name;
+        private final int operations;
+        private final int failures;
+        private final long elapsedNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+
+        private Result(String name, int operations, int failures,
+                       long elapsedNanos, long p50Nanos, long p99Nanos) {
+            this.name = name;
+            this.operations = operations;
+            this.failures = failures;
+            this.elapsedNanos = elapsedNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        public double throughput() {
+            return operations / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%s] %d ops, %d failed, %.0f ops/s, p50 %.2f ms, p99 %.2f ms",
+                    name, operations, failures, throughput(),
+                    p50Nanos / 1_000_000.0, p99Nanos / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.account.benchmark;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.LockService;
+import com.example.account.service.TransactionService;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.ConcurrencyMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 몇 개의 계좌에 계속 몰리는 잔액 사용 요청을
+ * Redis lock + dirty checking 경로와 PARTITIONED 엔진(group commit)으로 각각 처리해 처리량과 p99 를 비교한다.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.redis.port=6398",
+        "spring.datasource.url=jdbc:h2:mem:partitioned-bench;LAZY_QUERY_EXECUTION=1",
+        "account.concurrency.mode=PARTITIONED",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class PartitionedEngineBenchmarkTest {
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 10_000;
+    private static final int ACCOUNTS = 4;
+    private static final long AMOUNT = 10L;
+    private static final long INITIAL_BALANCE = 1_000_000_000L;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private LockService lockService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @AfterEach
+    void resetMode() {
+        setConcurrencyMode(ConcurrencyMode.PARTITIONED);
+    }
+
+    @Test
+    void compareLockedAndPartitionedUseBalance() throws Exception {
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("bench")
+                .privateNumber("bench-partitioned")
+                .registeredAt(LocalDateTime.now())
+                .build());
+        List<Account> locked = createAccounts(user, "92000000");
+        List<Account> partitioned = createAccounts(user, "92000001");
+
+        setConcurrencyMode(ConcurrencyMode.REDIS_LOCK);
+        LoadRunner.Result lockedResult = LoadRunner.run("redis lock", THREADS, OPERATIONS, i -> {
+            String accountNumber = locked.get(i % ACCOUNTS).getAccountNumber();
+            lockService.lock(accountNumber, 10_000L, 3_000L, false);
+            try {
+                transactionService.useBalance(user.getId(), accountNumber, AMOUNT);
+            } finally {
+                lockService.unLock(accountNumber);
+            }
+        });
+
+        // LockAopAspect 도 PARTITIONED 모드에서는 lock 을 잡지 않는다.
+        setConcurrencyMode(ConcurrencyMode.PARTITIONED);
+        LoadRunner.Result partitionedResult = LoadRunner.run("partitioned", THREADS, OPERATIONS, i ->
+                transactionService.useBalance(
+                        user.getId(), partitioned.get(i % ACCOUNTS).getAccountNumber(), AMOUNT));
+
+        System.out.printf("partitioned / locked throughput : %.2fx%n",
+                partitionedResult.throughput() / lockedResult.throughput());
+        assertEquals(0, lockedResult.getFailures());
+        assertEquals(0, partitionedResult.getFailures());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(expectedBalance(), balanceOf(locked.get(i)));
+            assertEquals(expectedBalance(), balanceOf(partitioned.get(i)));
+        }
+    }
+
+    private List<Account> createAccounts(AccountUser user, String prefix) {
+        List<Account> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts.add(accountRepository.save(Account.builder()
+                    .accountUser(user)
+                    .accountNumber(prefix + String.format("%02d", i))
+                    .accountStatus(AccountStatus.IN_USE)
+                    .balance(INITIAL_BALANCE)
+                    .registeredAt(LocalDateTime.now())
+                    .build()));
+        }
+        return accounts;
+    }
+
+    private long expectedBalance() {
+        return INITIAL_BALANCE - OPERATIONS / ACCOUNTS * AMOUNT;
+    }
+
+    private long balanceOf(Account account) {
+        return accountRepository.findById(account.getId()).get().getBalance();
+    }
+
+    private void setConcurrencyMode(ConcurrencyMode concurrencyMode) {
+        Object target = AopTestUtils.getTargetObject(transactionService);
+        ReflectionTestUtils.setField(target, "concurrencyMode", concurrencyMode);
+    }
+}
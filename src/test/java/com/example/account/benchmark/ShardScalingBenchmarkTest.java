@@ -0,0 +1,93 @@
+package com.example.account.benchmark;
+
+import com.example.account.AccountApplication;
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.AccountService;
+import com.example.account.service.LatencyInjector;
+import com.example.account.service.TransactionService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 같은 잔액 사용 / 거래 내역 혼합 부하를 shard 1 개와 4 개 구성에서 각각 실행해 처리량을 비교한다.
+ * 로컬 H2 는 커밋이 거의 공짜라 DB 한 대의 한계를 흉내 내기 위해
+ * shard 당 pool 을 작게 잡고 커밋 전 지연(fault-injection before-commit)을 넣는다.
+ */
+@Tag("benchmark")
+class ShardScalingBenchmarkTest {
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 4_000;
+    private static final int USERS = 8;
+    private static final int ACCOUNTS_PER_USER = 8;
+
+    @Test
+    void compareShardCounts() throws Exception {
+        LoadRunner.Result single = runMixedLoad(1, 6392);
+        LoadRunner.Result sharded = runMixedLoad(4, 6393);
+
+        double speedUp = sharded.throughput() / single.throughput();
+        System.out.printf("4 shards / 1 shard throughput : %.2fx%n", speedUp);
+        assertEquals(0, single.getFailures());
+        assertEquals(0, sharded.getFailures());
+        assertTrue(speedUp > 1.5);
+    }
+
+    private LoadRunner.Result runMixedLoad(int shardCount, int redisPort) throws InterruptedException {
+        String urls = IntStream.range(0, shardCount)
+                .mapToObj(shard -> "jdbc:h2:mem:bench-" + shardCount + "-" + shard + ";LAZY_QUERY_EXECUTION=1")
+                .collect(Collectors.joining(","));
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AccountApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(LatencyInjector.PROFILE)
+                // properties() 는 application.yml 보다 우선순위가 낮으므로 인자로 넘긴다.
+                .run("--spring.redis.port=" + redisPort,
+                        "--account.sharding.urls=" + urls,
+                        "--account.sharding.maximum-pool-size=2",
+                        "--account.concurrency.mode=ATOMIC_UPDATE",
+                        "--fault-injection.latency.before-lock=0",
+                        "--fault-injection.latency.before-commit=5",
+                        "--spring.jpa.properties.hibernate.show_sql=false")) {
+            AccountService accountService = context.getBean(AccountService.class);
+            TransactionService transactionService = context.getBean(TransactionService.class);
+            AccountUserRepository accountUserRepository = context.getBean(AccountUserRepository.class);
+
+            List<Long> owners = new ArrayList<>();
+            List<String> accountNumbers = new ArrayList<>();
+            for (int u = 0; u < USERS; u++) {
+                AccountUser user = accountUserRepository.save(AccountUser.builder()
+                        .name("bench")
+                        .privateNumber("bench-shard-" + u)
+                        .build());
+                for (int a = 0; a < ACCOUNTS_PER_USER; a++) {
+                    owners.add(user.getId());
+                    accountNumbers.add(accountService.createAccount(user.getId(), 1_000_000_000L)
+                            .getAccountNumber());
+                }
+            }
+
+            // 4 번 중 3 번은 잔액 사용, 1 번은 거래 내역 조회
+            return LoadRunner.run(shardCount + " shard(s)", THREADS, OPERATIONS, i -> {
+                int account = i % accountNumbers.size();
+                if (i % 4 == 3) {
+                    transactionService.getTransactionHistory(
+                            accountNumbers.get(account), null, null, null, 10);
+                } else {
+                    transactionService.useBalance(owners.get(account), accountNumbers.get(account), 10L);
+                }
+            });
+        }
+    }
+}
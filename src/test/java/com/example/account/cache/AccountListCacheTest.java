@@ -0,0 +1,166 @@
+package com.example.account.cache;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountInfo;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.AccountService;
+import com.example.account.service.ReadYourWritesTracker;
+import com.example.account.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6385",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountListCacheTest {
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountListCache accountListCache;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void getAccountList_servedFromCacheAfterFirstRead() {
+        //given
+        AccountUser user = saveUser("cache-hit");
+        accountService.createAccount(user.getId(), 1000L);
+        accountService.getAccountList(user.getId());
+        statistics.clear();
+
+        //when
+        List<AccountInfo> accountList = accountService.getAccountList(user.getId());
+
+        //then
+        assertEquals(1, accountList.size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void useBalance_evictsAfterCommit() {
+        //given
+        AccountUser user = saveUser("cache-use");
+        String accountNumber = accountService.createAccount(user.getId(), 1000L).getAccountNumber();
+        assertEquals(1000L, accountService.getAccountList(user.getId()).get(0).getBalance());
+
+        //when
+        transactionService.useBalance(user.getId(), accountNumber, 300L);
+
+        //then
+        assertEquals(700L, accountService.getAccountList(user.getId()).get(0).getBalance());
+    }
+
+    @Test
+    void createAndUnregister_evictAfterCommit() {
+        //given
+        AccountUser user = saveUser("cache-create");
+        String accountNumber = accountService.createAccount(user.getId(), 0L).getAccountNumber();
+        assertEquals(1, accountService.getAccountList(user.getId()).size());
+
+        //when
+        accountService.createAccount(user.getId(), 0L);
+        int afterCreate = accountService.getAccountList(user.getId()).size();
+        accountService.unRegisteredAccount(user.getId(), accountNumber);
+        int afterUnregister = accountService.getAccountList(user.getId()).size();
+
+        //then
+        assertEquals(2, afterCreate);
+        assertEquals(1, afterUnregister);
+    }
+
+    @Test
+    void otherNode_readsFromRedis() {
+        //given
+        AccountUser user = saveUser("cache-remote");
+        String accountNumber = accountService.createAccount(user.getId(), 500L).getAccountNumber();
+        accountService.getAccountList(user.getId());
+        AccountListCache otherNode = new AccountListCache(
+                redissonClient, objectMapper, readYourWritesTracker, 100, 60_000L, 60_000L);
+
+        //when
+        List<AccountInfo> accountList = otherNode.get(user.getId(), () -> {
+            throw new IllegalStateException("should not hit DB");
+        });
+
+        //then
+        assertEquals(accountNumber, accountList.get(0).getAccountNumber());
+        assertEquals(500L, accountList.get(0).getBalance());
+    }
+
+    @Test
+    void evict_broadcastsToOtherNodes() throws InterruptedException {
+        //given : 같은 Redis 를 보는 다른 노드의 캐시
+        AccountListCache otherNode = new AccountListCache(
+                redissonClient, objectMapper, readYourWritesTracker, 100, 60_000L, 60_000L);
+        AtomicInteger loads = new AtomicInteger();
+        otherNode.get(42L, () -> {
+            loads.incrementAndGet();
+            return Collections.singletonList(new AccountInfo("1000000042", 100L));
+        });
+        otherNode.get(42L, Collections::emptyList);
+        assertEquals(1, loads.get());
+
+        //when
+        accountListCache.evict(42L);
+
+        //then : near-cache 와 Redis 모두 지워져 다시 loader 를 호출한다.
+        long deadline = System.currentTimeMillis() + 5_000L;
+        List<AccountInfo> reloaded;
+        do {
+            Thread.sleep(20);
+            reloaded = otherNode.get(42L, () -> {
+                loads.incrementAndGet();
+                return Collections.emptyList();
+            });
+        } while (!reloaded.isEmpty() && System.currentTimeMillis() < deadline);
+        assertTrue(reloaded.isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    private AccountUser saveUser(String name) {
+        return accountUserRepository.save(AccountUser.builder()
+                .name(name)
+                .privateNumber(name)
+                .build());
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.account.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+    private static final int INSERTIONS = 100_000;
+
+    @Test
+    @DisplayName("넣은 값은 항상 있다고 답한다")
+    void noFalseNegatives() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            bloomFilter.put("P" + i);
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(bloomFilter.mightContain("P" + i));
+        }
+    }
+
+    @Test
+    @DisplayName("오탐률이 목표 근처")
+    void falsePositiveRate() {
+        BloomFilter bloomFilter = new BloomFilter(INSERTIONS, 0.01);
+        for (int i = 0; i < INSERTIONS; i++) {
+            bloomFilter.put("P" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < INSERTIONS; i++) {
+            if (bloomFilter.mightContain("Q" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < INSERTIONS * 0.02, "false positives : " + falsePositives);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.account.cache;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.TransactionDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCacheTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final TransactionCache transactionCache = new TransactionCache(meterRegistry, 2);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("적중/미스/eviction 수를 metric 으로 노출")
+    void metrics() {
+        //given
+        transactionCache.put(dto("T1"));
+        transactionCache.put(dto("T2"));
+        transactionCache.get("T1");
+        transactionCache.put(dto("T3"));
+
+        //when
+        boolean evicted = !transactionCache.get("T2").isPresent();
+
+        //then
+        assertTrue(evicted);
+        assertTrue(transactionCache.get("T1").isPresent());
+        assertEquals(2.0, count("hit"));
+        assertEquals(1.0, count("miss"));
+        assertEquals(1.0, meterRegistry.get("account.transaction.cache.evictions")
+                .functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("account.transaction.cache.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("트랜잭션 안에서 저장한 거래는 커밋된 뒤에 캐시된다")
+    void putAfterCommit() {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+
+        //when
+        transactionCache.putAfterCommit(transaction("T1"));
+
+        //then
+        assertFalse(transactionCache.get("T1").isPresent());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(TransactionSynchronization::afterCommit);
+        assertEquals("1000000000", transactionCache.get("T1").get().getAccountNumber());
+    }
+
+    @Test
+    @DisplayName("롤백되면 캐시하지 않는다")
+    void putAfterCommit_rollback() {
+        //given
+        TransactionSynchronizationManager.initSynchronization();
+
+        //when
+        transactionCache.putAfterCommit(transaction("T1"));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        //then
+        assertFalse(transactionCache.get("T1").isPresent());
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("account.transaction.cache.gets")
+                .tag("result", result).functionCounter().count();
+    }
+
+    private static TransactionDto dto(String transactionId) {
+        return TransactionDto.builder()
+                .transactionId(transactionId)
+                .accountNumber("1000000000")
+                .build();
+    }
+
+    private static Transaction transaction(String transactionId) {
+        return Transaction.builder()
+                .account(Account.builder().id(1L).accountNumber("1000000000").build())
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId(transactionId)
+                .amount(1000L)
+                .balanceSnapshot(9000L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
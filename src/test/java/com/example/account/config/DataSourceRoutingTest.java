@@ -0,0 +1,135 @@
+package com.example.account.config;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.service.AccountService;
+import com.example.account.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * H2 두 개로 primary / replica 를 띄운다.
+ * 복제는 primary 를 SCRIPT 로 떠서 replica 에 RUNSCRIPT 하는 것으로 흉내 내고,
+ * 그 뒤 primary 에만 생긴 변경이 어느 쪽에서 읽히는지로 경로를 확인한다.
+ */
+@SpringBootTest(properties = {
+        "spring.redis.port=6390",
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;LAZY_QUERY_EXECUTION=1",
+        "account.datasource.replica.url=jdbc:h2:mem:routing-replica",
+        "account.datasource.read-your-writes-millis=500",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class DataSourceRoutingTest {
+    private static final String SNAPSHOT = "./build/h2/routing-replica.sql";
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replicaDataSource;
+
+    @Test
+    void readOnlyGoesToReplica_ownWritesReadFromPrimary() throws InterruptedException {
+        //given : 계좌를 만들고 replica 로 복제
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("routing")
+                .privateNumber("routing-user")
+                .build());
+        Account account = accountService.createAccount(user.getId(), 10_000L);
+        String accountNumber = account.getAccountNumber();
+        replicate();
+
+        //when : 쓰기는 primary 로
+        transactionService.useBalance(user.getId(), accountNumber, 1_000L);
+
+        //then
+        assertEquals(9_000L, balance(primaryDataSource, accountNumber));
+        assertEquals(10_000L, balance(replicaDataSource, accountNumber));
+
+        // 방금 쓴 사용자는 window 동안 primary 에서 읽는다.
+        assertEquals(9_000L, accountService.getAccountList(user.getId()).get(0).getBalance());
+
+        // window 가 지나면 readOnly 조회는 replica (복제 전 상태) 에서 읽는다.
+        Thread.sleep(700L);
+        assertTrue(transactionService.getTransactionHistory(accountNumber, null, null, null, 10)
+                .getTransactions().isEmpty());
+
+        // 두 pool 의 사용량이 따로 집계된다.
+        assertTrue(connectionUsage("primary") > 0);
+        assertTrue(connectionUsage("replica") > 0);
+    }
+
+    @Test
+    void queryTransaction_fallsBackToPrimaryWhenNotReplicated() {
+        //given : primary 에만 있는 거래 (캐시를 거치지 않고 저장)
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("routing")
+                .privateNumber("routing-fallback")
+                .build());
+        Account account = accountService.createAccount(user.getId(), 10_000L);
+        replicate();
+        transactionRepository.save(Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1_000L)
+                .balanceSnapshot(9_000L)
+                .transactionId("routing-not-replicated")
+                .transactedAt(LocalDateTime.now())
+                .build());
+
+        //when
+        String accountNumber = transactionService.queryTransaction("routing-not-replicated")
+                .getAccountNumber();
+
+        //then
+        assertEquals(account.getAccountNumber(), accountNumber);
+    }
+
+    private void replicate() {
+        new JdbcTemplate(primaryDataSource).execute("SCRIPT TO '" + SNAPSHOT + "'");
+        JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+        replica.execute("DROP ALL OBJECTS");
+        replica.execute("RUNSCRIPT FROM '" + SNAPSHOT + "'");
+    }
+
+    private long balance(DataSource dataSource, String accountNumber) {
+        return new JdbcTemplate(dataSource).queryForObject(
+                "select balance from account where account_number = ?", Long.class, accountNumber);
+    }
+
+    private long connectionUsage(String pool) {
+        return meterRegistry.get("hikaricp.connections.usage").tag("pool", pool).timer().count();
+    }
+}
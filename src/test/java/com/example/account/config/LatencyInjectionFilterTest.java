@@ -0,0 +1,58 @@
+package com.example.account.config;
+
+import com.example.account.service.LatencyInjector;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyInjectionFilterTest {
+
+    @Test
+    void delayBeforeLock_withoutCallingChain() throws Exception {
+        //given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("fault-injection.latency.before-lock", "50");
+        environment.setActiveProfiles(LatencyInjector.PROFILE);
+        LatencyInjectionFilter filter = new LatencyInjectionFilter(new LatencyInjector(environment));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transaction/use");
+        request.setAsyncSupported(true);
+        MockFilterChain chain = new MockFilterChain();
+
+        //when
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        //then
+        assertTrue(request.isAsyncStarted());
+        assertNull(chain.getRequest());
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        long deadline = System.currentTimeMillis() + 2000L;
+        while (asyncContext.getDispatchedPath() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals("/transaction/use", asyncContext.getDispatchedPath());
+        filter.shutdown();
+    }
+
+    @Test
+    void noDelay_withoutProfile() throws Exception {
+        //given
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("fault-injection.latency.before-lock", "50");
+        LatencyInjectionFilter filter = new LatencyInjectionFilter(new LatencyInjector(environment));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/transaction/use");
+        MockFilterChain chain = new MockFilterChain();
+
+        //when
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        //then
+        assertFalse(request.isAsyncStarted());
+        assertNotNull(chain.getRequest());
+        filter.shutdown();
+    }
+}
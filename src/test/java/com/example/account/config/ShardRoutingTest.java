@@ -0,0 +1,282 @@
+package com.example.account.config;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.AccountInfo;
+import com.example.account.dto.TransactionDto;
+import com.example.account.repository.AccountNumberBlockRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.service.AccountNumberAllocator;
+import com.example.account.service.AccountService;
+import com.example.account.service.PendingTransferSweeper;
+import com.example.account.service.ShardRouter;
+import com.example.account.service.TransactionService;
+import com.example.account.service.TransferService;
+import com.example.account.type.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * H2 세 개를 shard 로 띄우고, 계좌와 거래가 계좌번호의 shard 에만 저장되는지 JDBC 로 직접 확인한다.
+ */
+@SpringBootTest(properties = {
+        "spring.redis.port=6391",
+        "account.sharding.urls=jdbc:h2:mem:sharding-0;LAZY_QUERY_EXECUTION=1,"
+                + "jdbc:h2:mem:sharding-1;LAZY_QUERY_EXECUTION=1,"
+                + "jdbc:h2:mem:sharding-2;LAZY_QUERY_EXECUTION=1",
+        "account.transfer.pending-timeout-millis=0",
+        "account.transfer.sweep-interval-millis=600000",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class ShardRoutingTest {
+    private static int sequence = 0;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private PendingTransferSweeper pendingTransferSweeper;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private AccountNumberBlockRepository accountNumberBlockRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void accountsSpreadAcrossShards_listFansOut() {
+        //given
+        AccountUser user = saveUser();
+
+        //when
+        List<Account> accounts = createAccounts(user, 9);
+
+        //then : 계좌는 자기 shard 에만 있다.
+        for (Account account : accounts) {
+            int shard = shardRouter.shardOf(account.getAccountNumber());
+            for (int other = 0; other < shardDataSources.size(); other++) {
+                assertEquals(other == shard ? 1 : 0, count(other,
+                        "select count(*) from account where account_number = ?", account.getAccountNumber()));
+            }
+        }
+        assertTrue(accounts.stream()
+                .map(account -> shardRouter.shardOf(account.getAccountNumber()))
+                .distinct().count() > 1);
+
+        // 계좌 수는 home shard 에서 관리한다.
+        assertEquals(9, count(ShardContext.HOME_SHARD,
+                "select active_account_count from account_user where id = ?", user.getId()));
+
+        List<String> listed = accountService.getAccountList(user.getId()).stream()
+                .map(AccountInfo::getAccountNumber)
+                .sorted()
+                .collect(Collectors.toList());
+        assertEquals(accounts.stream().map(Account::getAccountNumber).sorted().collect(Collectors.toList()),
+                listed);
+    }
+
+    @Test
+    void balanceOperationsRunOnAccountShard() {
+        //given
+        AccountUser user = saveUser();
+        Account account = firstOffHome(createAccounts(user, 6));
+        int shard = shardRouter.shardOf(account.getAccountNumber());
+
+        //when
+        TransactionDto use = transactionService.useBalance(user.getId(), account.getAccountNumber(), 1_000L);
+        transactionService.cancelBalance(use.getTransactionId(), account.getAccountNumber(), 1_000L);
+        transactionService.useBalance(user.getId(), account.getAccountNumber(), 300L);
+
+        //then
+        assertEquals(9_700L, count(shard,
+                "select balance from account where account_number = ?", account.getAccountNumber()));
+        assertEquals(1, count(shard,
+                "select count(*) from transaction where transaction_id = ?", use.getTransactionId()));
+        assertEquals(0, count(ShardContext.HOME_SHARD,
+                "select count(*) from transaction where transaction_id = ?", use.getTransactionId()));
+        assertEquals(3, transactionService.getTransactionHistory(
+                account.getAccountNumber(), null, null, null, 10).getTransactions().size());
+        assertEquals(account.getAccountNumber(),
+                transactionService.queryTransaction(use.getTransactionId()).getAccountNumber());
+    }
+
+    @Test
+    void transferAcrossShards() {
+        //given
+        AccountUser user = saveUser();
+        List<Account> accounts = createAccounts(user, 6);
+        Account from = accounts.get(0);
+        Account to = accounts.stream()
+                .filter(account -> shardRouter.shardOf(account.getAccountNumber())
+                        != shardRouter.shardOf(from.getAccountNumber()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        //when
+        TransactionDto transferOut = transferService.transferBalance(
+                user.getId(), from.getAccountNumber(), to.getAccountNumber(), 2_500L);
+
+        //then
+        assertEquals(7_500L, count(shardRouter.shardOf(from.getAccountNumber()),
+                "select balance from account where account_number = ?", from.getAccountNumber()));
+        assertEquals(12_500L, count(shardRouter.shardOf(to.getAccountNumber()),
+                "select balance from account where account_number = ?", to.getAccountNumber()));
+
+        TransactionDto transferIn = transactionService.queryTransaction(transferOut.getLinkedTransactionId());
+        assertEquals(TransactionType.TRANSFER_IN, transferIn.getTransactionType());
+        assertEquals(to.getAccountNumber(), transferIn.getAccountNumber());
+        assertEquals(transferOut.getTransactionId(), transferIn.getLinkedTransactionId());
+    }
+
+    @Test
+    void sweeperCompletesTransferLeftAfterDebit() {
+        //given : 출금만 커밋하고 노드가 죽은 이체
+        AccountUser user = saveUser();
+        List<Account> accounts = createAccounts(user, 6);
+        Account from = accounts.get(0);
+        Account to = otherShard(accounts, from);
+        TransactionDto transferOut = transactionService.transferOut(
+                user.getId(), from.getAccountNumber(), to.getAccountNumber(), 2_500L);
+        int fromShard = shardRouter.shardOf(from.getAccountNumber());
+        assertEquals(1, count(fromShard, "select count(*) from pending_transfer"
+                + " where transfer_out_transaction_id = ?", transferOut.getTransactionId()));
+
+        //when : 두 번 돌아도 한 번만 입금한다.
+        pendingTransferSweeper.sweepOnce();
+        pendingTransferSweeper.sweepOnce();
+        transactionService.transferIn(to.getAccountNumber(), 2_500L,
+                transferOut.getLinkedTransactionId(), transferOut.getTransactionId());
+
+        //then
+        assertEquals(7_500L, count(fromShard,
+                "select balance from account where account_number = ?", from.getAccountNumber()));
+        assertEquals(12_500L, count(shardRouter.shardOf(to.getAccountNumber()),
+                "select balance from account where account_number = ?", to.getAccountNumber()));
+        assertEquals(0, count(fromShard, "select count(*) from pending_transfer"
+                + " where transfer_out_transaction_id = ?", transferOut.getTransactionId()));
+        TransactionDto transferIn = transactionService.queryTransaction(transferOut.getLinkedTransactionId());
+        assertEquals(TransactionType.TRANSFER_IN, transferIn.getTransactionType());
+        assertEquals(transferOut.getTransactionId(), transferIn.getLinkedTransactionId());
+    }
+
+    @Test
+    void sweeperCancelsTransferRejectedByTarget() {
+        //given : 입금 계좌가 없는 이체가 출금만 커밋된 채 남았다.
+        AccountUser user = saveUser();
+        Account from = createAccounts(user, 1).get(0);
+        TransactionDto transferOut = transactionService.transferOut(
+                user.getId(), from.getAccountNumber(), "9999999999", 2_500L);
+
+        //when
+        pendingTransferSweeper.sweepOnce();
+        pendingTransferSweeper.sweepOnce();
+
+        //then : 출금이 한 번만 되돌려진다.
+        int fromShard = shardRouter.shardOf(from.getAccountNumber());
+        assertEquals(10_000L, count(fromShard,
+                "select balance from account where account_number = ?", from.getAccountNumber()));
+        assertEquals(1, count(fromShard, "select count(*) from transaction"
+                + " where transaction_type = 'CANCEL' and linked_transaction_id = ?", transferOut.getTransactionId()));
+        assertEquals(0, count(fromShard, "select count(*) from pending_transfer"
+                + " where transfer_out_transaction_id = ?", transferOut.getTransactionId()));
+    }
+
+    @Test
+    void unRegisterOffHomeAccount_decrementsHomeCount() {
+        //given
+        AccountUser user = saveUser();
+        Account account = firstOffHome(createAccounts(user, 6));
+        transactionService.useBalance(user.getId(), account.getAccountNumber(), 10_000L);
+
+        //when
+        accountService.unRegisteredAccount(user.getId(), account.getAccountNumber());
+
+        //then
+        assertEquals(5, count(ShardContext.HOME_SHARD,
+                "select active_account_count from account_user where id = ?", user.getId()));
+        assertEquals(5, accountService.getAccountList(user.getId()).size());
+    }
+
+    @Test
+    void firstAccountNumberBlock_startsAfterLargestNumberOnAnyShard() {
+        //given : 가장 큰 번호의 계좌가 home 이 아닌 shard 에만 있다.
+        long largest = 3_000_000_000L;
+        while (shardRouter.isHomeShard(String.valueOf(largest))) {
+            largest++;
+        }
+        new JdbcTemplate(shardDataSources.get(shardRouter.shardOf(String.valueOf(largest)))).update(
+                "insert into account (id, account_number, account_status, balance, version)"
+                        + " values (?, ?, 'IN_USE', 0, 0)", 900_000L, String.valueOf(largest));
+        new JdbcTemplate(shardDataSources.get(ShardContext.HOME_SHARD)).update("delete from account_number_block");
+        AccountNumberAllocator allocator = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 5);
+
+        //when
+        String number = allocator.next();
+
+        //then
+        assertEquals(String.valueOf(largest + 1), number);
+    }
+
+    private AccountUser saveUser() {
+        return accountUserRepository.save(AccountUser.builder()
+                .name("shard")
+                .privateNumber("shard-" + ++sequence)
+                .build());
+    }
+
+    private List<Account> createAccounts(AccountUser user, int size) {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            accounts.add(accountService.createAccount(user.getId(), 10_000L));
+        }
+        return accounts;
+    }
+
+    private Account otherShard(List<Account> accounts, Account account) {
+        return accounts.stream()
+                .filter(other -> shardRouter.shardOf(other.getAccountNumber())
+                        != shardRouter.shardOf(account.getAccountNumber()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private Account firstOffHome(List<Account> accounts) {
+        return accounts.stream()
+                .filter(account -> !shardRouter.isHomeShard(account.getAccountNumber()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private long count(int shard, String sql, Object argument) {
+        return new JdbcTemplate(shardDataSources.get(shard)).queryForObject(sql, Long.class, argument);
+    }
+}
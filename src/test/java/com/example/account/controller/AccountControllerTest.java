@@ -9,6 +9,7 @@ import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
 import com.example.account.service.AccountService;
 import com.example.account.service.AccountUserService;
+import com.example.account.service.IdempotencyService;
 import com.example.account.service.RedisTestService;
 import com.example.account.type.AccountStatus;
 import com.example.account.type.ErrorCode;
@@ -49,6 +50,9 @@ class AccountControllerTest {
     @MockBean
     private AccountUserService accountUserService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -6,37 +6,60 @@ import com.example.account.domain.Transaction;
 import com.example.account.dto.AccountInfo;
 import com.example.account.dto.CancelBalance;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.dto.TransferBalance;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.service.BalanceBatchService;
+import com.example.account.service.IdempotencyService;
+import com.example.account.service.TransactionExportService;
 import com.example.account.service.TransactionService;
+import com.example.account.service.TransferService;
 import com.example.account.type.AccountStatus;
+import com.example.account.type.ErrorCode;
 import com.example.account.type.TransactionResultType;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(TransactionController.class)
@@ -44,6 +67,18 @@ class TransactionControllerTest {
     @MockBean
     private TransactionService transactionService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private BalanceBatchService balanceBatchService;
+
+    @MockBean
+    private TransferService transferService;
+
+    @MockBean
+    private TransactionExportService transactionExportService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -126,4 +161,198 @@ class TransactionControllerTest {
                 .andExpect(jsonPath("$.transactionId").value("transactionIdForCancel"))
                 .andExpect(jsonPath("$.amount").value(54321));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("같은 Idempotency-Key 재요청은 저장된 응답으로 처리")
+    void replayUseBalance_withIdempotencyKey() throws Exception {
+        //given
+        given(idempotencyService.begin(anyString(), anyString()))
+                .willReturn(Optional.of("{\"accountNumber\":\"1000000000\","
+                        + "\"transactionResult\":\"S\","
+                        + "\"transactionId\":\"storedTransactionId\","
+                        + "\"amount\":3000}"));
+        //when
+        //then
+        mockMvc.perform(post("/transaction/use")
+                        .header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactionId").value("storedTransactionId"))
+                .andExpect(jsonPath("$.amount").value(3000));
+        verify(idempotencyService).begin(eq("/transaction/use:retry-1"), anyString());
+        verify(transactionService, never()).useBalance(anyLong(), anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("처음 들어온 Idempotency-Key 는 응답을 저장")
+    void storeResponse_withNewIdempotencyKey() throws Exception {
+        //given
+        given(transactionService.useBalance(anyLong(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .accountNumber("1000000000")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transactionId")
+                        .transactionResultType(S)
+                        .build());
+        //when
+        mockMvc.perform(post("/transaction/use")
+                        .header("Idempotency-Key", "first-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalance.Request(1L, "2000000000", 3000L)
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk());
+
+        //then
+        verify(idempotencyService).complete(eq("/transaction/use:first-1"), anyString(), anyString());
+        verify(idempotencyService, never()).release(anyString());
+        verify(transactionService).useBalance(1L, "2000000000", 3000L);
+    }
+
+    @Test
+    @DisplayName("같은 Idempotency-Key 라도 body 가 다르면 다른 hash 로 확인")
+    void differentBody_withSameIdempotencyKey_hashedDifferently() throws Exception {
+        //given
+        given(idempotencyService.begin(anyString(), anyString()))
+                .willReturn(Optional.of("{}"));
+        ArgumentCaptor<String> hashes = ArgumentCaptor.forClass(String.class);
+
+        //when
+        for (long amount : new long[]{3000L, 3000L, 4000L}) {
+            mockMvc.perform(post("/transaction/use")
+                            .header("Idempotency-Key", "retry-2")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(
+                                    new UseBalance.Request(1L, "2000000000", amount)
+                            )))
+                    .andExpect(status().isOk());
+        }
+
+        //then
+        verify(idempotencyService, times(3)).begin(eq("/transaction/use:retry-2"), hashes.capture());
+        assertEquals(hashes.getAllValues().get(0), hashes.getAllValues().get(1));
+        assertNotEquals(hashes.getAllValues().get(0), hashes.getAllValues().get(2));
+    }
+
+    @Test
+    @DisplayName("잔액 사용 batch - 건별 결과 응답")
+    void successUseBalanceBatch() throws Exception {
+        //given
+        given(balanceBatchService.useBalanceBatch(any()))
+                .willReturn(new UseBalanceBatch.Response(Arrays.asList(
+                        UseBalanceBatch.Result.builder()
+                                .accountNumber("1000000000")
+                                .transactionResult(S)
+                                .transactionId("transactionId")
+                                .amount(3000L)
+                                .build(),
+                        UseBalanceBatch.Result.fail("1000000001", 5000L,
+                                "failedTransactionId", ErrorCode.AMOUNT_EXCEED_BALANCE))));
+        //when
+        //then
+        mockMvc.perform(post("/transaction/use-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new UseBalanceBatch.Request(Arrays.asList(
+                                        new UseBalance.Request(1L, "1000000000", 3000L),
+                                        new UseBalance.Request(1L, "1000000001", 5000L)))
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].transactionResult").value("S"))
+                .andExpect(jsonPath("$.results[1].transactionResult").value("F"))
+                .andExpect(jsonPath("$.results[1].errorCode").value("AMOUNT_EXCEED_BALANCE"));
+    }
+
+    @Test
+    @DisplayName("이체 성공")
+    void successTransferBalance() throws Exception {
+        //given
+        given(transferService.transferBalance(anyLong(), anyString(), anyString(), anyLong()))
+                .willReturn(TransactionDto.builder()
+                        .transactedAt(LocalDateTime.now())
+                        .amount(3000L)
+                        .transactionId("transferOutId")
+                        .linkedTransactionId("transferInId")
+                        .transactionResultType(S)
+                        .build());
+        //when
+        //then
+        mockMvc.perform(post("/transaction/transfer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(
+                                new TransferBalance.Request(1L, "1000000000", "2000000000", 3000L)
+                        ))
+                ).andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fromAccountNumber").value("1000000000"))
+                .andExpect(jsonPath("$.toAccountNumber").value("2000000000"))
+                .andExpect(jsonPath("$.transactionResult").value("S"))
+                .andExpect(jsonPath("$.transactionId").value("transferOutId"))
+                .andExpect(jsonPath("$.linkedTransactionId").value("transferInId"));
+    }
+
+    @Test
+    @DisplayName("거래 내역 조회 - 다음 페이지 cursor 응답")
+    void successGetTransactionHistory() throws Exception {
+        //given
+        given(transactionService.getTransactionHistory(
+                anyString(), any(), any(), any(), anyInt()))
+                .willReturn(TransactionHistoryDto.builder()
+                        .transactions(Arrays.asList(TransactionDto.builder()
+                                .accountNumber("1000000000")
+                                .transactionType(USE)
+                                .transactionResultType(S)
+                                .transactionId("transactionId")
+                                .amount(1000L)
+                                .transactedAt(LocalDateTime.now())
+                                .build()))
+                        .nextCursor("nextCursor")
+                        .build());
+        //when
+        //then
+        mockMvc.perform(get("/transaction/history/1000000000")
+                        .param("transactionType", "USE")
+                        .param("size", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.transactions[0].transactionId").value("transactionId"))
+                .andExpect(jsonPath("$.transactions[0].transactionType").value("USE"))
+                .andExpect(jsonPath("$.nextCursor").value("nextCursor"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+        verify(transactionService).getTransactionHistory(
+                "1000000000", USE, null, null, 1);
+    }
+
+    @Test
+    void successExportTransactions() throws Exception {
+        //given
+        willAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"transactionId\":\"T1\"}\n{\"transactionId\":\"T2\"}\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).given(transactionExportService).export(any(), any(), any());
+
+        //when
+        MvcResult result = mockMvc.perform(get("/transaction/export")
+                        .param("date", "2022-01-01"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"transactionId\":\"T1\"}\n{\"transactionId\":\"T2\"}\n"));
+        verify(transactionExportService).export(eq(LocalDateTime.of(2022, 1, 1, 0, 0)),
+                eq(LocalDateTime.of(2022, 1, 2, 0, 0)), any());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
+import com.example.account.service.TransactionService;
+import com.example.account.type.AccountStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 대량 데이터에서 조회용 finder 가 full scan 없이 인덱스를 타는지 EXPLAIN 으로 확인한다.
+ * Hibernate 가 만든 SQL 을 그대로 가져와 같은 파라미터로 EXPLAIN 한다.
+ * 수백만 row 를 적재하므로 기본 test 에서는 빼고 ./gradlew slowTest 로 실행한다.
+ */
+@Tag("slow")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.redis.port=6383",
+        // 수백만 row 를 heap 에 올리지 않도록 파일 DB 사용
+        "spring.datasource.url=jdbc:h2:file:./build/h2/explain",
+        "spring.jpa.properties.hibernate.show_sql=false",
+        // relay 의 poll 쿼리가 캡처된 SQL 에 섞이지 않도록 끈다.
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.account.repository.RepositoryIndexUsageTest$SqlCaptor"
+})
+class RepositoryIndexUsageTest {
+    private static final int USERS = 500_000;
+    private static final int ACCOUNTS = 1_000_000;
+    private static final int TRANSACTIONS = 1_000_000;
+    private static final int HISTORY_ACCOUNTS = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @BeforeAll
+    void loadRows() {
+        jdbcTemplate.update("insert into account_user (id, name, private_number)"
+                + " select x, 'user' || x, 'P' || x from system_range(1, " + USERS + ")");
+        jdbcTemplate.update("insert into account"
+                + " (id, account_number, account_status, balance, version, account_user_id)"
+                + " select x, cast(1000000000 + x as varchar), "
+                + " case when mod(x, 3) = 0 then 'UNREGISTERED' else 'IN_USE' end,"
+                + " 1000, 0, mod(x, " + USERS + ") + 1"
+                + " from system_range(1, " + ACCOUNTS + ")");
+        // 거래는 앞쪽 HISTORY_ACCOUNTS 개 계좌에 몰아서 계좌당 1,000 건씩 (같은 시각 거래 포함)
+        jdbcTemplate.update("insert into transaction"
+                + " (id, transaction_id, transaction_type, transaction_result_type, account_id, amount, transacted_at)"
+                + " select x, 'T' || x, 'USE', 0, mod(x, " + HISTORY_ACCOUNTS + ") + 1, 100,"
+                + " dateadd('SECOND', x / 3, timestamp '2022-01-01 00:00:00')"
+                + " from system_range(1, " + TRANSACTIONS + ")");
+        jdbcTemplate.execute("analyze");
+    }
+
+    @AfterAll
+    void dropDatabase() {
+        // 파일 DB 가 실행마다 쌓이지 않도록 삭제
+        jdbcTemplate.execute("drop all objects delete files");
+    }
+
+    @BeforeEach
+    void clearSql() {
+        SqlCaptor.STATEMENTS.clear();
+    }
+
+    @Test
+    void findByAccountNumber_usesIndex() {
+        assertTrue(accountRepository.findByAccountNumber("1000500000").isPresent());
+
+        assertIndexUsed(lastSql(), "1000500000");
+    }
+
+    @Test
+    void findByTransactionId_usesIndex() {
+        assertTrue(transactionRepository.findByTransactionId("T500000").isPresent());
+
+        assertIndexUsed(lastSql(), "T500000");
+    }
+
+    @Test
+    void findByPrivateNumber_usesIndex() {
+        assertTrue(accountUserRepository.findByPrivateNumber("P250000").isPresent());
+
+        assertIndexUsed(lastSql(), "P250000");
+    }
+
+    @Test
+    void findByAccountUserAndAccountStatus_usesIndex() {
+        AccountUser accountUser = accountUserRepository.findById(7L).get();
+        SqlCaptor.STATEMENTS.clear();
+
+        assertFalse(accountRepository
+                .findByAccountUserAndAccountStatus(accountUser, AccountStatus.IN_USE).isEmpty());
+
+        String plan = assertIndexUsed(lastSql(), 7L, AccountStatus.IN_USE.name());
+        assertTrue(plan.toUpperCase().contains("IDX_ACCOUNT_USER_STATUS"), plan);
+    }
+
+    @Test
+    void findHistoryAfter_usesIndex() {
+        Account account = accountRepository.findById(42L).get();
+        SqlCaptor.STATEMENTS.clear();
+
+        assertFalse(transactionRepository.findHistoryAfter(account, null, null,
+                LocalDateTime.of(2022, 1, 2, 0, 0), Long.MAX_VALUE, PageRequest.of(0, 21)).isEmpty());
+
+        String plan = assertIndexUsed(lastSql("from transaction"), 42L, null, null, null, null,
+                LocalDateTime.of(2022, 1, 2, 0, 0), LocalDateTime.of(2022, 1, 2, 0, 0), Long.MAX_VALUE, 21);
+        assertTrue(plan.toUpperCase().contains("IDX_TRANSACTION_ACCOUNT_TRANSACTED"), plan);
+        // 정렬을 위해 계좌의 모든 거래를 읽지 않는다.
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    @Test
+    void transactionHistory_walksAllPagesInOrder() {
+        Set<String> transactionIds = new HashSet<>();
+        LocalDateTime previous = LocalDateTime.MAX;
+        String cursor = null;
+        do {
+            TransactionHistoryDto page = transactionService.getTransactionHistory(
+                    "1000000042", null, null, cursor, 100);
+            for (TransactionDto transaction : page.getTransactions()) {
+                assertFalse(transaction.getTransactedAt().isAfter(previous));
+                assertTrue(transactionIds.add(transaction.getTransactionId()));
+                previous = transaction.getTransactedAt();
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(TRANSACTIONS / HISTORY_ACCOUNTS, transactionIds.size());
+    }
+
+    private String assertIndexUsed(String sql, Object... args) {
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, args);
+        assertFalse(plan.contains("tableScan"), plan);
+        return plan;
+    }
+
+    private String lastSql() {
+        assertFalse(SqlCaptor.STATEMENTS.isEmpty());
+        return SqlCaptor.STATEMENTS.get(SqlCaptor.STATEMENTS.size() - 1);
+    }
+
+    private String lastSql(String fragment) {
+        return SqlCaptor.STATEMENTS.stream()
+                .filter(sql -> sql.contains(fragment))
+                .reduce((first, second) -> second)
+                .orElseThrow(AssertionError::new);
+    }
+
+    public static class SqlCaptor implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.account.repository;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.Transaction;
+import com.example.account.type.AccountStatus;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6381",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class TransactionRepositoryBatchTest {
+    private static final int ROWS = 200;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void saveAll_usesBatchInsertAndPooledSequence() {
+        //given
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("batch")
+                .privateNumber("batch-insert")
+                .build());
+        Account account = accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber("9000000001")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(0L)
+                .build());
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            transactions.add(Transaction.builder()
+                    .transactionType(TransactionType.USE)
+                    .transactionResultType(TransactionResultType.F)
+                    .account(account)
+                    .amount(100L)
+                    .balanceSnapshot(0L)
+                    .transactionId("batch-" + i)
+                    .transactedAt(LocalDateTime.now())
+                    .build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> transactionRepository.saveAll(transactions));
+
+        //then
+        // batch 없이 건별로 처리하면 시퀀스 조회 + insert 로 400번
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 10, "prepared statements : " + statements);
+    }
+}
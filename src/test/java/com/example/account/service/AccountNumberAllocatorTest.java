@@ -0,0 +1,135 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountNumberBlock;
+import com.example.account.repository.AccountNumberBlockRepository;
+import com.example.account.repository.AccountRepository;
+import com.example.account.type.AccountStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6387",
+        "spring.datasource.url=jdbc:h2:mem:account-number;LAZY_QUERY_EXECUTION=1",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountNumberAllocatorTest {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 500;
+
+    @Autowired
+    private AccountNumberBlockRepository accountNumberBlockRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Test
+    void twoNodes_neverHandOutTheSameNumber() throws InterruptedException {
+        //given : 같은 DB 를 쓰는 두 노드
+        AccountNumberAllocator nodeA = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 10);
+        AccountNumberAllocator nodeB = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 7);
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        //when
+        for (int i = 0; i < THREADS; i++) {
+            AccountNumberAllocator allocator = i % 2 == 0 ? nodeA : nodeB;
+            executorService.execute(() -> {
+                for (int j = 0; j < PER_THREAD; j++) {
+                    numbers.add(allocator.next());
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executorService.shutdown();
+
+        //then
+        assertEquals(THREADS * PER_THREAD, numbers.size());
+        assertTrue(numbers.stream().allMatch(number -> number.length() == 10), numbers.toString());
+    }
+
+    @Test
+    void firstBlock_startsAfterLargestAccountNumber_notLatestId() {
+        //given : 큰 번호의 계좌가 더 작은 id 를 가진다. (다른 노드의 id 블록)
+        accountNumberBlockRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(account("1999999990"));
+        accountRepository.save(account("1500000000"));
+        AccountNumberAllocator allocator = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 5);
+
+        //when
+        String number = allocator.next();
+
+        //then
+        assertEquals("1999999991", number);
+    }
+
+    @Test
+    void firstBlock_comparesAccountNumbersNumerically() {
+        //given : 문자열로는 "999999999" 가 더 크다.
+        accountNumberBlockRepository.deleteAll();
+        accountRepository.deleteAll();
+        accountRepository.save(account("2000000005"));
+        accountRepository.save(account("999999999"));
+        AccountNumberAllocator allocator = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 5);
+
+        //when
+        String number = allocator.next();
+
+        //then
+        assertEquals("2000000006", number);
+    }
+
+    @Test
+    void numbersPastIntRange() {
+        //given
+        new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 1).next();
+        AccountNumberBlock block = accountNumberBlockRepository.findById("account_number").get();
+        block.setNextValue((long) Integer.MAX_VALUE);
+        accountNumberBlockRepository.save(block);
+        AccountNumberAllocator allocator = new AccountNumberAllocator(
+                accountNumberBlockRepository, accountRepository, transactionManager, shardRouter, 5);
+
+        //when
+        String first = allocator.next();
+        String second = allocator.next();
+
+        //then
+        assertEquals("2147483647", first);
+        assertEquals("2147483648", second);
+    }
+
+    private Account account(String accountNumber) {
+        return Account.builder()
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .registeredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.account.service;
+
+import com.example.account.benchmark.LoadRunner;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountUserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// TransferServiceConcurrencyTest 와 같은 설정으로 컨텍스트를 공유한다.
+@SpringBootTest(properties = {
+        "spring.redis.port=6382",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class AccountServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int CREATIONS = 30;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Test
+    @DisplayName("같은 사용자 계좌를 동시에 만들어도 10 개를 넘지 않는다")
+    void parallelCreations_respectLimit() throws Exception {
+        //given
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("limit")
+                .privateNumber("account-limit")
+                .build());
+
+        //when
+        LoadRunner.Result result = LoadRunner.run("parallel create", THREADS, CREATIONS,
+                i -> accountService.createAccount(user.getId(), 0L));
+
+        //then
+        assertEquals(CREATIONS - 10, result.getFailures());
+        assertEquals(10, activeAccountCount(user));
+        assertEquals(10, accountService.getAccountList(user.getId()).size());
+    }
+
+    @Test
+    @DisplayName("해지하면 한도가 다시 생긴다")
+    void unRegister_freesSlot() {
+        //given
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("limit")
+                .privateNumber("account-limit-unregister")
+                .build());
+        Account first = accountService.createAccount(user.getId(), 0L);
+        for (int i = 1; i < 10; i++) {
+            accountService.createAccount(user.getId(), 0L);
+        }
+
+        //when
+        accountService.unRegisteredAccount(user.getId(), first.getAccountNumber());
+        accountService.createAccount(user.getId(), 0L);
+
+        //then
+        assertEquals(10, activeAccountCount(user));
+    }
+
+    private int activeAccountCount(AccountUser user) {
+        return accountUserRepository.findById(user.getId()).get().getActiveAccountCount();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.account.service;
 
+import com.example.account.cache.AccountListCache;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.dto.AccountInfo;
@@ -13,20 +14,26 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static com.example.account.type.AccountStatus.IN_USE;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.mockito.BDDMockito.given;
 
@@ -39,6 +46,27 @@ public class AccountServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private AccountListCache accountListCache;
+
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter("");
+
+    @Mock
+    private HotBalanceService hotBalanceService;
+
+    @Mock
+    private PartitionedBalanceEngine partitionedBalanceEngine;
+
     @InjectMocks
     private AccountService accountService;
 
@@ -50,6 +78,16 @@ public class AccountServiceTest {
 
     @BeforeEach
     void setup(){
+        // 캐시 미스 : loader 로 DB 조회
+        lenient().when(accountListCache.get(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<List<AccountInfo>>>getArgument(1).get());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().when(readYourWritesTracker.read(anyLong(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        lenient().when(partitionedBalanceEngine.runExclusive(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+
         accountUser = AccountUser.builder()
                 .id(1L)
                 .name("nyh")
@@ -142,6 +180,11 @@ public class AccountServiceTest {
                                 .registeredAt(LocalDateTime.now())
                                 .build()
                 );
+        given(accountNumberAllocator.next())
+                .willReturn(account.getAccountNumber());
+        given(accountUserRepository.incrementActiveAccountCount(anyLong(), eq(10)))
+                .willReturn(1);
+        ArgumentCaptor<Account> captor = ArgumentCaptor.forClass(Account.class);
 
         //when
         Account compareAccount = accountService.createAccount(
@@ -149,6 +192,8 @@ public class AccountServiceTest {
         );
 
         //then
+        verify(accountRepository).save(captor.capture());
+        assertEquals(account.getAccountNumber(), captor.getValue().getAccountNumber());
         assertEquals(compareAccount.getAccountNumber(), account.getAccountNumber());
         assertEquals(compareAccount.getBalance(), account.getBalance());
     }
@@ -176,13 +221,9 @@ public class AccountServiceTest {
         given(accountUserRepository.findById(anyLong()))
                 .willReturn(Optional.of(accountUser));
 
-        List<AccountInfo> accountList = new ArrayList<>();
-        for (int i = 0; i < 10; i++) {
-            accountList.add(null);
-        }
-
-        given(accountRepository.findByAccountUserAndAccountStatus(any(), any()))
-                .willReturn(accountList);
+        // 이미 10 개 : 조건부 증가가 반영되지 않음
+        given(accountUserRepository.incrementActiveAccountCount(anyLong(), eq(10)))
+                .willReturn(0);
 
         //when
         AccountException exception = assertThrows(AccountException.class,
@@ -227,6 +268,7 @@ public class AccountServiceTest {
 
         //then
         assertEquals(AccountStatus.UNREGISTERED, compareAccount.getAccountStatus());
+        verify(accountUserRepository).decrementActiveAccountCount(accountUser.getId());
     }
 
     @Test
@@ -0,0 +1,132 @@
+package com.example.account.service;
+
+import com.example.account.domain.AccountUser;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AccountUserServiceTest {
+    @Mock
+    private AccountUserRepository accountUserRepository;
+
+    @Mock
+    private PrivateNumberFilter privateNumberFilter;
+
+    @InjectMocks
+    private AccountUserService accountUserService;
+
+    @Test
+    @DisplayName("filter 에 없는 번호는 조회 없이 저장")
+    void createAccountUser_definiteMiss_skipsQuery() {
+        //given
+        given(privateNumberFilter.mightExist("P1")).willReturn(false);
+        given(accountUserRepository.saveAndFlush(any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        //when
+        AccountUser accountUser = accountUserService.createAccountUser("nyh", "P1");
+
+        //then
+        assertEquals("P1", accountUser.getPrivateNumber());
+        verify(accountUserRepository, never()).findByPrivateNumber(any());
+        verify(privateNumberFilter).add("P1");
+    }
+
+    @Test
+    @DisplayName("filter 에 있을 수 있으면 조회해서 중복 확인")
+    void createAccountUser_mightExist_queries() {
+        //given
+        given(privateNumberFilter.mightExist("P1")).willReturn(true);
+        given(accountUserRepository.findByPrivateNumber("P1"))
+                .willReturn(Optional.of(AccountUser.builder().privateNumber("P1").build()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountUserService.createAccountUser("nyh", "P1"));
+
+        //then
+        assertEquals(ErrorCode.EXIST_SAME_PRIVATE_NUMBER, exception.getErrorCode());
+        verify(accountUserRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("다른 노드가 먼저 가입시킨 번호 - unique 제약 위반을 중복 가입으로 응답")
+    void createAccountUser_uniqueViolation() {
+        //given
+        given(privateNumberFilter.mightExist("P1")).willReturn(false);
+        given(accountUserRepository.saveAndFlush(any()))
+                .willThrow(violation("PUBLIC.UK_ACCOUNT_USER_PRIVATE_NUMBER_INDEX_8"));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> accountUserService.createAccountUser("nyh", "P1"));
+
+        //then
+        assertEquals(ErrorCode.EXIST_SAME_PRIVATE_NUMBER, exception.getErrorCode());
+        verify(privateNumberFilter, never()).add(any());
+    }
+
+    @Test
+    @DisplayName("privateNumber 가 아닌 제약 위반 - 중복 가입으로 바꾸지 않고 그대로 던진다")
+    void createAccountUser_otherViolation_rethrown() {
+        //given
+        given(privateNumberFilter.mightExist("P1")).willReturn(false);
+        DataIntegrityViolationException violation = violation("PUBLIC.PK_ACCOUNT_USER");
+        given(accountUserRepository.saveAndFlush(any()))
+                .willThrow(violation);
+
+        //when
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> accountUserService.createAccountUser("nyh", "P1"));
+
+        //then
+        assertSame(violation, exception);
+        verify(privateNumberFilter, never()).add(any());
+    }
+
+    private DataIntegrityViolationException violation(String constraintName) {
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement",
+                        new SQLException("Unique index or primary key violation", "23505"), constraintName));
+    }
+
+    @Test
+    @DisplayName("시작 시 기존 번호로 filter 를 채운다")
+    void rebuild_loadsExistingNumbers() {
+        //given
+        PrivateNumberFilter filter = new PrivateNumberFilter(
+                accountUserRepository, mock(PlatformTransactionManager.class), 1_000, 0.01);
+        given(accountUserRepository.streamAllPrivateNumbers())
+                .willReturn(Stream.of("P1", "P2"));
+        assertTrue(filter.mightExist("P3"));
+
+        //when
+        filter.rebuild();
+
+        //then
+        assertTrue(filter.mightExist("P1"));
+        assertTrue(filter.mightExist("P2"));
+        assertFalse(filter.mightExist("P3"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.account.service;
+
+import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.account.type.TransactionResultType.F;
+import static com.example.account.type.TransactionResultType.S;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceBatchServiceTest {
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private LockService lockService;
+
+    @Mock
+    private OptimisticRetryService optimisticRetryService;
+
+    @Mock
+    private PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @InjectMocks
+    private BalanceBatchService balanceBatchService;
+
+    @Test
+    @DisplayName("계좌별로 묶어 lock 은 계좌마다 한 번, 결과는 요청 순서대로")
+    void groupByAccount_lockOncePerAccount() {
+        //given
+        given(transactionService.useBalanceGroup(eq("1000000000"), anyList()))
+                .willReturn(Arrays.asList(result("A1", S), result("A2", S)));
+        given(transactionService.useBalanceGroup(eq("2000000000"), anyList()))
+                .willReturn(Collections.singletonList(result("B1", S)));
+
+        //when
+        UseBalanceBatch.Response response = balanceBatchService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 100L),
+                new UseBalance.Request(2L, "2000000000", 100L),
+                new UseBalance.Request(1L, "1000000000", 200L)));
+
+        //then : lease 는 계좌 묶음 건수만큼 늘어난다.
+        verify(lockService, times(1)).lock(
+                eq("1000000000"), anyLong(), eq(BalanceBatchService.leaseTimeMillis(2)), eq(false));
+        verify(lockService, times(1)).lock(
+                eq("2000000000"), anyLong(), eq(BalanceBatchService.leaseTimeMillis(1)), eq(false));
+        verify(lockService, times(1)).unLock("1000000000");
+        verify(lockService, times(1)).unLock("2000000000");
+        List<UseBalanceBatch.Result> results = response.getResults();
+        assertEquals("A1", results.get(0).getTransactionId());
+        assertEquals("B1", results.get(1).getTransactionId());
+        assertEquals("A2", results.get(2).getTransactionId());
+    }
+
+    @Test
+    @DisplayName("계좌 lock 실패 - 해당 계좌 건만 모두 실패")
+    void lockFailed_failGroup() {
+        //given
+        given(lockService.lock(eq("1000000000"), anyLong(), anyLong(), anyBoolean()))
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_TRANSACTION_LOCK));
+        given(transactionService.useBalanceGroup(eq("2000000000"), anyList()))
+                .willReturn(Collections.singletonList(result("B1", S)));
+
+        //when
+        UseBalanceBatch.Response response = balanceBatchService.useBalanceBatch(Arrays.asList(
+                new UseBalance.Request(1L, "1000000000", 100L),
+                new UseBalance.Request(2L, "2000000000", 100L),
+                new UseBalance.Request(1L, "1000000000", 200L)));
+
+        //then
+        List<UseBalanceBatch.Result> results = response.getResults();
+        assertEquals(F, results.get(0).getTransactionResult());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, results.get(0).getErrorCode());
+        assertEquals(S, results.get(1).getTransactionResult());
+        assertEquals(200L, results.get(2).getAmount());
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, results.get(2).getErrorCode());
+    }
+
+    @Test
+    @DisplayName("처리 중 예외 - 해당 계좌 건만 내부 오류로 실패")
+    void unexpectedException_failGroup() {
+        //given
+        given(transactionService.useBalanceGroup(eq("1000000000"), anyList()))
+                .willThrow(new IllegalStateException("db down"));
+
+        //when
+        UseBalanceBatch.Response response = balanceBatchService.useBalanceBatch(Collections.singletonList(
+                new UseBalance.Request(1L, "1000000000", 100L)));
+
+        //then
+        assertEquals(ErrorCode.INTERNAL_SERVER_ERROR, response.getResults().get(0).getErrorCode());
+        verify(lockService, times(1)).unLock("1000000000");
+    }
+
+    @Test
+    @DisplayName("Error 는 실패 응답으로 감추지 않는다")
+    void error_propagates() {
+        //given
+        given(transactionService.useBalanceGroup(eq("1000000000"), anyList()))
+                .willThrow(new OutOfMemoryError("test"));
+
+        //when
+        //then
+        assertThrows(OutOfMemoryError.class, () -> balanceBatchService.useBalanceBatch(
+                Collections.singletonList(new UseBalance.Request(1L, "1000000000", 100L))));
+        verify(lockService, times(1)).unLock("1000000000");
+    }
+
+    @Test
+    void leaseTime_growsWithGroupSize_fromUseLease() {
+        assertEquals(3_005L, BalanceBatchService.leaseTimeMillis(1));
+        assertEquals(8_000L, BalanceBatchService.leaseTimeMillis(1000));
+    }
+
+    private UseBalanceBatch.Result result(String transactionId, TransactionResultType type) {
+        return UseBalanceBatch.Result.builder()
+                .transactionId(transactionId)
+                .transactionResult(type)
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.account.service;
+
+import com.example.account.dto.OutboxMessage;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOutboxSinkTest {
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("묶음을 순서대로 한 줄에 하나씩 덧붙인다")
+    void appendsNdjson() throws Exception {
+        //given
+        Path file = directory.resolve("outbox/transactions.ndjson");
+        FileOutboxSink sink = new FileOutboxSink(objectMapper, file.toString());
+
+        //when
+        sink.publish(Arrays.asList(message(1L, "t1"), message(2L, "t2")));
+        sink.publish(Collections.singletonList(message(3L, "t3")));
+        sink.close();
+
+        //then
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            OutboxMessage message = objectMapper.readValue(lines.get(i), OutboxMessage.class);
+            assertEquals(i + 1L, message.getEventId());
+            assertEquals("t" + (i + 1), message.getTransactionId());
+        }
+    }
+
+    private OutboxMessage message(Long eventId, String transactionId) {
+        return OutboxMessage.builder()
+                .eventId(eventId)
+                .accountNumber("1000000001")
+                .transactionId(transactionId)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(100L)
+                .balanceSnapshot(900L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
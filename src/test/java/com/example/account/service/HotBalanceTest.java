@@ -0,0 +1,261 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * 새 DB 의 계좌번호는 1000000000 부터 발급되므로 앞쪽 번호들을 Redis 잔액 계좌로 지정한다.
+ * flush 주기를 길게 두고 writer 는 테스트에서 직접 실행한다.
+ */
+@SpringBootTest(properties = {
+        "spring.redis.port=6396",
+        "spring.datasource.url=jdbc:h2:mem:hot-balance;LAZY_QUERY_EXECUTION=1",
+        "account.hot-balance.accounts=1000000000,1000000001,1000000002,1000000003,1000000004,"
+                + "1000000005,1000000006,1000000007,1000000008,1000000009",
+        "account.hot-balance.flush-interval-millis=60000",
+        "account.hot-balance.reconcile-interval-millis=600000",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class HotBalanceTest {
+    private static int sequence = 0;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @SpyBean
+    private HotBalanceService hotBalanceService;
+
+    @Autowired
+    private HotBalanceWriter hotBalanceWriter;
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentDebits_appliedInRedis_persistedInBatch() throws InterruptedException {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createHotAccount(user, 10_000L);
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger failures = new AtomicInteger();
+
+        //when
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    try {
+                        transactionService.useBalance(user.getId(), accountNumber, 10L);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executorService.shutdown();
+
+        //then : Redis 에는 바로, DB 에는 flush 후 반영된다.
+        assertEquals(0, failures.get());
+        HotBalanceService.Snapshot snapshot = hotBalanceService.snapshot(accountNumber);
+        assertEquals(6_000L, snapshot.getBalance());
+        assertEquals(threads * perThread, snapshot.getJournal().size());
+        assertEquals(10_000L, dbBalance(accountNumber));
+        assertEquals(0, hotBalanceWriter.reconcile());
+
+        flush(accountNumber);
+        assertEquals(6_000L, dbBalance(accountNumber));
+        assertEquals(threads * perThread, transactionCount(accountNumber));
+        assertEquals(6_000L, jdbcTemplate.queryForObject("select t.balance_snapshot from transaction t"
+                + " join account a on t.account_id = a.id where a.account_number = ?"
+                + " order by t.id desc limit 1", Long.class, accountNumber));
+        assertEquals(0, hotBalanceWriter.reconcile());
+    }
+
+    @Test
+    void rejectsInvalidDebits_andUnsupportedOperations() {
+        //given
+        AccountUser user = saveUser();
+        AccountUser other = saveUser();
+        String accountNumber = createHotAccount(user, 1_000L);
+        String target = createHotAccount(user, 1_000L);
+
+        //when
+        AccountException exceed = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(user.getId(), accountNumber, 1_001L));
+        AccountException unMatch = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(other.getId(), accountNumber, 100L));
+        AccountException transfer = assertThrows(AccountException.class,
+                () -> transferService.transferBalance(user.getId(), accountNumber, target, 100L));
+        AccountException unRegister = assertThrows(AccountException.class,
+                () -> accountService.unRegisteredAccount(user.getId(), accountNumber));
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exceed.getErrorCode());
+        assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, unMatch.getErrorCode());
+        assertEquals(ErrorCode.HOT_BALANCE_UNSUPPORTED, transfer.getErrorCode());
+        assertEquals(ErrorCode.HOT_BALANCE_UNSUPPORTED, unRegister.getErrorCode());
+        assertEquals(1_000L, hotBalanceService.snapshot(accountNumber).getBalance());
+        assertTrue(hotBalanceService.snapshot(accountNumber).getJournal().isEmpty());
+    }
+
+    @Test
+    void cancelPersistedDebit_creditsRedisBalance() {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createHotAccount(user, 1_000L);
+        TransactionDto use = transactionService.useBalance(user.getId(), accountNumber, 300L);
+        assertEquals(use.getTransactionId(),
+                transactionService.queryTransaction(use.getTransactionId()).getTransactionId());
+        flush(accountNumber);
+
+        //when
+        TransactionDto cancel = transactionService.cancelBalance(use.getTransactionId(), accountNumber, 300L);
+        flush(accountNumber);
+
+        //then
+        assertEquals(1_000L, cancel.getBalanceSnapshot());
+        assertEquals(1_000L, dbBalance(accountNumber));
+        assertEquals(2, transactionCount(accountNumber));
+    }
+
+    @Test
+    void crashBeforeJournalTrim_doesNotPersistTwice() {
+        //given : DB 커밋 후 journal 을 지우기 전에 실패
+        AccountUser user = saveUser();
+        String accountNumber = createHotAccount(user, 1_000L);
+        for (int i = 0; i < 3; i++) {
+            transactionService.useBalance(user.getId(), accountNumber, 100L);
+        }
+        doThrow(new IllegalStateException("redis down"))
+                .doCallRealMethod()
+                .when(hotBalanceService).trimJournal(anyString(), anyInt());
+        hotBalanceWriter.flushOnce();
+        assertEquals(3, hotBalanceService.snapshot(accountNumber).getJournal().size());
+        assertEquals(3, transactionCount(accountNumber));
+
+        //when
+        flush(accountNumber);
+
+        //then
+        assertEquals(3, transactionCount(accountNumber));
+        assertEquals(700L, dbBalance(accountNumber));
+        assertEquals(0, hotBalanceWriter.reconcile());
+    }
+
+    @Test
+    void redisLoss_reloadsFromDatabaseAndCheckpoint() {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createHotAccount(user, 1_000L);
+        transactionService.useBalance(user.getId(), accountNumber, 100L);
+        flush(accountNumber);
+
+        //when : Redis 가 비워진 뒤 다시 사용
+        redissonClient.getKeys().deleteByPattern("HOTB*{" + accountNumber + "}");
+        assertNull(hotBalanceService.snapshot(accountNumber).getBalance());
+        transactionService.useBalance(user.getId(), accountNumber, 200L);
+        flush(accountNumber);
+
+        //then
+        assertEquals(700L, dbBalance(accountNumber));
+        assertEquals(2, transactionCount(accountNumber));
+        assertEquals(2L, jdbcTemplate.queryForObject(
+                "select persisted_seq from hot_balance_checkpoint where account_number = ?",
+                Long.class, accountNumber));
+    }
+
+    @Test
+    void reconcile_detectsDatabaseDrift() {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createHotAccount(user, 1_000L);
+        transactionService.useBalance(user.getId(), accountNumber, 100L);
+        flush(accountNumber);
+        double before = meterRegistry.get("account.hot-balance.reconcile.mismatches").counter().count();
+
+        //when
+        jdbcTemplate.update("update account set balance = balance + 1 where account_number = ?", accountNumber);
+
+        //then
+        assertEquals(1, hotBalanceWriter.reconcile());
+        assertEquals(before + 1,
+                meterRegistry.get("account.hot-balance.reconcile.mismatches").counter().count());
+
+        jdbcTemplate.update("update account set balance = balance - 1 where account_number = ?", accountNumber);
+        assertEquals(0, hotBalanceWriter.reconcile());
+    }
+
+    private AccountUser saveUser() {
+        return accountUserRepository.save(AccountUser.builder()
+                .name("hot")
+                .privateNumber("hot-" + ++sequence)
+                .build());
+    }
+
+    private String createHotAccount(AccountUser user, Long balance) {
+        Account account = accountService.createAccount(user.getId(), balance);
+        assertTrue(hotBalanceService.isHot(account.getAccountNumber()), account.getAccountNumber());
+        return account.getAccountNumber();
+    }
+
+    // 시작 직후에는 배경 writer 가 lock 을 잡고 있을 수 있어 journal 이 빌 때까지 반복한다.
+    private void flush(String accountNumber) {
+        for (int i = 0; i < 10 && !hotBalanceService.snapshot(accountNumber).getJournal().isEmpty(); i++) {
+            hotBalanceWriter.flushOnce();
+        }
+        assertTrue(hotBalanceService.snapshot(accountNumber).getJournal().isEmpty());
+    }
+
+    private long dbBalance(String accountNumber) {
+        return jdbcTemplate.queryForObject(
+                "select balance from account where account_number = ?", Long.class, accountNumber);
+    }
+
+    private long transactionCount(String accountNumber) {
+        return jdbcTemplate.queryForObject("select count(*) from transaction t"
+                + " join account a on t.account_id = a.id where a.account_number = ?",
+                Long.class, accountNumber);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RBucket<Object> bucket;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(redissonClient, 100, 60_000L, 60_000L, 1_000L);
+        given(redissonClient.getBucket(anyString(), any(Codec.class))).willReturn(bucket);
+    }
+
+    @Test
+    void beginNewKey() {
+        //given
+        given(bucket.trySet(anyString(), anyLong(), any(TimeUnit.class))).willReturn(true);
+
+        //when
+        Optional<String> stored = idempotencyService.begin("key", "hash");
+
+        //then
+        assertFalse(stored.isPresent());
+    }
+
+    @Test
+    void replayFromLocalCache_withoutRedis() {
+        //given
+        idempotencyService.complete("key", "hash", "{\"amount\":1}");
+        clearInvocations(redissonClient);
+
+        //when
+        Optional<String> stored = idempotencyService.begin("key", "hash");
+
+        //then
+        assertEquals("{\"amount\":1}", stored.get());
+        verify(redissonClient, never()).getBucket(anyString(), any(Codec.class));
+    }
+
+    @Test
+    void replayFromRedis_storedByOtherNode() {
+        //given
+        given(bucket.trySet(anyString(), anyLong(), any(TimeUnit.class))).willReturn(false);
+        given(bucket.get()).willReturn("hash\n{\"amount\":2}");
+
+        //when
+        Optional<String> stored = idempotencyService.begin("key", "hash");
+
+        //then
+        assertEquals("{\"amount\":2}", stored.get());
+    }
+
+    @Test
+    void beginFailed_keyInProgress() {
+        //given
+        given(bucket.trySet(anyString(), anyLong(), any(TimeUnit.class))).willReturn(false);
+        given(bucket.get()).willReturn("__IN_PROGRESS__");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyService.begin("key", "hash"));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_IN_PROGRESS, exception.getErrorCode());
+    }
+
+    @Test
+    void beginFailed_keyReusedWithDifferentBody() {
+        //given
+        idempotencyService.complete("key", "hash", "{\"amount\":1}");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyService.begin("key", "other-hash"));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+    }
+
+    @Test
+    void beginFailed_keyReusedWithDifferentBody_storedByOtherNode() {
+        //given
+        given(bucket.trySet(anyString(), anyLong(), any(TimeUnit.class))).willReturn(false);
+        given(bucket.get()).willReturn("hash\n{\"amount\":2}");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> idempotencyService.begin("key", "other-hash"));
+
+        //then
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_REUSED, exception.getErrorCode());
+    }
+}
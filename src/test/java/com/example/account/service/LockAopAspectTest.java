@@ -1,21 +1,28 @@
 package com.example.account.service;
 
+import com.example.account.aop.AccountLock;
 import com.example.account.dto.UseBalance;
 import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
 import com.example.account.type.ErrorCode;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class LockAopAspectTest {
@@ -25,6 +32,21 @@ class LockAopAspectTest {
     @Mock
     private ProceedingJoinPoint proceedingJoinPoint;
 
+    @Mock
+    private AccountLock accountLock;
+
+    @Mock
+    private OptimisticRetryService optimisticRetryService;
+
+    @Mock
+    private LatencyInjector latencyInjector;
+
+    @Mock
+    private Signature signature;
+
+    @Mock
+    private HotBalanceService hotBalanceService;
+
     @InjectMocks
     private LockAopAspect lockAopAspect;
 
@@ -38,16 +60,18 @@ class LockAopAspectTest {
                 ArgumentCaptor.forClass(String.class);
         UseBalance.Request request =
                 new UseBalance.Request(123L, "1234", 1000L);
+        given(accountLock.tryLockTime()).willReturn(1000L);
+        given(accountLock.leaseTime()).willReturn(3000L);
         given(proceedingJoinPoint.proceed())
                 .willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
 
         //when
         assertThrows(AccountException.class, () ->
-            lockAopAspect.aroundMethod(proceedingJoinPoint, request));
+            lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request));
 
         //then
         verify(lockService, times(1))
-                .lock(lockArgumentCaptor.capture());
+                .lock(lockArgumentCaptor.capture(), eq(1000L), eq(3000L), eq(false));
         verify(lockService, times(1))
                 .unLock(unLockArgumentCaptor.capture());
         assertEquals("1234", lockArgumentCaptor.getValue());
@@ -55,5 +79,38 @@ class LockAopAspectTest {
 
     }
 
+    @Test
+    void skipLock_inOptimisticMode() throws Throwable {
+        //given
+        ReflectionTestUtils.setField(lockAopAspect, "concurrencyMode", ConcurrencyMode.OPTIMISTIC);
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(proceedingJoinPoint.getSignature()).willReturn(signature);
+        given(signature.getName()).willReturn("useBalance");
+        given(optimisticRetryService.execute(eq("useBalance"), any()))
+                .willReturn("result");
+
+        //when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
+
+        //then
+        assertEquals("result", result);
+        verifyNoInteractions(lockService);
+    }
+
+    @Test
+    void skipLock_forHotBalanceAccount() throws Throwable {
+        //given
+        UseBalance.Request request =
+                new UseBalance.Request(123L, "1234", 1000L);
+        given(hotBalanceService.isHot("1234")).willReturn(true);
+        given(proceedingJoinPoint.proceed()).willReturn("result");
+
+        //when
+        Object result = lockAopAspect.aroundMethod(proceedingJoinPoint, accountLock, request);
 
-}
\ No newline at end of file
+        //then
+        assertEquals("result", result);
+        verifyNoInteractions(lockService, optimisticRetryService);
+    }
+}
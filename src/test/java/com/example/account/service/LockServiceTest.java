@@ -7,12 +7,24 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RKeys;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class LockServiceTest {
@@ -22,6 +34,9 @@ class LockServiceTest {
     @Mock
     private RLock rLock;
 
+    @Mock
+    private RKeys rKeys;
+
     @InjectMocks
     private LockService lockService;
 
@@ -30,8 +45,8 @@ class LockServiceTest {
         //given
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
-        given(rLock.tryLock(anyLong(), anyLong(), any()))
-                .willReturn(true);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
         //when
         //then
         assertDoesNotThrow(() -> lockService.lock("123"));
@@ -42,8 +57,8 @@ class LockServiceTest {
         //given
         given(redissonClient.getLock(anyString()))
                 .willReturn(rLock);
-        given(rLock.tryLock(anyLong(), anyLong(), any()))
-                .willReturn(false);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(false));
         //when
         AccountException accountException = assertThrows(AccountException.class,
                 () -> lockService.lock("123"));
@@ -52,4 +67,219 @@ class LockServiceTest {
         assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, accountException.getErrorCode());
     }
 
-}
\ No newline at end of file
+    @Test
+    void releaseRemoteLock_whenNoLocalWaiter() {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+
+        //when
+        lockService.lock("123");
+        lockService.unLock("123");
+
+        //then
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void handOverRemoteLock_toLocalWaiter() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when
+        lockService.lock("123");
+        Future<?> waiter = executorService.submit(() -> {
+            lockService.lock("123");
+            lockService.unLock("123");
+        });
+        Thread.sleep(200L);
+        lockService.unLock("123");
+        waiter.get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        //then
+        verify(rLock, times(1)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void handOverRemoteLock_extendsLease_whenWaiterNeedsLongerLease() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.getName())
+                .willReturn("ACLK: 123");
+        given(redissonClient.getKeys())
+                .willReturn(rKeys);
+        given(rKeys.expireAsync(anyString(), anyLong(), any()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when : 3초 lease 로 잡은 lock 을 15초 lease 가 필요한 요청이 넘겨받는다.
+        lockService.lock("123", 1000L, 3000L, false);
+        Future<?> waiter = executorService.submit(() -> {
+            lockService.lock("123", 1000L, 15000L, false);
+            lockService.unLock("123");
+        });
+        Thread.sleep(200L);
+        lockService.unLock("123");
+        waiter.get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        //then : Redis 에 다시 줄 서지 않고 넘겨줄 때 lease 만 늘린다.
+        verify(rLock, times(1)).tryLockAsync(anyLong(), eq(3000L), any(), anyLong());
+        verify(rKeys, times(1)).expireAsync("ACLK: 123", 15000L, TimeUnit.MILLISECONDS);
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void handOverRemoteLock_keepsLease_whenRemainingLeaseCovers() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when : 15초 lease 로 잡은 lock 을 3초 lease 요청이 넘겨받는다.
+        lockService.lock("123", 1000L, 15000L, false);
+        Future<?> waiter = executorService.submit(() -> {
+            lockService.lock("123", 1000L, 3000L, false);
+            lockService.unLock("123");
+        });
+        Thread.sleep(200L);
+        lockService.unLock("123");
+        waiter.get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        //then
+        verify(redissonClient, never()).getKeys();
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void releaseRemoteLock_whenLocalWaiterGaveUp() throws Exception {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when : 기다리던 요청이 시간 초과로 포기한 뒤 unlock
+        lockService.lock("123");
+        Future<?> waiter = executorService.submit(() -> assertThrows(AccountException.class,
+                () -> lockService.lock("123", 100L, 3000L, false)));
+        waiter.get(1, TimeUnit.SECONDS);
+        lockService.unLock("123");
+        executorService.shutdown();
+
+        //then : 넘겨줄 요청이 없으므로 RLock 을 반납하고, 다음 요청은 Redis 에 새로 요청한다.
+        verify(rLock, times(1)).unlockAsync(anyLong());
+        lockService.lock("123");
+        lockService.unLock("123");
+        verify(rLock, times(2)).tryLockAsync(anyLong(), anyLong(), any(), anyLong());
+    }
+
+    @Test
+    void differentAccounts_doNotWaitForEachOther() throws Exception {
+        //given : hashCode 가 같은 두 계좌번호
+        assertEquals("1000000Aa".hashCode(), "1000000BB".hashCode());
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        //when
+        lockService.lock("1000000Aa");
+        Future<?> other = executorService.submit(() -> {
+            lockService.lock("1000000BB", 0L, 3000L, false);
+            lockService.unLock("1000000BB");
+        });
+
+        //then
+        assertDoesNotThrow(() -> other.get(1, TimeUnit.SECONDS));
+        lockService.unLock("1000000Aa");
+        executorService.shutdown();
+    }
+
+    @Test
+    void useFairLock_whenRequested() {
+        //given
+        given(redissonClient.getFairLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+
+        //when
+        lockService.lock("123", 1000L, 3000L, true);
+
+        //then
+        verify(rLock, times(1)).tryLockAsync(anyLong(), eq(3000L), any(), anyLong());
+    }
+
+    @Test
+    void lockAll_inSameOrder_regardlessOfRequestOrder() {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+
+        //when
+        List<String> forward = lockService.lockAll(
+                Arrays.asList("1000000000", "2000000000"), 1000L, 3000L, false);
+        lockService.unLockAll(forward);
+        List<String> backward = lockService.lockAll(
+                Arrays.asList("2000000000", "1000000000"), 1000L, 3000L, false);
+        lockService.unLockAll(backward);
+
+        //then
+        assertEquals(forward, backward);
+        verify(rLock, times(4)).unlockAsync(anyLong());
+    }
+
+    @Test
+    void lockAll_releaseAcquiredLocks_whenLaterLockFails() {
+        //given
+        given(redissonClient.getLock(anyString()))
+                .willReturn(rLock);
+        given(rLock.tryLockAsync(anyLong(), anyLong(), any(), anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(true),
+                        RedissonPromise.newSucceededFuture(false));
+        given(rLock.unlockAsync(anyLong()))
+                .willReturn(RedissonPromise.newSucceededFuture(null));
+
+        //when
+        AccountException accountException = assertThrows(AccountException.class,
+                () -> lockService.lockAll(
+                        Arrays.asList("1000000000", "2000000000"), 1000L, 3000L, false));
+
+        //then
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, accountException.getErrorCode());
+        verify(rLock, times(1)).unlockAsync(anyLong());
+    }
+}
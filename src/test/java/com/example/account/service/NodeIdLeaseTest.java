@@ -0,0 +1,72 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6395",
+        "spring.datasource.url=jdbc:h2:mem:node-id-lease;LAZY_QUERY_EXECUTION=1",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class NodeIdLeaseTest {
+
+    @Autowired
+    private RedissonClient redissonClient;
+
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Test
+    void nodesLeaseDifferentIds_andReuseReleasedOnes() {
+        //given : 번호가 셋뿐이고, 하나는 이 노드의 generator 가 쓰고 있다.
+        int beanNodeId = Integer.parseInt(transactionIdGenerator.generate().substring(12, 16), 16);
+        NodeIdLease first = NodeIdLease.acquire(redissonClient, 2, 10_000L);
+        NodeIdLease second = NodeIdLease.acquire(redissonClient, 2, 10_000L);
+
+        //when
+        IllegalStateException full = assertThrows(IllegalStateException.class,
+                () -> NodeIdLease.acquire(redissonClient, 2, 10_000L));
+        first.release();
+        NodeIdLease third = NodeIdLease.acquire(redissonClient, 2, 10_000L);
+
+        //then
+        assertTrue(beanNodeId <= 2);
+        assertNotEquals(beanNodeId, first.getNodeId());
+        assertNotEquals(beanNodeId, second.getNodeId());
+        assertNotEquals(first.getNodeId(), second.getNodeId());
+        assertTrue(full.getMessage().contains("node-id"));
+        assertEquals(first.getNodeId(), third.getNodeId());
+        second.release();
+        third.release();
+    }
+
+    @Test
+    void lostLease_stopsIssuingIds() throws InterruptedException {
+        //given
+        NodeIdLease lease = NodeIdLease.acquire(redissonClient, 0xFFFF, 300L);
+        TimeOrderedTransactionIdGenerator generator =
+                new TimeOrderedTransactionIdGenerator(redissonClient, -1, 300L);
+        generator.generate();
+        lease.check();
+
+        //when : 만료된 사이 다른 노드가 같은 번호를 잡았다.
+        redissonClient.getBucket("TXID: node:" + lease.getNodeId(), StringCodec.INSTANCE)
+                .set("other-node", 10, TimeUnit.SECONDS);
+        Thread.sleep(400L);
+
+        //then
+        assertThrows(IllegalStateException.class, lease::check);
+        generator.generate();
+        generator.releaseNodeId();
+        assertThrows(IllegalStateException.class, generator::generate);
+        lease.release();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.OnboardingImport;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.AccountStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import javax.persistence.EntityManagerFactory;
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6388",
+        // 캐시된 다른 context 의 스키마/시퀀스를 다시 만들지 않도록 별도 DB 사용
+        "spring.datasource.url=jdbc:h2:mem:onboarding-import;LAZY_QUERY_EXECUTION=1",
+        "account.import.chunk-size=100",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class OnboardingImportServiceTest {
+    private static final int USERS = 1_000;
+
+    @Autowired
+    private OnboardingImportService onboardingImportService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @SpyBean
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void importUsers_savesInBatchesAndReportsFailures() throws Exception {
+        //given
+        accountUserRepository.save(AccountUser.builder()
+                .name("existing")
+                .privateNumber("import-existing")
+                .build());
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            input.append("{\"name\":\"user").append(i)
+                    .append("\",\"privateNumber\":\"import-").append(i)
+                    .append("\",\"initialBalances\":[1000,2000]}\n");
+        }
+        input.append("{\"name\":\"dup\",\"privateNumber\":\"import-7\",\"initialBalances\":[1000]}\n");
+        input.append("{\"name\":\"old\",\"privateNumber\":\"import-existing\"}\n");
+        input.append("{\"privateNumber\":\"import-noname\"}\n");
+        input.append("{\"name\":\"small\",\"privateNumber\":\"import-small\",\"initialBalances\":[10]}\n");
+        input.append("{\"name\":\"many\",\"privateNumber\":\"import-many\","
+                + "\"initialBalances\":[100,100,100,100,100,100,100,100,100,100,100]}\n");
+        input.append("not json\n");
+        input.append("\n");
+        StringWriter report = new StringWriter();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        //when
+        OnboardingImport.Summary summary = onboardingImportService.importUsers(
+                new BufferedReader(new StringReader(input.toString())), report);
+
+        //then
+        assertEquals(USERS + 6, summary.getTotal());
+        assertEquals(USERS, summary.getSucceeded());
+        assertEquals(6, summary.getFailed());
+
+        Map<Long, String> failures = new HashMap<>();
+        for (String line : report.toString().split("\n")) {
+            JsonNode failure = objectMapper.readTree(line);
+            failures.put(failure.get("line").asLong(), failure.get("errorCode").asText());
+        }
+        assertEquals("EXIST_SAME_PRIVATE_NUMBER", failures.get(USERS + 1L));
+        assertEquals("EXIST_SAME_PRIVATE_NUMBER", failures.get(USERS + 2L));
+        assertEquals("INVALID_REQUEST", failures.get(USERS + 3L));
+        assertEquals("INVALID_REQUEST", failures.get(USERS + 4L));
+        assertEquals("MAX_ACCOUNT_PER_USER_10", failures.get(USERS + 5L));
+        assertEquals("INVALID_REQUEST", failures.get(USERS + 6L));
+
+        AccountUser imported = accountUserRepository.findByPrivateNumber("import-7").get();
+        assertEquals("user7", imported.getName());
+        assertEquals(2, imported.getActiveAccountCount());
+        assertEquals(2, accountService.getAccountList(imported.getId()).size());
+        // 사용자 1,000 + 계좌 2,000 건을 jdbc batch 로 저장
+        assertTrue(statistics.getPrepareStatementCount() < USERS / 5,
+                "statements : " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void importUsers_privateNumberConflictOnSave_reportedAsDuplicate() throws Exception {
+        //given
+        // 중복 조회 뒤 저장 전에 다른 노드가 먼저 가입시킨 경우 : 계좌번호 발급은 그 사이에 일어난다.
+        doAnswer(invocation -> {
+            if (!accountUserRepository.findByPrivateNumber("race-existing").isPresent()) {
+                accountUserRepository.save(AccountUser.builder()
+                        .name("other node")
+                        .privateNumber("race-existing")
+                        .build());
+            }
+            return invocation.callRealMethod();
+        }).when(accountNumberAllocator).next();
+        StringWriter report = new StringWriter();
+
+        //when
+        OnboardingImport.Summary summary = onboardingImportService.importUsers(new BufferedReader(new StringReader(
+                "{\"name\":\"new\",\"privateNumber\":\"race-new\",\"initialBalances\":[1000]}\n"
+                        + "{\"name\":\"dup\",\"privateNumber\":\"race-existing\",\"initialBalances\":[1000]}\n")),
+                report);
+
+        //then
+        assertEquals(1, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals("EXIST_SAME_PRIVATE_NUMBER", objectMapper.readTree(report.toString()).get("errorCode").asText());
+        assertTrue(accountUserRepository.findByPrivateNumber("race-new").isPresent());
+    }
+
+    @Test
+    void importUsers_accountNumberConflictOnSave_notReportedAsDuplicate() throws Exception {
+        //given
+        AccountUser owner = accountUserRepository.save(AccountUser.builder()
+                .name("owner")
+                .privateNumber("taken-owner")
+                .build());
+        accountRepository.save(Account.builder()
+                .accountUser(owner)
+                .accountNumber("9900000000")
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(0L)
+                .registeredAt(LocalDateTime.now())
+                .build());
+        doReturn("9900000000").when(accountNumberAllocator).next();
+        StringWriter report = new StringWriter();
+
+        //when
+        OnboardingImport.Summary summary = onboardingImportService.importUsers(new BufferedReader(new StringReader(
+                "{\"name\":\"new\",\"privateNumber\":\"taken-new\",\"initialBalances\":[1000]}\n")),
+                report);
+
+        //then
+        assertEquals(0, summary.getSucceeded());
+        assertEquals(1, summary.getFailed());
+        assertEquals("INTERNAL_SERVER_ERROR", objectMapper.readTree(report.toString()).get("errorCode").asText());
+        assertFalse(accountUserRepository.findByPrivateNumber("taken-new").isPresent());
+    }
+}
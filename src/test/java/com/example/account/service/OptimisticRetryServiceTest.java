@@ -0,0 +1,86 @@
+package com.example.account.service;
+
+import com.example.account.exception.AccountException;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryServiceTest {
+    private SimpleMeterRegistry meterRegistry;
+
+    private OptimisticRetryService optimisticRetryService;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        optimisticRetryService = new OptimisticRetryService(meterRegistry);
+    }
+
+    @Test
+    @DisplayName("버전 충돌 후 재시도 성공")
+    void successAfterConflict() throws Throwable {
+        //given
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        Object result = optimisticRetryService.execute("useBalance", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Account", 1L);
+            }
+            return "ok";
+        });
+
+        //then
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(3.0, meterRegistry.counter(
+                "account.optimistic.attempts", "operation", "useBalance").count());
+        assertEquals(2.0, meterRegistry.counter(
+                "account.optimistic.conflicts", "operation", "useBalance").count());
+    }
+
+    @Test
+    @DisplayName("재시도 횟수 초과 - CONCURRENT_UPDATE_CONFLICT")
+    void failWhenRetryExhausted() {
+        //given
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> optimisticRetryService.execute("cancelBalance", () -> {
+                    calls.incrementAndGet();
+                    throw new ObjectOptimisticLockingFailureException("Account", 1L);
+                }));
+
+        //then
+        assertEquals(ErrorCode.CONCURRENT_UPDATE_CONFLICT, exception.getErrorCode());
+        assertEquals(5, calls.get());
+        assertEquals(1.0, meterRegistry.counter(
+                "account.optimistic.exhausted", "operation", "cancelBalance").count());
+    }
+
+    @Test
+    @DisplayName("업무 예외는 재시도하지 않음")
+    void doNotRetryAccountException() {
+        //given
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        assertThrows(AccountException.class,
+                () -> optimisticRetryService.execute("useBalance", () -> {
+                    calls.incrementAndGet();
+                    throw new AccountException(ErrorCode.AMOUNT_EXCEED_BALANCE);
+                }));
+
+        //then
+        assertEquals(1, calls.get());
+    }
+}
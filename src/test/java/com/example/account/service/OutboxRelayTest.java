@@ -0,0 +1,276 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.dto.OutboxMessage;
+import com.example.account.dto.TransactionDto;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.OutboxOffsetRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * poll 주기를 길게 두어 커밋 직후의 wakeUp 만으로 발행되는지 확인한다.
+ */
+@SpringBootTest(properties = {
+        "spring.redis.port=6394",
+        "spring.datasource.url=jdbc:h2:mem:outbox-relay;LAZY_QUERY_EXECUTION=1",
+        "account.outbox.relay.poll-interval-millis=60000",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class OutboxRelayTest {
+    private static int sequence = 0;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxOffsetRepository outboxOffsetRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @SpyBean
+    private InMemoryOutboxSink outboxSink;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void publishesCommittedTransactionsInAccountOrder() throws InterruptedException {
+        //given
+        AccountUser user = saveUser();
+        Account from = accountService.createAccount(user.getId(), 10_000L);
+        Account to = accountService.createAccount(user.getId(), 10_000L);
+
+        //when
+        TransactionDto first = transactionService.useBalance(user.getId(), from.getAccountNumber(), 100L);
+        TransactionDto second = transactionService.useBalance(user.getId(), from.getAccountNumber(), 200L);
+        TransactionDto cancel = transactionService.cancelBalance(
+                first.getTransactionId(), from.getAccountNumber(), 100L);
+        TransactionDto transferOut = transferService.transferBalance(
+                user.getId(), from.getAccountNumber(), to.getAccountNumber(), 300L);
+        List<String> expected = Arrays.asList(first.getTransactionId(), second.getTransactionId(),
+                cancel.getTransactionId(), transferOut.getTransactionId());
+
+        //then : poll 주기(60초)보다 훨씬 빨리 발행된다.
+        List<OutboxMessage> published = awaitPublished(from.getAccountNumber(), expected.size(), 1_000L);
+        assertEquals(expected, published.stream()
+                .map(OutboxMessage::getTransactionId)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(100L, 200L, 100L, 300L), published.stream()
+                .map(OutboxMessage::getAmount)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), published.stream()
+                .map(OutboxMessage::getEventSeq)
+                .collect(Collectors.toList()));
+
+        OutboxMessage transferIn = awaitPublished(to.getAccountNumber(), 1, 1_000L).get(0);
+        assertEquals(TransactionType.TRANSFER_IN, transferIn.getTransactionType());
+        assertEquals(transferOut.getTransactionId(), transferIn.getLinkedTransactionId());
+        assertEquals(1L, transferIn.getEventSeq());
+
+        // 발행은 삭제 커밋 직전에 일어나므로 삭제가 보일 때까지 기다린다.
+        awaitDrained(1_000L);
+        assertTrue(outboxOffsetRepository.findById(OutboxRelay.OFFSET_NAME).get().getDeliveredCount() >= 5);
+        assertTrue(meterRegistry.get("account.outbox.delivery.latency").timer().count() >= 5);
+        assertEquals(0.0, meterRegistry.get("account.outbox.lag").tag("shard", "0").timeGauge()
+                .value(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void failedPublishKeepsEventsForNextRelay() throws InterruptedException {
+        //given : 첫 발행은 실패
+        AccountUser user = saveUser();
+        Account account = accountService.createAccount(user.getId(), 10_000L);
+        doThrow(new IllegalStateException("sink down"))
+                .doCallRealMethod()
+                .when(outboxSink).publish(any());
+
+        //when
+        transactionService.useBalance(user.getId(), account.getAccountNumber(), 100L);
+        Thread.sleep(300L);
+
+        //then : 남아 있다가 다음 relay 에서 한 번만 발행된다.
+        assertTrue(outboxSink.getMessages().stream()
+                .noneMatch(message -> message.getAccountNumber().equals(account.getAccountNumber())));
+        assertEquals(1, outboxEventRepository.count());
+
+        long relayed = 0;
+        for (int i = 0; i < 10 && relayed == 0; i++) {
+            relayed = outboxRelay.relayOnce();
+        }
+        assertEquals(1, relayed);
+        assertEquals(1, awaitPublished(account.getAccountNumber(), 1, 1_000L).size());
+        awaitDrained(1_000L);
+    }
+
+    @Test
+    void failedCancel_writesTransactionAndOutboxEventTogether() throws InterruptedException {
+        //given
+        AccountUser user = saveUser();
+        Account account = accountService.createAccount(user.getId(), 10_000L);
+        TransactionDto use = transactionService.useBalance(user.getId(), account.getAccountNumber(), 100L);
+
+        //when
+        transactionService.saveFailedCancelTransaction(account.getAccountNumber(), 100L);
+
+        //then : 실패 거래도 같은 커밋으로 다음 순번의 이벤트를 남긴다.
+        List<OutboxMessage> published = awaitPublished(account.getAccountNumber(), 2, 1_000L);
+        assertEquals(use.getTransactionId(), published.get(0).getTransactionId());
+        OutboxMessage failedCancel = published.get(1);
+        assertEquals(TransactionType.CANCEL, failedCancel.getTransactionType());
+        assertEquals(TransactionResultType.F, failedCancel.getTransactionResultType());
+        assertEquals(2L, failedCancel.getEventSeq());
+        assertTrue(transactionRepository.findByTransactionId(failedCancel.getTransactionId()).isPresent());
+        awaitDrained(1_000L);
+    }
+
+    @Test
+    void appendWithoutTransaction_fails() {
+        //given
+        AccountUser user = saveUser();
+        Account account = accountService.createAccount(user.getId(), 10_000L);
+        TransactionDto use = transactionService.useBalance(user.getId(), account.getAccountNumber(), 100L);
+        Transaction transaction = transactionRepository.findByTransactionId(use.getTransactionId()).get();
+
+        //when
+        //then : 거래와 따로 커밋될 이벤트는 남기지 않는다.
+        assertThrows(IllegalTransactionStateException.class,
+                () -> outboxService.append(Collections.singletonList(transaction)));
+    }
+
+    @Test
+    void publishesInEventSeqOrder_notIdOrder() throws InterruptedException {
+        //given : 다른 노드의 id 블록에서 나온 것처럼 뒤 순번이 더 작은 id 를 가진다.
+        String accountNumber = "outbox-seq-" + ++sequence;
+        outboxEventRepository.save(event(accountNumber, 2L));
+        outboxEventRepository.save(event(accountNumber, 1L));
+
+        //when
+        long relayed = 0;
+        for (int i = 0; i < 10 && relayed == 0; i++) {
+            relayed = outboxRelay.relayOnce();
+        }
+
+        //then
+        assertEquals(Arrays.asList(1L, 2L), awaitPublished(accountNumber, 2, 1_000L).stream()
+                .map(OutboxMessage::getEventSeq)
+                .collect(Collectors.toList()));
+        awaitDrained(1_000L);
+    }
+
+    @Test
+    void nextBatch_startsFromOldestEvent_notLowestAccountNumber() throws InterruptedException {
+        //given : 뒤 번호 계좌의 이벤트가 먼저 쌓이고, 앞 번호 계좌에 이벤트가 몰린다.
+        int suffix = ++sequence;
+        String late = "outbox-z-" + suffix;
+        String busy = "outbox-a-" + suffix;
+        outboxEventRepository.save(event(late, 1L));
+        for (long eventSeq = 1; eventSeq <= 3; eventSeq++) {
+            outboxEventRepository.save(event(busy, eventSeq));
+        }
+
+        //when
+        List<OutboxEvent> batch = outboxEventRepository.findNextBatch(PageRequest.of(0, 2));
+
+        //then
+        assertEquals(Arrays.asList(late, busy), batch.stream()
+                .map(OutboxEvent::getAccountNumber)
+                .collect(Collectors.toList()));
+        long relayed = 0;
+        for (int i = 0; i < 10 && relayed == 0; i++) {
+            relayed = outboxRelay.relayOnce();
+        }
+        awaitDrained(1_000L);
+    }
+
+    private OutboxEvent event(String accountNumber, Long eventSeq) {
+        return OutboxEvent.builder()
+                .accountNumber(accountNumber)
+                .eventSeq(eventSeq)
+                .transactionId(accountNumber + "-" + eventSeq)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(100L)
+                .balanceSnapshot(1_000L)
+                .transactedAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private AccountUser saveUser() {
+        return accountUserRepository.save(AccountUser.builder()
+                .name("outbox")
+                .privateNumber("outbox-" + ++sequence)
+                .build());
+    }
+
+    private List<OutboxMessage> awaitPublished(String accountNumber, int size, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        List<OutboxMessage> published;
+        do {
+            published = outboxSink.getMessages().stream()
+                    .filter(message -> message.getAccountNumber().equals(accountNumber))
+                    .collect(Collectors.toList());
+            if (published.size() >= size) {
+                return published;
+            }
+            Thread.sleep(10L);
+        } while (System.currentTimeMillis() < deadline);
+        fail("published " + published.size() + " of " + size + " events for " + accountNumber);
+        return published;
+    }
+
+    private void awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (outboxEventRepository.count() > 0) {
+            if (System.currentTimeMillis() >= deadline) {
+                fail(outboxEventRepository.count() + " events left in outbox");
+            }
+            Thread.sleep(10L);
+        }
+    }
+}
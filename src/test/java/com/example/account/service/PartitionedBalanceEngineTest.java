@@ -0,0 +1,314 @@
+package com.example.account.service;
+
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.ErrorCode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6397",
+        "spring.datasource.url=jdbc:h2:mem:partitioned;LAZY_QUERY_EXECUTION=1",
+        "account.concurrency.mode=PARTITIONED",
+        "account.partitioned.partitions=4",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class PartitionedBalanceEngineTest {
+    private static int sequence = 0;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void concurrentDebits_appliedInOrder_groupCommitted() throws InterruptedException {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createAccount(user, 10_000L);
+        int threads = 16;
+        int perThread = 50;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger exceeded = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        //when : 잔액 10,000 에 15 씩 800 건 -> 666 건만 성공
+        for (int i = 0; i < threads; i++) {
+            executorService.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    try {
+                        transactionService.useBalance(user.getId(), accountNumber, 15L);
+                    } catch (AccountException e) {
+                        if (e.getErrorCode() == ErrorCode.AMOUNT_EXCEED_BALANCE) {
+                            exceeded.incrementAndGet();
+                        } else {
+                            failures.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executorService.shutdown();
+
+        //then
+        assertEquals(0, failures.get());
+        assertEquals(threads * perThread - 666, exceeded.get());
+        assertEquals(10L, dbBalance(accountNumber));
+        assertEquals(666, transactionCount(accountNumber));
+        assertEquals(10L, jdbcTemplate.queryForObject("select min(t.balance_snapshot) from transaction t"
+                + " join account a on t.account_id = a.id where a.account_number = ?", Long.class, accountNumber));
+        // 한 커밋에 여러 명령이 묶인다.
+        assertTrue(meterRegistry.get("account.partitioned.commit.size").summary().max() > 1);
+    }
+
+    @Test
+    void rejectsInvalidDebits_withoutChangingBalance() {
+        //given
+        AccountUser user = saveUser();
+        AccountUser other = saveUser();
+        String accountNumber = createAccount(user, 1_000L);
+
+        //when
+        AccountException exceed = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(user.getId(), accountNumber, 1_001L));
+        AccountException unMatch = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(other.getId(), accountNumber, 100L));
+        AccountException noUser = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(-1L, accountNumber, 100L));
+        AccountException noAccount = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(user.getId(), "9999999999", 100L));
+        TransactionDto use = transactionService.useBalance(user.getId(), accountNumber, 100L);
+
+        //then
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exceed.getErrorCode());
+        assertEquals(ErrorCode.USER_ACCOUNT_UN_MATCH, unMatch.getErrorCode());
+        assertEquals(ErrorCode.USER_NOT_FOUND, noUser.getErrorCode());
+        assertEquals(ErrorCode.ACCOUNT_NOT_FOUND, noAccount.getErrorCode());
+        assertEquals(900L, use.getBalanceSnapshot());
+        assertEquals(900L, dbBalance(accountNumber));
+        assertEquals(1, transactionCount(accountNumber));
+        assertEquals(use.getTransactionId(),
+                transactionService.queryTransaction(use.getTransactionId()).getTransactionId());
+    }
+
+    @Test
+    void cancelBalance_creditsAfterValidation() {
+        //given
+        AccountUser user = saveUser();
+        String accountNumber = createAccount(user, 1_000L);
+        TransactionDto use = transactionService.useBalance(user.getId(), accountNumber, 300L);
+
+        //when
+        AccountException partial = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance(use.getTransactionId(), accountNumber, 100L));
+        TransactionDto cancel = transactionService.cancelBalance(use.getTransactionId(), accountNumber, 300L);
+
+        //then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, partial.getErrorCode());
+        assertEquals(1_000L, cancel.getBalanceSnapshot());
+        assertEquals(1_000L, dbBalance(accountNumber));
+        assertEquals(2, transactionCount(accountNumber));
+    }
+
+    @Test
+    void timedOutCommand_isCancelledBeforeApplied() throws Exception {
+        //given : partition 이 앞선 작업에 묶여 있다.
+        AccountUser user = saveUser();
+        String accountNumber = createAccount(user, 1_000L);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> blocking = executorService.submit(() -> partitionedBalanceEngine.runExclusive(accountNumber, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        Object engine = AopTestUtils.getTargetObject(partitionedBalanceEngine);
+        ReflectionTestUtils.setField(engine, "timeoutMillis", 200L);
+
+        //when
+        AccountException timeout;
+        try {
+            timeout = assertThrows(AccountException.class,
+                    () -> transactionService.useBalance(user.getId(), accountNumber, 300L));
+        } finally {
+            ReflectionTestUtils.setField(engine, "timeoutMillis", 10_000L);
+            release.countDown();
+        }
+        blocking.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+        TransactionDto use = transactionService.useBalance(user.getId(), accountNumber, 100L);
+
+        //then : timeout 난 명령은 나중에도 반영되지 않는다.
+        assertEquals(ErrorCode.ACCOUNT_TRANSACTION_LOCK, timeout.getErrorCode());
+        assertEquals(900L, use.getBalanceSnapshot());
+        assertEquals(900L, dbBalance(accountNumber));
+        assertEquals(1, transactionCount(accountNumber));
+    }
+
+    @Test
+    void conflictingAccount_failsAlone_restOfGroupCommitted() throws Exception {
+        //given : 같은 partition 의 두 계좌, A 는 엔진 모르게 DB 잔액이 0 이 되었다.
+        AccountUser user = saveUser();
+        String conflicted = createAccount(user, 1_000L);
+        String other = createAccount(user, 1_000L);
+        while (ShardRouter.shardOf(other, 4) != ShardRouter.shardOf(conflicted, 4)) {
+            other = createAccount(user, 1_000L);
+        }
+        String sameGroup = other;
+        transactionService.useBalance(user.getId(), conflicted, 100L);
+        jdbcTemplate.update("update account set balance = 0 where account_number = ?", conflicted);
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        Future<?> blocking = executorService.submit(() -> partitionedBalanceEngine.runExclusive(sameGroup, () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+
+        //when : 두 계좌의 사용이 한 group commit 에 묶인다.
+        Future<TransactionDto> conflictedUse = executorService.submit(
+                () -> transactionService.useBalance(user.getId(), conflicted, 300L));
+        Future<TransactionDto> otherUse = executorService.submit(
+                () -> transactionService.useBalance(user.getId(), sameGroup, 300L));
+        while (meterRegistry.get("account.partitioned.queue").gauge().value() < 2) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        blocking.get(10, TimeUnit.SECONDS);
+        ExecutionException conflict = assertThrows(ExecutionException.class,
+                () -> conflictedUse.get(10, TimeUnit.SECONDS));
+        TransactionDto use = otherUse.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        //then
+        assertEquals(ErrorCode.CONCURRENT_UPDATE_CONFLICT, ((AccountException) conflict.getCause()).getErrorCode());
+        assertEquals(0L, dbBalance(conflicted));
+        assertEquals(1, transactionCount(conflicted));
+        assertEquals(700L, use.getBalanceSnapshot());
+        assertEquals(700L, dbBalance(sameGroup));
+        assertEquals(1, transactionCount(sameGroup));
+    }
+
+    @Test
+    void transferAndUnregister_seeCommittedBalance() throws InterruptedException {
+        //given
+        AccountUser user = saveUser();
+        String from = createAccount(user, 5_000L);
+        String to = createAccount(user, 0L);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        AtomicInteger failures = new AtomicInteger();
+
+        //when : 출금 계좌 사용과 이체가 섞여도, 입금 계좌 사용이 이체 금액을 본다.
+        for (int i = 0; i < 4; i++) {
+            int index = i;
+            executorService.execute(() -> {
+                try {
+                    for (int j = 0; j < 10; j++) {
+                        if (index == 0) {
+                            transferService.transferBalance(user.getId(), from, to, 100L);
+                        } else {
+                            transactionService.useBalance(user.getId(), from, 10L);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(1, TimeUnit.MINUTES));
+        executorService.shutdown();
+        transactionService.useBalance(user.getId(), to, 900L);
+        AccountException exists = assertThrows(AccountException.class,
+                () -> accountService.unRegisteredAccount(user.getId(), to));
+        transactionService.useBalance(user.getId(), to, 100L);
+        accountService.unRegisteredAccount(user.getId(), to);
+        AccountException unregistered = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(user.getId(), to, 1L));
+
+        //then
+        assertEquals(0, failures.get());
+        assertEquals(3_700L, dbBalance(from));
+        assertEquals(0L, dbBalance(to));
+        assertEquals(ErrorCode.EXISTS_BALANCE, exists.getErrorCode());
+        assertEquals(ErrorCode.ALREADY_UNREGISTERED, unregistered.getErrorCode());
+    }
+
+    private AccountUser saveUser() {
+        return accountUserRepository.save(AccountUser.builder()
+                .name("partitioned")
+                .privateNumber("partitioned-" + ++sequence)
+                .build());
+    }
+
+    private String createAccount(AccountUser user, Long balance) {
+        Account account = accountService.createAccount(user.getId(), balance);
+        return account.getAccountNumber();
+    }
+
+    private long dbBalance(String accountNumber) {
+        return jdbcTemplate.queryForObject(
+                "select balance from account where account_number = ?", Long.class, accountNumber);
+    }
+
+    private long transactionCount(String accountNumber) {
+        return jdbcTemplate.queryForObject("select count(*) from transaction t"
+                + " join account a on t.account_id = a.id where a.account_number = ?",
+                Long.class, accountNumber);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.account.service;
+
+import com.example.account.dto.OutboxMessage;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RBatch;
+import org.redisson.api.RStreamAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+/**
+ * 내장 Redis 는 stream 명령(Redis 5+)이 없어 Redisson 호출만 확인한다.
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisStreamOutboxSinkTest {
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private RBatch batch;
+
+    @Mock
+    private RStreamAsync<String, String> stream;
+
+    @Captor
+    private ArgumentCaptor<StreamAddArgs<String, String>> addArgsCaptor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    @DisplayName("묶음 전체를 한 RBatch 로 순서대로 XADD")
+    void publishAddsAllMessagesInOneBatch() {
+        //given
+        given(redissonClient.createBatch()).willReturn(batch);
+        given(batch.<String, String>getStream("account-transactions", StringCodec.INSTANCE)).willReturn(stream);
+        RedisStreamOutboxSink sink = new RedisStreamOutboxSink(
+                redissonClient, objectMapper, "account-transactions", 1_000);
+
+        //when
+        sink.publish(Arrays.asList(message(1L, "t1"), message(2L, "t2")));
+
+        //then
+        InOrder inOrder = inOrder(stream, batch);
+        inOrder.verify(stream, times(2)).addAsync(addArgsCaptor.capture());
+        inOrder.verify(batch).execute();
+        assertEquals(2, addArgsCaptor.getAllValues().size());
+        verify(redissonClient, times(1)).createBatch();
+        verify(batch, never()).executeAsync();
+    }
+
+    private OutboxMessage message(Long eventId, String transactionId) {
+        return OutboxMessage.builder()
+                .eventId(eventId)
+                .accountNumber("1000000001")
+                .transactionId(transactionId)
+                .transactionType(TransactionType.USE)
+                .transactionResultType(TransactionResultType.S)
+                .amount(100L)
+                .balanceSnapshot(900L)
+                .transactedAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.account.service;
+
+import com.example.account.cache.AccountListCache;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.domain.OutboxEvent;
+import com.example.account.domain.Transaction;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.repository.OutboxEventRepository;
+import com.example.account.repository.TransactionRepository;
+import com.example.account.type.AccountStatus;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 서비스 메서드별 SQL 문장 수를 고정한다.
+ * 연관관계 fetch 설정이 바뀌어 추가 조회(N+1)가 생기면 여기서 실패한다.
+ * 시퀀스 조회가 섞이지 않도록 @BeforeEach 에서 각 테이블에 두 건 이상 insert 해 둔다.
+ * (pooled optimizer 는 처음 두 번 시퀀스를 호출한다.)
+ * outbox relay 의 조회가 섞이지 않도록 relay 는 끈다.
+ */
+@SpringBootTest(properties = {
+        "spring.redis.port=6389",
+        "spring.datasource.url=jdbc:h2:mem:statement-count;LAZY_QUERY_EXECUTION=1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "account.outbox.relay.enabled=false",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class StatementCountTest {
+    private static int sequence = 0;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private AccountListCache accountListCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private AccountUser user;
+    private Account account;
+    private Account otherAccount;
+    private Account emptyAccount;
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        user = accountUserRepository.save(AccountUser.builder()
+                .name("statement")
+                .privateNumber("statement-" + ++sequence)
+                .activeAccountCount(3)
+                .build());
+        account = saveAccount(10_000L);
+        otherAccount = saveAccount(10_000L);
+        emptyAccount = saveAccount(0L);
+        saveTransaction("statement-previous-" + sequence);
+        transaction = saveTransaction("statement-transaction-" + sequence);
+    }
+
+    @Test
+    @DisplayName("잔액 사용 - 사용자, 계좌 조회 + 계좌 update + 이벤트 순번 update, 조회 + 거래, outbox insert")
+    void useBalance() {
+        assertStatements(7, () -> transactionService.useBalance(
+                user.getId(), account.getAccountNumber(), 1_000L));
+    }
+
+    @Test
+    @DisplayName("잔액 사용 취소 - 원 거래는 계좌 없이 조회")
+    void cancelBalance() {
+        assertStatements(7, () -> transactionService.cancelBalance(
+                transaction.getTransactionId(), account.getAccountNumber(), 1_000L));
+    }
+
+    @Test
+    @DisplayName("이체 - 두 계좌 update, 두 거래 insert, 두 outbox insert 는 각각 한 batch, 이벤트 순번은 계좌마다")
+    void transferBalance() {
+        assertStatements(10, () -> transactionService.transferBalance(
+                user.getId(), account.getAccountNumber(), otherAccount.getAccountNumber(), 1_000L));
+    }
+
+    @Test
+    @DisplayName("거래 조회 - 계좌를 join 해 한 번에 조회")
+    void queryTransaction() {
+        assertStatements(1, () -> transactionService.queryTransaction(
+                transaction.getTransactionId()));
+    }
+
+    @Test
+    @DisplayName("거래 내역 - 계좌 조회 + 내역 조회, 거래 건수와 무관")
+    void getTransactionHistory() {
+        for (int i = 0; i < 5; i++) {
+            transactionService.useBalance(user.getId(), account.getAccountNumber(), 100L);
+        }
+
+        assertStatements(2, () -> transactionService.getTransactionHistory(
+                account.getAccountNumber(), null, null, null, 10));
+    }
+
+    @Test
+    @DisplayName("계좌 목록 (캐시 miss) - 사용자 조회 + 목록 projection 조회")
+    void getAccountList() {
+        accountListCache.evict(user.getId());
+
+        assertStatements(2, () -> accountService.getAccountList(user.getId()));
+    }
+
+    @Test
+    @DisplayName("계좌 생성 - 사용자 조회 + 한도 증가 + 계좌 insert")
+    void createAccount() {
+        assertStatements(3, () -> accountService.createAccount(user.getId(), 1_000L));
+    }
+
+    @Test
+    @DisplayName("계좌 해지 - 사용자, 계좌 조회 + 한도 감소 + 계좌 update")
+    void unRegisteredAccount() {
+        assertStatements(4, () -> accountService.unRegisteredAccount(
+                user.getId(), emptyAccount.getAccountNumber()));
+    }
+
+    private Account saveAccount(long balance) {
+        return accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumberAllocator.next())
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(balance)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    private Transaction saveTransaction(String transactionId) {
+        Transaction transaction = transactionRepository.save(Transaction.builder()
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .amount(1_000L)
+                .balanceSnapshot(9_000L)
+                .transactionId(transactionId)
+                .transactedAt(LocalDateTime.now())
+                .build());
+        outboxEventRepository.save(OutboxEvent.from(transaction, 0L));
+        return transaction;
+    }
+
+    /**
+     * 준비된 문장 수가 정확히 expected 이고, lazy 연관관계를 따로 읽은 적이 없어야 한다.
+     */
+    private void assertStatements(long expected, Runnable serviceCall) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        serviceCall.run();
+
+        assertEquals(0, statistics.getEntityFetchCount(), "lazy fetches");
+        assertEquals(expected, statistics.getPrepareStatementCount(), "statements");
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedTransactionIdGeneratorTest {
+    private final TimeOrderedTransactionIdGenerator generator =
+            new TimeOrderedTransactionIdGenerator(0x0a0b);
+
+    @Test
+    void fixedWidth_withNodeId() {
+        //given
+        //when
+        String transactionId = generator.generate();
+
+        //then
+        assertEquals(TimeOrderedTransactionIdGenerator.LENGTH, transactionId.length());
+        assertEquals("0a0b", transactionId.substring(12, 16));
+        assertTrue(transactionId.matches("[0-9a-f]{20}"));
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedTransactionIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedTransactionIdGenerator(0x10000));
+    }
+
+    @Test
+    void monotonic_evenWhenSequenceOverflows() {
+        //given
+        String previous = generator.generate();
+
+        //when
+        //then
+        for (int i = 0; i < 200_000; i++) {
+            String next = generator.generate();
+            assertTrue(next.compareTo(previous) > 0, previous + " >= " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void unique_acrossThreads() throws InterruptedException {
+        //given
+        Set<String> transactionIds = ConcurrentHashMap.newKeySet();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        //when
+        for (int i = 0; i < 8; i++) {
+            executorService.execute(() -> {
+                for (int j = 0; j < 20_000; j++) {
+                    transactionIds.add(generator.generate());
+                }
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(160_000, transactionIds.size());
+    }
+}
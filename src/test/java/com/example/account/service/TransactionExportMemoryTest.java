@@ -0,0 +1,119 @@
+package com.example.account.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 5M 건 export 를 작은 heap(memoryTest 태스크, -Xmx128m) 에서 끝까지 내보낼 수 있는지 확인한다.
+ * 결과를 모아서 쓰면 OutOfMemoryError 로 실패한다.
+ */
+@Tag("memory")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@SpringBootTest(properties = {
+        "spring.redis.port=6384",
+        // H2 1.4.200 는 lazy 커서가 읽는 중인 chunk 를 compaction 으로 지울 수 있어 보존 시간을 늘린다.
+        "spring.datasource.url=jdbc:h2:file:./build/h2/export;LAZY_QUERY_EXECUTION=1;RETENTION_TIME=3600000",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class TransactionExportMemoryTest {
+    private static final int TRANSACTIONS = 5_000_000;
+    private static final int ACCOUNTS = 1_000;
+    private static final int CHUNK = 500_000;
+    private static final LocalDateTime DAY = LocalDateTime.of(2022, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @BeforeAll
+    void loadRows() {
+        jdbcTemplate.update("insert into account_user (id, name, private_number)"
+                + " select x, 'user' || x, 'P' || x from system_range(1, 10)");
+        jdbcTemplate.update("insert into account"
+                + " (id, account_number, account_status, balance, version, account_user_id)"
+                + " select x, cast(1000000000 + x as varchar), 'IN_USE', 1000, 0, mod(x, 10) + 1"
+                + " from system_range(1, " + ACCOUNTS + ")");
+        // 하루 안에 17ms 간격으로 5M 건. 인덱스에 순서대로 쌓이도록 거래 id 는 0 으로 채운다.
+        for (int start = 1; start <= TRANSACTIONS; start += CHUNK) {
+            jdbcTemplate.update("insert into transaction"
+                    + " (id, transaction_id, transaction_type, transaction_result_type,"
+                    + " account_id, amount, balance_snapshot, transacted_at)"
+                    + " select x, 'T' || lpad(x, 10, '0'), 'USE', 0, mod(x, " + ACCOUNTS + ") + 1, 100, 900,"
+                    + " dateadd('MILLISECOND', x * 17, timestamp '2022-01-01 00:00:00')"
+                    + " from system_range(" + start + ", " + (start + CHUNK - 1) + ")");
+        }
+        // 기간 밖 거래는 포함되지 않아야 한다.
+        jdbcTemplate.update("insert into transaction"
+                + " (id, transaction_id, transaction_type, transaction_result_type,"
+                + " account_id, amount, balance_snapshot, transacted_at)"
+                + " values (" + (TRANSACTIONS + 1) + ", 'NEXT_DAY', 'USE', 0, 1, 100, 900,"
+                + " timestamp '2022-01-02 00:00:00')");
+    }
+
+    @AfterAll
+    void dropDatabase() {
+        jdbcTemplate.execute("drop all objects delete files");
+    }
+
+    @Test
+    void export5MillionRows_withSmallHeap() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+
+        long count = transactionExportService.export(DAY, DAY.plusDays(1), out);
+
+        long maxHeap = Runtime.getRuntime().maxMemory();
+        System.out.printf("exported %,d rows, %,d bytes with max heap %,d%n", count, out.bytes, maxHeap);
+        assertEquals(TRANSACTIONS, count);
+        assertEquals(TRANSACTIONS, out.lines);
+        assertTrue(out.firstLine().contains("\"transactionId\":\"T0000000001\""), out.firstLine());
+        // 결과 크기(1GB 이상)와 무관하게 heap 한도 안에서 끝난다.
+        assertTrue(out.bytes > maxHeap, "export should be larger than the heap");
+    }
+
+    /**
+     * 내용을 버리고 크기와 줄 수만 센다.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private final byte[] head = new byte[512];
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            if (bytes < head.length) {
+                head[(int) bytes] = (byte) b;
+            }
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        private String firstLine() {
+            String text = new String(head, 0, (int) Math.min(bytes, head.length), StandardCharsets.UTF_8);
+            int end = text.indexOf('\n');
+            return end < 0 ? text : text.substring(0, end);
+        }
+    }
+}
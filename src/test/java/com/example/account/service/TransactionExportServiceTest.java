@@ -0,0 +1,140 @@
+package com.example.account.service;
+
+import com.example.account.dto.TransactionExportRow;
+import com.example.account.repository.TransactionRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.example.account.type.TransactionResultType.S;
+import static com.example.account.type.TransactionType.USE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+class TransactionExportServiceTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2022, 1, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusDays(1);
+
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final TransactionExportService transactionExportService =
+            new TransactionExportService(transactionRepository, objectMapper, new ShardRouter(""));
+
+    @Test
+    @DisplayName("한 줄에 거래 하나씩 쓰고 커서를 닫는다")
+    void export_writesOneLinePerTransaction() throws Exception {
+        //given
+        AtomicBoolean closed = new AtomicBoolean();
+        given(transactionRepository.streamForExport(FROM, TO))
+                .willReturn(Stream.of(row("T1", 1000L), row("T2", 2000L))
+                        .onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long count = transactionExportService.export(FROM, TO, out);
+
+        //then
+        assertEquals(2, count);
+        assertTrue(closed.get());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(3, lines.length);
+        assertEquals("", lines[2]);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("T1", first.get("transactionId").asText());
+        assertEquals("1000000000", first.get("accountNumber").asText());
+        assertEquals("USE", first.get("transactionType").asText());
+        assertEquals(1000L, first.get("amount").asLong());
+        assertEquals("2022-01-01T09:30:00", first.get("transactedAt").asText());
+        assertEquals("T2", objectMapper.readTree(lines[1]).get("transactionId").asText());
+    }
+
+    @Test
+    @DisplayName("기간에 거래가 없으면 빈 응답")
+    void export_empty() throws Exception {
+        //given
+        given(transactionRepository.streamForExport(FROM, TO)).willReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        //when
+        long count = transactionExportService.export(FROM, TO, out);
+
+        //then
+        assertEquals(0, count);
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    @DisplayName("응답 stream 을 닫지 않고 마지막 줄바꿈까지 쓴다")
+    void export_doesNotCloseOutputStream() throws Exception {
+        //given
+        given(transactionRepository.streamForExport(FROM, TO))
+                .willReturn(Stream.of(row("T1", 1000L)));
+        CloseRejectingOutputStream out = new CloseRejectingOutputStream();
+
+        //when
+        long count = transactionExportService.export(FROM, TO, out);
+
+        //then
+        assertEquals(1, count);
+        assertFalse(out.closed);
+        assertTrue(out.toString(StandardCharsets.UTF_8).endsWith("}\n"));
+    }
+
+    private static TransactionExportRow row(String transactionId, Long amount) {
+        return new TransactionExportRow(transactionId, null, "1000000000", USE, S,
+                amount, 10000L, LocalDateTime.of(2022, 1, 1, 9, 30));
+    }
+
+    /**
+     * 서블릿 응답 stream 처럼 닫힌 뒤의 쓰기를 거부한다.
+     */
+    private static class CloseRejectingOutputStream extends ByteArrayOutputStream {
+        private boolean closed;
+
+        @Override
+        public synchronized void write(int b) {
+            rejectIfClosed();
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            rejectIfClosed();
+            super.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void rejectIfClosed() {
+            if (closed) {
+                throw new UncheckedIOException(new IOException("Stream closed"));
+            }
+        }
+    }
+}
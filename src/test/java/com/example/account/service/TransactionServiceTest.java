@@ -1,41 +1,66 @@
 package com.example.account.service;
 
+import com.example.account.cache.AccountListCache;
+import com.example.account.cache.TransactionCache;
 import com.example.account.domain.Account;
 import com.example.account.domain.AccountUser;
 import com.example.account.domain.Transaction;
+import com.example.account.dto.BalanceUpdateResult;
+import com.example.account.dto.HistoryCursor;
 import com.example.account.dto.TransactionDto;
+import com.example.account.dto.TransactionHistoryDto;
 import com.example.account.dto.UseBalance;
+import com.example.account.dto.UseBalanceBatch;
 import com.example.account.exception.AccountException;
 import com.example.account.repository.AccountRepository;
 import com.example.account.repository.AccountUserRepository;
 import com.example.account.repository.TransactionRepository;
 import com.example.account.type.AccountStatus;
+import com.example.account.type.ConcurrencyMode;
 import com.example.account.type.ErrorCode;
+import com.example.account.type.TransactionResultType;
+import com.example.account.type.TransactionType;
 import org.apache.tomcat.jni.Local;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static com.example.account.type.AccountStatus.IN_USE;
 import static com.example.account.type.TransactionResultType.F;
 import static com.example.account.type.TransactionResultType.S;
 import static com.example.account.type.TransactionType.CANCEL;
+import static com.example.account.type.TransactionType.TRANSFER_IN;
+import static com.example.account.type.TransactionType.TRANSFER_OUT;
 import static com.example.account.type.TransactionType.USE;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -55,9 +80,52 @@ class TransactionServiceTest {
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private LatencyInjector latencyInjector;
+
+    @Mock
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Mock
+    private TransactionCache transactionCache;
+
+    @Mock
+    private AccountListCache accountListCache;
+
+    @Mock
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter("");
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private HotBalanceService hotBalanceService;
+
+    @Mock
+    private PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Captor
+    private ArgumentCaptor<List<Transaction>> transactionsCaptor;
+
     @InjectMocks
     private TransactionService transactionService;
 
+    @BeforeEach
+    void setup(){
+        // replica 미사용 : 조회를 그대로 실행
+        lenient().when(readYourWritesTracker.findWithPrimaryFallback(any()))
+                .thenAnswer(invocation -> invocation.<Supplier<Optional<?>>>getArgument(0).get());
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        lenient().doCallRealMethod().when(transactionTemplate).executeWithoutResult(any());
+    }
+
     @Test
     @DisplayName("거래 성공")
     void success_UseBalance(){
@@ -510,7 +578,7 @@ class TransactionServiceTest {
                 .amount(CANCEL_AMOUNT)
                 .balanceSnapshot(9000L)
                 .build();
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.of(transaction));
         //when
         TransactionDto transactionDto = transactionService.queryTransaction("trxId");
@@ -520,13 +588,33 @@ class TransactionServiceTest {
         assertEquals(S, transactionDto.getTransactionResultType());
         assertEquals(CANCEL_AMOUNT, transactionDto.getAmount());
         assertEquals("transactionId", transactionDto.getTransactionId());
+        verify(transactionCache).put(transactionDto);
+    }
+
+    @Test
+    @DisplayName("캐시된 거래는 DB 조회 없이 반환")
+    void queryTransaction_fromCache(){
+        //given
+        TransactionDto cached = TransactionDto.builder()
+                .transactionId("transactionId")
+                .transactionType(USE)
+                .transactionResultType(S)
+                .build();
+        given(transactionCache.get("transactionId")).willReturn(Optional.of(cached));
+
+        //when
+        TransactionDto transactionDto = transactionService.queryTransaction("transactionId");
+
+        //then
+        assertSame(cached, transactionDto);
+        verify(transactionRepository, never()).findWithAccountByTransactionId(anyString());
     }
 
     @Test
     @DisplayName("원 거래 없음 - 트랜잭션 조회 실패")
     void notFoundTransaction_QueryTransaction(){
         //given
-        given(transactionRepository.findByTransactionId(anyString()))
+        given(transactionRepository.findWithAccountByTransactionId(anyString()))
                 .willReturn(Optional.empty());
 
         //when
@@ -536,6 +624,355 @@ class TransactionServiceTest {
         assertEquals(ErrorCode.TRANSACTION_NOT_FOUND, exception.getErrorCode());
     }
 
+    @Test
+    @DisplayName("조건부 UPDATE 로 잔액 사용 성공")
+    void success_UseBalanceAtomically(){
+        //given
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", ConcurrencyMode.ATOMIC_UPDATE);
+        given(accountRepository.debitBalance(anyLong(), anyString(), anyLong(), any()))
+                .willReturn(new BalanceUpdateResult(1, 1L, 12L, 9800L));
+        given(accountRepository.getById(anyLong()))
+                .willReturn(Account.builder().id(1L).build());
+        given(transactionRepository.save(any()))
+                .willReturn(Transaction.builder()
+                        .account(Account.builder().id(1L).accountNumber("1000000012").build())
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .amount(USE_AMOUNT)
+                        .balanceSnapshot(9800L)
+                        .build());
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(
+                12L, "1000000012", USE_AMOUNT);
+
+        //then
+        verify(transactionRepository, times(1)).save(captor.capture());
+        verify(accountUserRepository, times(0)).findById(anyLong());
+        assertEquals(9800L, captor.getValue().getBalanceSnapshot());
+        assertEquals(S, transactionDto.getTransactionResultType());
+    }
+
+    @Test
+    @DisplayName("조건부 UPDATE 실패 - 실패 사유 조회")
+    void exceedAmount_UseBalanceAtomically(){
+        //given
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", ConcurrencyMode.ATOMIC_UPDATE);
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("PoPo")
+                .privateNumber("10001000").build();
+        given(accountRepository.debitBalance(anyLong(), anyString(), anyLong(), any()))
+                .willReturn(BalanceUpdateResult.notUpdated());
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder()
+                        .accountUser(user)
+                        .accountStatus(IN_USE)
+                        .balance(100L)
+                        .accountNumber("1000000012").build()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.useBalance(12L, "1000000012", 1000L));
+
+        //then
+        verify(transactionRepository, times(0)).save(any());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("이체 거래, 취소 거래, 실패 거래는 취소 불가 - 잔액사용 취소 실패")
+    void cancelOnlyUse_CancelTransaction(){
+        //given
+        Account account = Account.builder()
+                .id(1L)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+
+        for (Transaction original : Arrays.asList(
+                originalTransaction(account, TRANSFER_OUT, S),
+                originalTransaction(account, TRANSFER_IN, S),
+                originalTransaction(account, CANCEL, S),
+                originalTransaction(account, USE, F))) {
+            given(transactionRepository.findByTransactionId(anyString()))
+                    .willReturn(Optional.of(original));
+
+            //when
+            AccountException exception = assertThrows(AccountException.class,
+                    () -> transactionService.cancelBalance("transactionId", "1000000012", CANCEL_AMOUNT));
+
+            //then
+            assertEquals(ErrorCode.CANCEL_ONLY_USE, exception.getErrorCode());
+        }
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("PARTITIONED 모드 잔액 사용 - 트랜잭션 없이 엔진에 넘긴다")
+    void useBalance_partitioned(){
+        //given
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", ConcurrencyMode.PARTITIONED);
+        given(partitionedBalanceEngine.useBalance(12L, "1000000012", USE_AMOUNT))
+                .willReturn(TransactionDto.builder()
+                        .transactionId("transactionId")
+                        .balanceSnapshot(9800L)
+                        .build());
+
+        //when
+        TransactionDto transactionDto = transactionService.useBalance(12L, "1000000012", USE_AMOUNT);
+
+        //then
+        assertEquals(9800L, transactionDto.getBalanceSnapshot());
+        verify(transactionTemplate, never()).execute(any());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+    }
 
+    @Test
+    @DisplayName("PARTITIONED 모드 잔액 사용 취소 - 검증에 실패하면 엔진에 넘기지 않는다")
+    void cancelBalance_partitioned_validatesFirst(){
+        //given
+        ReflectionTestUtils.setField(transactionService, "concurrencyMode", ConcurrencyMode.PARTITIONED);
+        Account account = Account.builder()
+                .id(1L)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        given(transactionRepository.findByTransactionId(anyString()))
+                .willReturn(Optional.of(Transaction.builder()
+                        .account(account)
+                        .transactionType(USE)
+                        .transactionResultType(S)
+                        .transactionId("transactionId")
+                        .transactedAt(LocalDateTime.now())
+                        .amount(CANCEL_AMOUNT + 1000L)
+                        .build()));
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
 
-}
\ No newline at end of file
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.cancelBalance("transactionId", "1000000012", CANCEL_AMOUNT));
+
+        //then
+        assertEquals(ErrorCode.CANCEL_MUST_FULLY, exception.getErrorCode());
+        verify(partitionedBalanceEngine, never()).cancelBalance(anyString(), anyLong());
+    }
+
+    @Test
+    @DisplayName("같은 계좌 여러 건 사용 - 잔액 초과 건만 실패")
+    void useBalanceGroup_partialFailure(){
+        //given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("PoPo")
+                .privateNumber("10001000").build();
+        Account account = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(1000L)
+                .accountNumber("1000000012").build();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(accountUserRepository.findById(12L))
+                .willReturn(Optional.of(user));
+        //when
+        List<UseBalanceBatch.Result> results = transactionService.useBalanceGroup("1000000012",
+                Arrays.asList(
+                        new UseBalance.Request(12L, "1000000012", 600L),
+                        new UseBalance.Request(12L, "1000000012", 600L),
+                        new UseBalance.Request(12L, "1000000012", 400L)));
+
+        //then
+        verify(accountUserRepository, times(1)).findById(12L);
+        verify(transactionRepository, times(1)).saveAll(transactionsCaptor.capture());
+        assertEquals(3, transactionsCaptor.getValue().size());
+        assertEquals(400L, transactionsCaptor.getValue().get(0).getBalanceSnapshot());
+        assertEquals(F, transactionsCaptor.getValue().get(1).getTransactionResultType());
+        assertEquals(0L, transactionsCaptor.getValue().get(2).getBalanceSnapshot());
+        assertEquals(S, results.get(0).getTransactionResult());
+        assertEquals(ErrorCode.AMOUNT_EXCEED_BALANCE, results.get(1).getErrorCode());
+        assertEquals(S, results.get(2).getTransactionResult());
+        assertEquals(0L, account.getBalance());
+    }
+
+    @Test
+    @DisplayName("이체 성공 - 출금/입금 거래가 서로를 가리킴")
+    void success_TransferBalance(){
+        //given
+        AccountUser user = AccountUser.builder()
+                .id(12L)
+                .name("PoPo")
+                .privateNumber("10001000").build();
+        Account fromAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(10000L)
+                .accountNumber("1000000012").build();
+        Account toAccount = Account.builder()
+                .accountUser(user)
+                .accountStatus(IN_USE)
+                .balance(500L)
+                .accountNumber("1000000013").build();
+        given(accountUserRepository.findById(anyLong()))
+                .willReturn(Optional.of(user));
+        given(accountRepository.findByAccountNumber("1000000012"))
+                .willReturn(Optional.of(fromAccount));
+        given(accountRepository.findByAccountNumber("1000000013"))
+                .willReturn(Optional.of(toAccount));
+        given(transactionIdGenerator.generate())
+                .willReturn("transferOutId", "transferInId");
+        //when
+        TransactionDto transactionDto = transactionService.transferBalance(
+                12L, "1000000012", "1000000013", 1000L);
+
+        //then
+        verify(transactionRepository, times(1)).saveAll(transactionsCaptor.capture());
+        Transaction transferOut = transactionsCaptor.getValue().get(0);
+        Transaction transferIn = transactionsCaptor.getValue().get(1);
+        assertEquals(TRANSFER_OUT, transferOut.getTransactionType());
+        assertEquals(TRANSFER_IN, transferIn.getTransactionType());
+        assertEquals(transferIn.getTransactionId(), transferOut.getLinkedTransactionId());
+        assertEquals(transferOut.getTransactionId(), transferIn.getLinkedTransactionId());
+        assertEquals(9000L, fromAccount.getBalance());
+        assertEquals(1500L, toAccount.getBalance());
+        assertEquals("transferInId", transferOut.getLinkedTransactionId());
+        assertEquals("transferOutId", transferIn.getLinkedTransactionId());
+        assertEquals("transferOutId", transactionDto.getTransactionId());
+    }
+
+    @Test
+    @DisplayName("다른 shard 입금 - 그 사이 Redis 잔액 계좌가 된 입금 계좌는 거절")
+    void hotTarget_TransferIn(){
+        //given
+        doThrow(new AccountException(ErrorCode.HOT_BALANCE_UNSUPPORTED))
+                .when(hotBalanceService).requireNotHot("1000000013");
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferIn("1000000013", 1000L, "transferInId", "transferOutId"));
+
+        //then
+        assertEquals(ErrorCode.HOT_BALANCE_UNSUPPORTED, exception.getErrorCode());
+        verify(accountRepository, never()).findByAccountNumber(anyString());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("같은 계좌로 이체 - 이체 실패")
+    void sameAccount_TransferBalance(){
+        //given
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.transferBalance(
+                        12L, "1000000012", "1000000012", 1000L));
+
+        //then
+        assertEquals(ErrorCode.SAME_ACCOUNT_TRANSFER, exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("거래 내역 첫 페이지 - 다음 페이지 cursor 생성")
+    void getTransactionHistory_firstPage(){
+        //given
+        Account account = Account.builder()
+                .id(1L)
+                .accountNumber("1000000012").build();
+        LocalDateTime now = LocalDateTime.now();
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findHistory(any(), any(), any(), any()))
+                .willReturn(Arrays.asList(
+                        historyTransaction(account, 30L, now),
+                        historyTransaction(account, 20L, now.minusSeconds(1)),
+                        historyTransaction(account, 10L, now.minusSeconds(2))));
+        ArgumentCaptor<Pageable> captor = ArgumentCaptor.forClass(Pageable.class);
+
+        //when
+        TransactionHistoryDto history = transactionService.getTransactionHistory(
+                "1000000012", null, null, null, 2);
+
+        //then
+        verify(transactionRepository, times(1))
+                .findHistory(any(), any(), any(), captor.capture());
+        assertEquals(3, captor.getValue().getPageSize());
+        assertEquals(2, history.getTransactions().size());
+        assertEquals("1000000012", history.getTransactions().get(0).getAccountNumber());
+        HistoryCursor cursor = HistoryCursor.decode(history.getNextCursor());
+        assertEquals(20L, cursor.getId());
+        assertEquals(now.minusSeconds(1), cursor.getTransactedAt());
+    }
+
+    @Test
+    @DisplayName("거래 내역 다음 페이지 - cursor 위치부터 조회, 마지막 페이지")
+    void getTransactionHistory_afterCursor(){
+        //given
+        Account account = Account.builder()
+                .id(1L)
+                .accountNumber("1000000012").build();
+        LocalDateTime transactedAt = LocalDateTime.of(2022, 6, 1, 23, 26, 14);
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(account));
+        given(transactionRepository.findHistoryAfter(
+                any(), any(), any(), any(), anyLong(), any()))
+                .willReturn(Arrays.asList(historyTransaction(account, 10L, transactedAt)));
+
+        //when
+        TransactionHistoryDto history = transactionService.getTransactionHistory(
+                "1000000012", USE, S,
+                new HistoryCursor(transactedAt.plusSeconds(1), 20L).encode(), 2);
+
+        //then
+        verify(transactionRepository, times(1)).findHistoryAfter(
+                eq(account), eq(USE), eq(S), eq(transactedAt.plusSeconds(1)), eq(20L), any());
+        assertEquals(1, history.getTransactions().size());
+        assertNull(history.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("잘못된 cursor - 거래 내역 조회 실패")
+    void getTransactionHistory_invalidCursor(){
+        //given
+        given(accountRepository.findByAccountNumber(anyString()))
+                .willReturn(Optional.of(Account.builder().id(1L).build()));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transactionService.getTransactionHistory(
+                        "1000000012", null, null, "not-a-cursor", 20));
+
+        //then
+        assertEquals(ErrorCode.INVALID_REQUEST, exception.getErrorCode());
+    }
+
+    private Transaction historyTransaction(Account account, Long id, LocalDateTime transactedAt) {
+        return Transaction.builder()
+                .id(id)
+                .account(account)
+                .transactionType(USE)
+                .transactionResultType(S)
+                .transactionId("transactionId" + id)
+                .amount(USE_AMOUNT)
+                .transactedAt(transactedAt)
+                .build();
+    }
+
+    private Transaction originalTransaction(
+            Account account, TransactionType transactionType, TransactionResultType transactionResultType) {
+        return Transaction.builder()
+                .account(account)
+                .transactionType(transactionType)
+                .transactionResultType(transactionResultType)
+                .transactionId("transactionId")
+                .transactedAt(LocalDateTime.now())
+                .amount(CANCEL_AMOUNT)
+                .balanceSnapshot(10000L)
+                .build();
+    }
+}
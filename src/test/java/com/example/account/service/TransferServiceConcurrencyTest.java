@@ -0,0 +1,75 @@
+package com.example.account.service;
+
+import com.example.account.benchmark.LoadRunner;
+import com.example.account.domain.Account;
+import com.example.account.domain.AccountUser;
+import com.example.account.repository.AccountRepository;
+import com.example.account.repository.AccountUserRepository;
+import com.example.account.type.AccountStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "spring.redis.port=6382",
+        "spring.jpa.properties.hibernate.show_sql=false"
+})
+class TransferServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int TRANSFERS = 400;
+    private static final long INITIAL_BALANCE = 1_000_000L;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    @DisplayName("A→B, B→A 교차 이체 - 교착이나 lock 실패 없이 잔액 합계 유지")
+    void crossingTransfers() throws Exception {
+        //given
+        AccountUser user = accountUserRepository.save(AccountUser.builder()
+                .name("transfer")
+                .privateNumber("transfer-crossing")
+                .build());
+        Account a = createAccount(user, "9200000001");
+        Account b = createAccount(user, "9200000002");
+
+        //when
+        LoadRunner.Result result = LoadRunner.run("crossing transfer", THREADS, TRANSFERS, i -> {
+            if (i % 2 == 0) {
+                transferService.transferBalance(user.getId(), a.getAccountNumber(), b.getAccountNumber(), 100L);
+            } else {
+                transferService.transferBalance(user.getId(), b.getAccountNumber(), a.getAccountNumber(), 100L);
+            }
+        });
+
+        //then
+        assertEquals(0, result.getFailures());
+        assertEquals(INITIAL_BALANCE, balanceOf(a));
+        assertEquals(INITIAL_BALANCE, balanceOf(b));
+    }
+
+    private Account createAccount(AccountUser user, String accountNumber) {
+        return accountRepository.save(Account.builder()
+                .accountUser(user)
+                .accountNumber(accountNumber)
+                .accountStatus(AccountStatus.IN_USE)
+                .balance(INITIAL_BALANCE)
+                .registeredAt(LocalDateTime.now())
+                .build());
+    }
+
+    private long balanceOf(Account account) {
+        return accountRepository.findById(account.getId()).get().getBalance();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.account.service;
+
+import com.example.account.domain.PendingTransfer;
+import com.example.account.dto.TransactionDto;
+import com.example.account.exception.AccountException;
+import com.example.account.type.ConcurrencyMode;
+import com.example.account.type.ErrorCode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferServiceTest {
+    private static final String FROM = "1000000001";
+    private static final String TO = "1000000002";
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private LockService lockService;
+
+    @Mock
+    private OptimisticRetryService optimisticRetryService;
+
+    @Mock
+    private ShardRouter shardRouter;
+
+    @Mock
+    private PartitionedBalanceEngine partitionedBalanceEngine;
+
+    @InjectMocks
+    private TransferService transferService;
+
+    @Test
+    @DisplayName("다른 shard 이체 - 출금, 입금을 각각 커밋")
+    void transferAcrossShards() {
+        //given
+        List<String> locked = Arrays.asList(FROM, TO);
+        given(shardRouter.shardOf(FROM)).willReturn(0);
+        given(shardRouter.shardOf(TO)).willReturn(1);
+        given(lockService.lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean())).willReturn(locked);
+        given(transactionService.transferOut(1L, FROM, TO, 1_000L)).willReturn(transferOut());
+
+        //when
+        TransactionDto transactionDto = transferService.transferBalance(1L, FROM, TO, 1_000L);
+
+        //then
+        assertEquals("out", transactionDto.getTransactionId());
+        verify(transactionService).validateTransferTarget(TO);
+        verify(transactionService).transferIn(TO, 1_000L, "in", "out");
+        verify(transactionService, never()).cancelTransferOut(anyString(), anyLong(), anyString());
+        verify(transactionService).completeTransfer(FROM, "out");
+        verify(transactionService, never()).transferBalance(anyLong(), anyString(), anyString(), anyLong());
+        verify(lockService).unLockAll(locked);
+    }
+
+    @Test
+    @DisplayName("다른 shard 이체 - 입금이 실패하면 출금을 되돌린다")
+    void transferAcrossShards_compensatesWhenTransferInFails() {
+        //given
+        List<String> locked = Arrays.asList(FROM, TO);
+        given(shardRouter.shardOf(FROM)).willReturn(0);
+        given(shardRouter.shardOf(TO)).willReturn(1);
+        given(lockService.lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean())).willReturn(locked);
+        given(transactionService.transferOut(1L, FROM, TO, 1_000L)).willReturn(transferOut());
+        given(transactionService.transferIn(TO, 1_000L, "in", "out"))
+                .willThrow(new AccountException(ErrorCode.ALREADY_UNREGISTERED));
+
+        //when
+        AccountException exception = assertThrows(AccountException.class,
+                () -> transferService.transferBalance(1L, FROM, TO, 1_000L));
+
+        //then
+        assertEquals(ErrorCode.ALREADY_UNREGISTERED, exception.getErrorCode());
+        verify(transactionService).cancelTransferOut(FROM, 1_000L, "out");
+        verify(transactionService, never()).completeTransfer(anyString(), anyString());
+        verify(lockService).unLockAll(locked);
+    }
+
+    @Test
+    @DisplayName("다른 shard 이체 - 입금 커밋 여부를 모르는 실패면 되돌리지 않고 sweeper 에 맡긴다")
+    void transferAcrossShards_leavesPendingWhenTransferInOutcomeUnknown() {
+        //given
+        List<String> locked = Arrays.asList(FROM, TO);
+        given(shardRouter.shardOf(FROM)).willReturn(0);
+        given(shardRouter.shardOf(TO)).willReturn(1);
+        given(lockService.lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean())).willReturn(locked);
+        given(transactionService.transferOut(1L, FROM, TO, 1_000L)).willReturn(transferOut());
+        given(transactionService.transferIn(TO, 1_000L, "in", "out"))
+                .willThrow(new IllegalStateException("shard down"));
+
+        //when
+        assertThrows(IllegalStateException.class,
+                () -> transferService.transferBalance(1L, FROM, TO, 1_000L));
+
+        //then
+        verify(transactionService, never()).cancelTransferOut(anyString(), anyLong(), anyString());
+        verify(transactionService, never()).completeTransfer(anyString(), anyString());
+        verify(lockService).unLockAll(locked);
+    }
+
+    @Test
+    @DisplayName("남은 이체 마무리 - 이미 끝난 이체는 건너뛴다")
+    void settlePending_skipsSettledTransfer() {
+        //given
+        given(lockService.lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean()))
+                .willReturn(Arrays.asList(FROM, TO));
+        given(transactionService.isTransferPending(FROM, "out")).willReturn(false);
+
+        //when
+        transferService.settlePending(pendingTransfer());
+
+        //then
+        verify(transactionService, never()).transferIn(anyString(), anyLong(), anyString(), anyString());
+        verify(transactionService, never()).cancelTransferOut(anyString(), anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("남은 이체 마무리 - 입금 계좌가 거절하면 출금을 되돌린다")
+    void settlePending_cancelsRejectedTransfer() {
+        //given
+        given(lockService.lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean()))
+                .willReturn(Arrays.asList(FROM, TO));
+        given(transactionService.isTransferPending(FROM, "out")).willReturn(true);
+        given(transactionService.transferIn(TO, 1_000L, "in", "out"))
+                .willThrow(new AccountException(ErrorCode.ACCOUNT_NOT_FOUND));
+
+        //when
+        transferService.settlePending(pendingTransfer());
+
+        //then
+        verify(transactionService).cancelTransferOut(FROM, 1_000L, "out");
+        verify(transactionService, never()).completeTransfer(anyString(), anyString());
+        verify(lockService).unLockAll(Arrays.asList(FROM, TO));
+    }
+
+    @Test
+    @DisplayName("PARTITIONED 모드 이체 - 출금 계좌 partition 에서 실행하고 입금 계좌 메모리 잔액을 버린다")
+    void transferPartitioned() throws Throwable {
+        //given
+        ReflectionTestUtils.setField(transferService, "concurrencyMode", ConcurrencyMode.PARTITIONED);
+        given(partitionedBalanceEngine.runExclusive(eq(FROM), any()))
+                .willAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        given(optimisticRetryService.execute(anyString(), any()))
+                .willAnswer(invocation -> invocation.<OptimisticRetryService.Attempt>getArgument(1).run());
+        given(transactionService.transferBalance(1L, FROM, TO, 1_000L)).willReturn(transferOut());
+
+        //when
+        TransactionDto transactionDto = transferService.transferBalance(1L, FROM, TO, 1_000L);
+
+        //then
+        assertEquals("out", transactionDto.getTransactionId());
+        verify(partitionedBalanceEngine).invalidate(TO);
+        verify(lockService, never()).lockAll(anyCollection(), anyLong(), anyLong(), anyBoolean());
+    }
+
+    private PendingTransfer pendingTransfer() {
+        return PendingTransfer.builder()
+                .transferOutTransactionId("out")
+                .transferInTransactionId("in")
+                .fromAccountNumber(FROM)
+                .toAccountNumber(TO)
+                .amount(1_000L)
+                .build();
+    }
+
+    private TransactionDto transferOut() {
+        return TransactionDto.builder()
+                .accountNumber(FROM)
+                .transactionId("out")
+                .linkedTransactionId("in")
+                .amount(1_000L)
+                .build();
+    }
+}